@@ -7,6 +7,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import uk.ac.soton.comp1206.scene.InstructionsScene;
+import uk.ac.soton.comp1206.scores.ScoreStore;
 import uk.ac.soton.comp1206.ui.GameWindow;
 
 /**
@@ -72,6 +73,8 @@ public class App extends Application {
      */
     public void shutdown() {
         logger.info("Shutting down");
+        //Make sure the last scores reach the disk
+        ScoreStore.shutdown();
         System.exit(0);
     }
 
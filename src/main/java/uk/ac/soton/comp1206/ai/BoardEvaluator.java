@@ -0,0 +1,165 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+import uk.ac.soton.comp1206.game.LineClearDetector;
+
+/**
+ * Scores a board after a placement as a weighted sum of features: the points the placement earned, the empty blocks,
+ * holes, almost full lines and open 3x3 squares left behind, and the multiplier carried into the next placement.
+ *
+ * The weights are fixed when the evaluator is created, so one evaluator can be shared between threads.
+ */
+public class BoardEvaluator {
+
+    /**
+     * Indexes of each feature in the weights
+     */
+    public static final int POINTS = 0;
+    public static final int EMPTY = 1;
+    public static final int HOLES = 2;
+    public static final int ALMOST_FULL = 3;
+    public static final int OPEN_SQUARES = 4;
+    public static final int MULTIPLIER = 5;
+
+    /**
+     * Number of features
+     */
+    public static final int FEATURES = 6;
+
+    /**
+     * Names of each feature, for reports and checkpoints
+     */
+    public static final String[] NAMES = {"points", "empty", "holes", "almostFull", "openSquares", "multiplier"};
+
+    /**
+     * Hand-tuned weights which keep the board open and build up the multiplier
+     */
+    public static final BoardEvaluator DEFAULT = new BoardEvaluator(new double[]{1.0, 4.0, -20.0, 6.0, 8.0, 10.0});
+
+    /**
+     * Weight of each feature
+     */
+    private final double[] weights;
+
+    /**
+     * Create an evaluator with the given weights
+     * @param weights weight of each feature, in the order of the feature indexes
+     */
+    public BoardEvaluator(double[] weights) {
+        if (weights.length != FEATURES) {
+            throw new IllegalArgumentException("Expected " + FEATURES + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Score a board
+     * @param features features of boards of this size
+     * @param occupancy occupancy of the board
+     * @param points points earned reaching it
+     * @param multiplier multiplier carried into the next placement
+     * @return score, higher is better
+     */
+    public double evaluate(BoardFeatures features, long occupancy, int points, int multiplier) {
+        return weights[POINTS] * points
+                + weights[EMPTY] * features.emptyBlocks(occupancy)
+                + weights[HOLES] * features.holes(occupancy)
+                + weights[ALMOST_FULL] * features.almostFullLines(occupancy)
+                + weights[OPEN_SQUARES] * features.openSquares(occupancy)
+                + weights[MULTIPLIER] * multiplier;
+    }
+
+    /**
+     * Score the board left by a placement, clearing any full lines with the same rules as the GameEngine
+     * @param features features of boards of this size
+     * @param occupancy occupancy of the board before the placement
+     * @param footprint blocks covered by the placement
+     * @param multiplier multiplier before the placement
+     * @return score, higher is better
+     */
+    public double evaluatePlacement(BoardFeatures features, long occupancy, long footprint, int multiplier) {
+        return evaluatePlacement(features, features.getDetector(), occupancy, footprint, multiplier);
+    }
+
+    /**
+     * Score the board left by a placement, with the detector looked up once by the caller
+     * @param features features of boards of this size
+     * @param detector detector of boards of this size
+     * @param occupancy occupancy of the board before the placement
+     * @param footprint blocks covered by the placement
+     * @param multiplier multiplier before the placement
+     * @return score, higher is better
+     */
+    private double evaluatePlacement(BoardFeatures features, LineClearDetector detector, long occupancy,
+                                     long footprint, int multiplier) {
+        long placed = occupancy | footprint;
+        long cleared = detector.detect(placed);
+        if (cleared == 0) {
+            return evaluate(features, placed, 0, 1);
+        }
+        return evaluate(features, placed & ~cleared, points(detector, cleared, multiplier), multiplier + 1);
+    }
+
+    /**
+     * Work out the points earned by clearing blocks, with the same rules as the GameEngine
+     * @param detector detector of boards of this size
+     * @param cleared blocks cleared, not empty
+     * @param multiplier multiplier before the placement
+     * @return points
+     */
+    public static int points(LineClearDetector detector, long cleared, int multiplier) {
+        return detector.countLines(cleared) * Long.bitCount(cleared) * 10 * multiplier;
+    }
+
+    /**
+     * Score the boards left by a batch of placements on the same board, such as the footprints of a MoveList, and find
+     * the best. Gives the same scores as evaluatePlacement on each footprint.
+     * @param features features of boards of this size
+     * @param occupancy occupancy of the board before the placements
+     * @param footprints blocks covered by each placement
+     * @param count number of placements
+     * @param multiplier multiplier before the placements
+     * @param scores filled with the score of each placement, at least count long
+     * @return index of the first placement with the best score, -1 if there are none
+     */
+    public int evaluatePlacements(BoardFeatures features, long occupancy, long[] footprints, int count, int multiplier,
+                                  double[] scores) {
+        LineClearDetector detector = features.getDetector();
+        int best = -1;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double score = evaluatePlacement(features, detector, occupancy, footprints[i], multiplier);
+            scores[i] = score;
+            if (score > bestScore) {
+                bestScore = score;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the weight of one feature
+     * @param feature feature index
+     * @return weight
+     */
+    public double getWeight(int feature) {
+        return weights[feature];
+    }
+
+    /**
+     * Get the weight of each feature
+     * @return copy of the weights
+     */
+    public double[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Return a string representation of this evaluator
+     * @return string representation
+     */
+    @Override public String toString() {
+        return "BoardEvaluator " + Arrays.toString(weights);
+    }
+}
@@ -0,0 +1,175 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.ConcurrentHashMap;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.LineClearDetector;
+
+/**
+ * Measures features of a compact board from its occupancy bitmask, for bots to judge how good a board is.
+ *
+ * Every feature is counted for the whole board at once with shifted copies of the occupancy and precomputed row,
+ * column and edge masks, treating the bits of the mask as lanes (SIMD within a register) rather than looping over
+ * lines or squares. One instance is shared by every board of the same size.
+ */
+public class BoardFeatures {
+
+    /**
+     * Features already built, keyed by cols * 64 + rows
+     */
+    private static final ConcurrentHashMap<Integer, BoardFeatures> FEATURES = new ConcurrentHashMap<>();
+
+    private final int cols;
+    private final int rows;
+
+    /**
+     * Every block of the board
+     */
+    private final long full;
+
+    /**
+     * Blocks in the first and last column and row, whose missing neighbours count as filled
+     */
+    private final long leftEdge;
+    private final long rightEdge;
+    private final long topEdge;
+    private final long bottomEdge;
+
+    /**
+     * Top left blocks of every 3x3 square on the board
+     */
+    private final long squareCorners;
+
+    /**
+     * Finds full rows and columns on boards of this size
+     */
+    private final LineClearDetector detector;
+
+    /**
+     * Get the features for boards of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the features
+     */
+    public static BoardFeatures forSize(int cols, int rows) {
+        if (cols * rows > Grid.COMPACT_CELLS) {
+            throw new IllegalArgumentException("Grid of " + cols + "x" + rows + " is larger than " + Grid.COMPACT_CELLS + " blocks");
+        }
+        return FEATURES.computeIfAbsent(cols * Grid.COMPACT_CELLS + rows, key -> new BoardFeatures(cols, rows));
+    }
+
+    /**
+     * Precompute the masks for a board of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    private BoardFeatures(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        this.detector = LineClearDetector.forSize(cols, rows);
+
+        int cells = cols * rows;
+        full = cells == Long.SIZE ? -1L : (1L << cells) - 1;
+
+        long left = 0, right = 0, top = 0, bottom = 0, corners = 0;
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                long bit = 1L << (y * cols + x);
+                if (x == 0) left |= bit;
+                if (x == cols - 1) right |= bit;
+                if (y == 0) top |= bit;
+                if (y == rows - 1) bottom |= bit;
+                if (x + 3 <= cols && y + 3 <= rows) corners |= bit;
+            }
+        }
+        leftEdge = left;
+        rightEdge = right;
+        topEdge = top;
+        bottomEdge = bottom;
+        squareCorners = corners;
+    }
+
+    /**
+     * Count the empty blocks whose four neighbours are all filled or off the board. No piece but the Dot fits them.
+     * @param occupancy occupancy of the board
+     * @return number of holes
+     */
+    public int holes(long occupancy) {
+        long leftFilled = ((occupancy << 1) & ~leftEdge) | leftEdge;
+        long rightFilled = ((occupancy >>> 1) & ~rightEdge) | rightEdge;
+        long upFilled = (occupancy << cols) | topEdge;
+        long downFilled = (occupancy >>> cols) | bottomEdge;
+        return Long.bitCount(~occupancy & full & leftFilled & rightFilled & upFilled & downFilled);
+    }
+
+    /**
+     * Count the rows and columns missing exactly one block
+     * @param occupancy occupancy of the board
+     * @return number of almost full lines
+     */
+    public int almostFullLines(long occupancy) {
+        long missing = ~occupancy & full;
+
+        //Slide every block of a row onto its first block, one lane per row, remembering lanes that saw two or more
+        long rowSeen = 0, rowTwice = 0;
+        for (int x = 0; x < cols; x++) {
+            long lane = (missing >>> x) & leftEdge;
+            rowTwice |= rowSeen & lane;
+            rowSeen |= lane;
+        }
+
+        //Likewise every block of a column onto the first row
+        long columnSeen = 0, columnTwice = 0;
+        for (int y = 0; y < rows; y++) {
+            long lane = (missing >>> (y * cols)) & topEdge;
+            columnTwice |= columnSeen & lane;
+            columnSeen |= lane;
+        }
+        return Long.bitCount(rowSeen & ~rowTwice) + Long.bitCount(columnSeen & ~columnTwice);
+    }
+
+    /**
+     * Count the empty 3x3 squares, each of which fits any piece
+     * @param occupancy occupancy of the board
+     * @return number of open squares
+     */
+    public int openSquares(long occupancy) {
+        long empty = ~occupancy & full;
+        //Blocks starting three empty blocks in a row, then three such blocks in a column
+        long across = empty & (empty >>> 1) & (empty >>> 2);
+        long square = across & (across >>> cols) & (across >>> (2 * cols));
+        return Long.bitCount(square & squareCorners);
+    }
+
+    /**
+     * Count the empty blocks
+     * @param occupancy occupancy of the board
+     * @return number of empty blocks
+     */
+    public int emptyBlocks(long occupancy) {
+        return Long.bitCount(~occupancy & full);
+    }
+
+    /**
+     * Get the line clear detector for boards of this size
+     * @return detector
+     */
+    public LineClearDetector getDetector() {
+        return detector;
+    }
+
+    /**
+     * Get the number of columns these features work on
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows these features work on
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,22 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameView;
+
+/**
+ * A computer player. Given a read-only view of a game, a bot picks the next move to play.
+ */
+public interface Bot {
+
+    /**
+     * Pick the next move
+     * @param view the game to play
+     * @return the move, or null to place nothing and let the game loop time run out
+     */
+    Move chooseMove(GameView view);
+
+    /**
+     * Get the name of this bot, used in reports
+     * @return name
+     */
+    String getName();
+}
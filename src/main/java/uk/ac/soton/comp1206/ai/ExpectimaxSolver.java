@@ -0,0 +1,370 @@
+package uk.ac.soton.comp1206.ai;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.DeadBoardTablebase;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameView;
+import uk.ac.soton.comp1206.game.LineClearDetector;
+import uk.ac.soton.comp1206.game.PlacementTable;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+import uk.ac.soton.comp1206.game.Zobrist;
+import uk.ac.soton.comp1206.simulation.SelfPlayHarness;
+
+/**
+ * Searches ahead for the move with the best expected outcome.
+ *
+ * The current and following pieces are known. Every placement of either (swapping for the following piece) is tried,
+ * and the piece dealt after it is a chance node averaging over all 15 pieces, as dealt by a uniform sequence. Positions
+ * at the search horizon are scored by a BoardEvaluator. Chance nodes are memoised in a transposition table keyed by a
+ * Zobrist hash of the board, piece, multiplier and remaining depth, and kept between searches.
+ *
+ * The search deepens one placement at a time until the maximum depth, the time budget runs out or it is cancelled,
+ * and returns the best move of the deepest search that finished. The first depth always finishes, so there is always
+ * a move. A solver is not thread safe, but cancel can be called from any thread.
+ */
+public class ExpectimaxSolver implements Bot {
+
+    private static final Logger logger = LogManager.getLogger(ExpectimaxSolver.class);
+
+    /**
+     * Deepest search allowed, in placements
+     */
+    public static final int MAX_DEPTH = 8;
+
+    /**
+     * Value taken off a position where nothing can be placed, which costs a life
+     */
+    public static final double LOSS_PENALTY = 1000;
+
+    /**
+     * Number of bits of the hash used to index the transposition table
+     */
+    private static final int TABLE_BITS = 18;
+
+    /**
+     * How often the clock is checked, in nodes
+     */
+    private static final long CHECK_INTERVAL = 1023;
+
+    /**
+     * Thrown to unwind a search that ran out of time or was cancelled
+     */
+    private static final class SearchAborted extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        SearchAborted() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final SearchAborted ABORTED = new SearchAborted();
+
+    private final BoardEvaluator evaluator;
+    private final int maxDepth;
+    private final long budgetNanos;
+
+    /**
+     * Placements at each remaining depth, reused between searches
+     */
+    private final MoveList[] moves = new MoveList[MAX_DEPTH + 1];
+
+    /**
+     * Transposition table of chance node values, indexed by the low bits of their hash
+     */
+    private final long[] tableKeys = new long[1 << TABLE_BITS];
+    private final double[] tableValues = new double[1 << TABLE_BITS];
+
+    /**
+     * Scores of the placements at the search horizon, which are scored as one batch
+     */
+    private final double[] horizonScores = new double[MoveList.CAPACITY];
+
+    private volatile boolean cancelled;
+    private boolean abortable;
+    private long deadline;
+    private long nodes;
+    private PlacementTable table;
+    private LineClearDetector detector;
+    private BoardFeatures features;
+    private DeadBoardTablebase tablebase;
+    private SearchResult last;
+
+    /**
+     * Create a solver searching two placements ahead with the default evaluator and no time limit
+     */
+    public ExpectimaxSolver() {
+        this(BoardEvaluator.DEFAULT, 2, 0);
+    }
+
+    /**
+     * Create a solver
+     * @param evaluator scores positions at the search horizon
+     * @param maxDepth most placements to search ahead, 1 to MAX_DEPTH
+     * @param budgetMillis time allowed for each search in milliseconds, 0 for no limit
+     */
+    public ExpectimaxSolver(BoardEvaluator evaluator, int maxDepth, long budgetMillis) {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be from 1 to " + MAX_DEPTH + ": " + maxDepth);
+        }
+        this.evaluator = evaluator;
+        this.maxDepth = maxDepth;
+        this.budgetNanos = budgetMillis * 1_000_000;
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            moves[depth] = new MoveList();
+        }
+    }
+
+    /**
+     * Find the best move
+     * @param view the game
+     * @return result of the deepest search that finished
+     */
+    public SearchResult search(GameView view) {
+        return search(view, null);
+    }
+
+    /**
+     * Find the best move, reporting the best move so far after every depth
+     * @param view the game
+     * @param listener notified after every depth, may be null
+     * @return result of the deepest search that finished
+     */
+    public SearchResult search(GameView view, SearchProgressListener listener) {
+        long start = System.nanoTime();
+        cancelled = false;
+        deadline = budgetNanos > 0 ? start + budgetNanos : Long.MAX_VALUE;
+        nodes = 0;
+        table = PlacementTable.forSize(view.getCols(), view.getRows());
+        detector = LineClearDetector.forSize(view.getCols(), view.getRows());
+        features = BoardFeatures.forSize(view.getCols(), view.getRows());
+        //Dead positions are spotted without generating their moves when a table is mapped
+        tablebase = null;
+        if (DeadBoardTablebase.covers(view.getCols(), view.getRows()) && DeadBoardTablebase.get().isLoaded()) {
+            tablebase = DeadBoardTablebase.get();
+        }
+
+        SearchResult best = null;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            //The first depth is always finished so there is a move to return
+            abortable = depth > 1;
+            try {
+                best = searchRoot(view, depth, start);
+            } catch (SearchAborted e) {
+                break;
+            }
+            if (listener != null) {
+                listener.progress(best);
+            }
+            if (best.getMove() == null || cancelled) break;
+        }
+        last = best;
+        return best;
+    }
+
+    /**
+     * Search every move of the game to a depth
+     * @param view the game
+     * @param depth placements to search ahead
+     * @param start time the search started
+     * @return best move at this depth
+     */
+    private SearchResult searchRoot(GameView view, int depth, long start) {
+        MoveList list = moves[depth];
+        nodes++;
+        if (list.generate(view) == 0) {
+            return new SearchResult(null, -LOSS_PENALTY, depth, nodes, System.nanoTime() - start);
+        }
+        long occupancy = view.getOccupancy();
+        int multiplier = view.getMultiplier();
+        GamePiece current = view.getCurrentPiece();
+        GamePiece following = view.getFollowingPiece();
+
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < list.size(); i++) {
+            GamePiece next = list.isSwap(i) ? current : following;
+            double value = placementValue(occupancy, list.getFootprint(i), multiplier, next, depth);
+            if (value > bestValue) {
+                bestValue = value;
+                best = i;
+            }
+        }
+        return new SearchResult(list.getMove(best), bestValue, depth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Get the value of a placement: the points it earns and the expected value of what follows
+     * @param occupancy board before the placement
+     * @param footprint blocks covered by the placement
+     * @param multiplier multiplier before the placement
+     * @param next the piece which becomes current after the placement
+     * @param depth placements left to search, including this one
+     * @return value
+     */
+    private double placementValue(long occupancy, long footprint, int multiplier, GamePiece next, int depth) {
+        if (depth == 1) {
+            return evaluator.evaluatePlacement(features, occupancy, footprint, multiplier);
+        }
+        //Only the points are scored now, the board left behind is valued by the search below it
+        long placed = occupancy | footprint;
+        long cleared = detector.detect(placed);
+        if (cleared == 0) {
+            return chanceValue(placed, next, 1, depth - 1);
+        }
+        int points = BoardEvaluator.points(detector, cleared, multiplier);
+        return evaluator.getWeight(BoardEvaluator.POINTS) * points
+                + chanceValue(placed & ~cleared, next, multiplier + 1, depth - 1);
+    }
+
+    /**
+     * Get the expected value of a position where the following piece is not dealt yet
+     * @param occupancy the board
+     * @param current the current piece
+     * @param multiplier the multiplier
+     * @param depth placements left to search
+     * @return expected value over every piece that could be dealt
+     */
+    private double chanceValue(long occupancy, GamePiece current, int multiplier, int depth) {
+        long key = hash(occupancy, current, multiplier, depth);
+        int slot = (int) key & (tableKeys.length - 1);
+        if (tableKeys[slot] == key) {
+            return tableValues[slot];
+        }
+
+        double total = 0;
+        for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+            total += maxValue(occupancy, current, GamePiece.createPiece(piece), multiplier, depth);
+        }
+        double value = total / GamePiece.PIECES;
+        tableKeys[slot] = key;
+        tableValues[slot] = value;
+        return value;
+    }
+
+    /**
+     * Get the value of the best placement in a position
+     * @param occupancy the board
+     * @param current the current piece
+     * @param following the following piece
+     * @param multiplier the multiplier
+     * @param depth placements left to search
+     * @return value
+     */
+    private double maxValue(long occupancy, GamePiece current, GamePiece following, int multiplier, int depth) {
+        countNode();
+        MoveList list = moves[depth];
+        if ((tablebase != null && tablebase.isDead(occupancy, current, following))
+                || list.generate(table, occupancy, current, following) == 0) {
+            return evaluator.evaluate(features, occupancy, 0, 1) - LOSS_PENALTY;
+        }
+        if (depth == 1) {
+            int best = evaluator.evaluatePlacements(features, occupancy, list.getFootprints(), list.size(), multiplier,
+                    horizonScores);
+            return horizonScores[best];
+        }
+        double best = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < list.size(); i++) {
+            GamePiece next = list.isSwap(i) ? current : following;
+            best = Math.max(best, placementValue(occupancy, list.getFootprint(i), multiplier, next, depth));
+        }
+        return best;
+    }
+
+    /**
+     * Count a node, stopping the search if it ran out of time or was cancelled
+     */
+    private void countNode() {
+        nodes++;
+        if ((nodes & CHECK_INTERVAL) == 0 && abortable && (cancelled || System.nanoTime() > deadline)) {
+            throw ABORTED;
+        }
+    }
+
+    /**
+     * Get the transposition table key of a chance node
+     * @param occupancy the board
+     * @param current the current piece
+     * @param multiplier the multiplier
+     * @param depth placements left to search
+     * @return key
+     */
+    private static long hash(long occupancy, GamePiece current, int multiplier, int depth) {
+        //The same position searched to a different depth has a different value, so the depth is part of the key
+        long hash = Zobrist.current(current) ^ Zobrist.multiplier(multiplier) ^ depth * 0x9e3779b97f4a7c15L;
+        for (long remaining = occupancy; remaining != 0; remaining &= remaining - 1) {
+            hash ^= Zobrist.cell(Long.numberOfTrailingZeros(remaining), 1);
+        }
+        return hash;
+    }
+
+    /**
+     * Stop the running search as soon as possible. It returns the best move of the deepest search that finished.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Get the result of the last search
+     * @return result, null before the first search
+     */
+    public SearchResult getLastResult() {
+        return last;
+    }
+
+    /**
+     * Pick the best move found by a search
+     * @param view the game to play
+     * @return move, or null if nothing can be placed
+     */
+    @Override
+    public Move chooseMove(GameView view) {
+        return search(view).getMove();
+    }
+
+    /**
+     * Get the name of this bot
+     * @return name
+     */
+    @Override
+    public String getName() {
+        return "expectimax";
+    }
+
+    /**
+     * Play headless games with the solver and report the scores and search speed
+     * @param args number of games, depth and time budget in milliseconds, all optional
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        ExpectimaxSolver solver = new ExpectimaxSolver(BoardEvaluator.DEFAULT, depth, budget);
+        long[] totals = new long[2];
+        Bot counting = new Bot() {
+            @Override
+            public Move chooseMove(GameView view) {
+                SearchResult result = solver.search(view);
+                totals[0] += result.getNodes();
+                totals[1] += result.getElapsedNanos();
+                return result.getMove();
+            }
+
+            @Override
+            public String getName() {
+                return solver.getName();
+            }
+        };
+
+        long[] seeds = SelfPlayHarness.seeds(games, 0);
+        for (int game = 0; game < games; game++) {
+            GameEngine engine = new GameEngine(5, 5, GameEngine.CHALLENGE_MODE, new UniformPieceSequence(seeds[game]));
+            int played = SelfPlayHarness.play(engine, counting, SelfPlayHarness.DEFAULT_MAX_MOVES, null);
+            logger.info("Game {}: score {} in {} moves", game, engine.getScore(), played);
+        }
+        logger.info("Searched {} nodes at {} nodes/s", totals[0], String.format("%.0f", totals[0] / (totals[1] / 1e9)));
+    }
+}
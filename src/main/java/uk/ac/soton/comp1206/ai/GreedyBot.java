@@ -0,0 +1,65 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameView;
+
+/**
+ * A bot which plays the placement leaving the best board according to a BoardEvaluator, looking one move ahead.
+ */
+public class GreedyBot implements Bot {
+
+    /**
+     * Scores the board after each placement
+     */
+    private final BoardEvaluator evaluator;
+
+    /**
+     * Reused for every decision
+     */
+    private final MoveList moves = new MoveList();
+
+    /**
+     * Score of each placement, reused for every decision
+     */
+    private final double[] scores = new double[MoveList.CAPACITY];
+
+    /**
+     * Create a bot using the default evaluator
+     */
+    public GreedyBot() {
+        this(BoardEvaluator.DEFAULT);
+    }
+
+    /**
+     * Create a bot using the given evaluator
+     * @param evaluator scores boards
+     */
+    public GreedyBot(BoardEvaluator evaluator) {
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Pick the placement with the best score
+     * @param view the game to play
+     * @return best move, or null if nothing can be placed
+     */
+    @Override
+    public Move chooseMove(GameView view) {
+        if (moves.generate(view) == 0) return null;
+
+        BoardFeatures features = BoardFeatures.forSize(view.getCols(), view.getRows());
+        long occupancy = view.getOccupancy();
+        int multiplier = view.getMultiplier();
+        int best = evaluator.evaluatePlacements(features, occupancy, moves.getFootprints(), moves.size(), multiplier,
+                scores);
+        return moves.getMove(best);
+    }
+
+    /**
+     * Get the name of this bot
+     * @return name
+     */
+    @Override
+    public String getName() {
+        return "greedy";
+    }
+}
@@ -0,0 +1,131 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameView;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+
+/**
+ * Works out hints for a player on a background thread.
+ *
+ * Each request copies the game on the calling thread, so the game can carry on changing while the copy is searched,
+ * and replaces any request before it. The search deepens until its time budget runs out and the best move so far is
+ * passed on after every depth, so a first hint arrives as soon as the shallowest search finishes and gets better
+ * while the player thinks. Results are delivered through the dispatcher, and only while their request is the latest
+ * one, so a hint is never shown for a position that has moved on.
+ */
+public class HintService {
+
+    private static final Logger logger = LogManager.getLogger(HintService.class);
+
+    /**
+     * Default time allowed for each hint in milliseconds
+     */
+    public static final long DEFAULT_BUDGET = 1000;
+
+    /**
+     * Default number of placements searched ahead
+     */
+    public static final int DEFAULT_DEPTH = 3;
+
+    private final ExpectimaxSolver solver;
+    private final Executor dispatcher;
+
+    /**
+     * The single thread running every search
+     */
+    private final ExecutorService worker;
+
+    /**
+     * Number of the latest request. Anything from an older request is stale.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Create a service with the default depth and budget
+     * @param dispatcher runs the delivery of each result, for example on the UI thread
+     */
+    public HintService(Executor dispatcher) {
+        this(dispatcher, new ExpectimaxSolver(BoardEvaluator.DEFAULT, DEFAULT_DEPTH, DEFAULT_BUDGET));
+    }
+
+    /**
+     * Create a service
+     * @param dispatcher runs the delivery of each result, for example on the UI thread
+     * @param solver the solver, only used by the service from now on
+     */
+    public HintService(Executor dispatcher, ExpectimaxSolver solver) {
+        this.dispatcher = dispatcher;
+        this.solver = solver;
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hint-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start working out a hint, replacing any earlier request. Does nothing once the service is shut down.
+     * @param view the game, copied before this returns
+     * @param listener notified through the dispatcher with the best move after every depth
+     */
+    public void request(GameView view, SearchProgressListener listener) {
+        if (worker.isShutdown()) return;
+        long ticket = generation.incrementAndGet();
+        solver.cancel();
+
+        String mode = view.isSpecialMode() ? GameEngine.SPECIAL_MODE : GameEngine.CHALLENGE_MODE;
+        GameEngine copy = new GameEngine(view.getCols(), view.getRows(), mode, new UniformPieceSequence(0));
+        copy.copyFrom(view);
+
+        worker.execute(() -> {
+            //Skip requests replaced while they were queued
+            if (generation.get() != ticket) return;
+            try {
+                solver.search(copy, result -> deliver(ticket, result, listener));
+            } catch (RuntimeException e) {
+                logger.error("Hint search failed", e);
+            }
+        });
+    }
+
+    /**
+     * Pass a result on through the dispatcher if its request is still the latest
+     * @param ticket number of the request
+     * @param result best move so far
+     * @param listener listener of the request
+     */
+    private void deliver(long ticket, SearchResult result, SearchProgressListener listener) {
+        //A cancel can land before the search starts and be cleared by it, so stale searches stop themselves here
+        if (generation.get() != ticket) {
+            solver.cancel();
+            return;
+        }
+        dispatcher.execute(() -> {
+            if (generation.get() == ticket) {
+                listener.progress(result);
+            }
+        });
+    }
+
+    /**
+     * Stop the current request. Nothing more is delivered for it.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        solver.cancel();
+    }
+
+    /**
+     * Stop the current request and the worker thread
+     */
+    public void shutdown() {
+        cancel();
+        worker.shutdownNow();
+    }
+}
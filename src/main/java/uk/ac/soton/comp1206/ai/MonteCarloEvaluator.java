@@ -0,0 +1,242 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.LongFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameView;
+import uk.ac.soton.comp1206.game.PieceSequence;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+import uk.ac.soton.comp1206.simulation.SelfPlayHarness;
+
+/**
+ * Estimates how good each legal move is by playing out its future many times.
+ *
+ * For every placement of the current piece (and of the following piece after a swap), a number of rollouts copy the
+ * game into a headless GameEngine, play the move, and let a policy bot carry on for a fixed number of moves with the
+ * same rules as the self-play harness. The rollouts are split into chunks played in parallel on a work-stealing pool.
+ * Each chunk has its own engine, policy and piece sequence split from the evaluator's seed, so threads share nothing
+ * and the same seed gives the same estimates.
+ *
+ * The evaluator is also a Bot, playing the move with the highest mean score.
+ */
+public class MonteCarloEvaluator implements Bot {
+
+    private static final Logger logger = LogManager.getLogger(MonteCarloEvaluator.class);
+
+    /**
+     * Default number of rollouts per move
+     */
+    public static final int DEFAULT_ROLLOUTS = 200;
+
+    /**
+     * Default number of moves played in each rollout after the move being estimated
+     */
+    public static final int DEFAULT_HORIZON = 10;
+
+    /**
+     * Number of rollouts played by one task
+     */
+    private static final int ROLLOUTS_PER_CHUNK = 32;
+
+    private final int rollouts;
+    private final int horizon;
+    private final LongFunction<Bot> policy;
+    private final ForkJoinPool pool;
+
+    /**
+     * Splits a new seed off for every chunk of rollouts
+     */
+    private final PieceSequence seeds;
+
+    /**
+     * Create an evaluator using greedy rollouts on the common pool
+     * @param seed seed of the rollouts
+     */
+    public MonteCarloEvaluator(long seed) {
+        this(DEFAULT_ROLLOUTS, DEFAULT_HORIZON, s -> new GreedyBot(), seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create an evaluator
+     * @param rollouts number of rollouts per move
+     * @param horizon number of moves played in each rollout after the move being estimated
+     * @param policy creates the bot playing each chunk of rollouts from its seed
+     * @param seed seed of the rollouts
+     * @param pool pool to play the rollouts on
+     */
+    public MonteCarloEvaluator(int rollouts, int horizon, LongFunction<Bot> policy, long seed, ForkJoinPool pool) {
+        this.rollouts = rollouts;
+        this.horizon = horizon;
+        this.policy = policy;
+        this.pool = pool;
+        this.seeds = new UniformPieceSequence(seed);
+    }
+
+    /**
+     * Estimate every legal move of a game. The game must not change until this returns.
+     * @param view the game
+     * @return an estimate per move, empty if nothing can be placed
+     */
+    public MoveEstimate[] evaluate(GameView view) {
+        MoveList list = new MoveList();
+        int candidates = list.generate(view);
+        if (candidates == 0) return new MoveEstimate[0];
+
+        String mode = view.isSpecialMode() ? GameEngine.SPECIAL_MODE : GameEngine.CHALLENGE_MODE;
+        GameEngine root = new GameEngine(view.getCols(), view.getRows(), mode, new UniformPieceSequence(0));
+        root.copyFrom(view);
+
+        Move[] moves = new Move[candidates];
+        for (int i = 0; i < candidates; i++) {
+            moves[i] = list.getMove(i);
+        }
+
+        //Seed every chunk up front, so the estimates do not depend on how the chunks are scheduled
+        int chunksPerMove = (rollouts + ROLLOUTS_PER_CHUNK - 1) / ROLLOUTS_PER_CHUNK;
+        Tally[] tallies = new Tally[candidates * chunksPerMove];
+        for (int chunk = 0; chunk < tallies.length; chunk++) {
+            int count = Math.min(ROLLOUTS_PER_CHUNK, rollouts - (chunk % chunksPerMove) * ROLLOUTS_PER_CHUNK);
+            tallies[chunk] = new Tally(moves[chunk / chunksPerMove], count, seeds.split().getSeed());
+        }
+        pool.invoke(new RolloutTask(root, mode, tallies, 0, tallies.length));
+
+        MoveEstimate[] estimates = new MoveEstimate[candidates];
+        for (int i = 0; i < candidates; i++) {
+            long count = 0, survived = 0;
+            double sum = 0, squares = 0;
+            for (int chunk = i * chunksPerMove; chunk < (i + 1) * chunksPerMove; chunk++) {
+                count += tallies[chunk].count;
+                survived += tallies[chunk].survived;
+                sum += tallies[chunk].sum;
+                squares += tallies[chunk].squares;
+            }
+            double mean = count == 0 ? 0 : sum / count;
+            double variance = count < 2 ? 0 : Math.max(0, (squares - sum * mean) / (count - 1));
+            double interval = count < 2 ? 0 : 1.96 * Math.sqrt(variance / count);
+            estimates[i] = new MoveEstimate(moves[i], (int) count, mean, interval, (int) survived);
+        }
+        return estimates;
+    }
+
+    /**
+     * The rollouts of one chunk and their totals
+     */
+    private static class Tally {
+        private final Move move;
+        private final int rollouts;
+        private final long seed;
+        private int count;
+        private int survived;
+        private double sum;
+        private double squares;
+
+        Tally(Move move, int rollouts, long seed) {
+            this.move = move;
+            this.rollouts = rollouts;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * Plays a range of chunks, splitting it in half until it is a single chunk
+     */
+    private class RolloutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GameEngine root;
+        private final String mode;
+        private final Tally[] tallies;
+        private final int from;
+        private final int to;
+
+        RolloutTask(GameEngine root, String mode, Tally[] tallies, int from, int to) {
+            this.root = root;
+            this.mode = mode;
+            this.tallies = tallies;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RolloutTask(root, mode, tallies, from, middle), new RolloutTask(root, mode, tallies, middle, to));
+                return;
+            }
+            Tally tally = tallies[from];
+            GameEngine engine = new GameEngine(root.getCols(), root.getRows(), mode, new UniformPieceSequence(tally.seed));
+            Bot bot = policy.apply(tally.seed);
+            for (int rollout = 0; rollout < tally.rollouts; rollout++) {
+                engine.copyFrom(root);
+                if (!tally.move.apply(engine).isPlaced()) continue;
+                SelfPlayHarness.play(engine, bot, horizon, null);
+
+                double gained = engine.getScore() - root.getScore();
+                tally.count++;
+                tally.sum += gained;
+                tally.squares += gained * gained;
+                if (!engine.isOver() && !engine.isLost()) {
+                    tally.survived++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Play the move with the highest mean score
+     * @param view the game to play
+     * @return move, or null if nothing can be placed
+     */
+    @Override
+    public Move chooseMove(GameView view) {
+        MoveEstimate best = null;
+        for (MoveEstimate estimate : evaluate(view)) {
+            if (best == null || estimate.getMeanScore() > best.getMeanScore()) {
+                best = estimate;
+            }
+        }
+        return best == null ? null : best.getMove();
+    }
+
+    /**
+     * Get the name of this bot
+     * @return name
+     */
+    @Override
+    public String getName() {
+        return "montecarlo";
+    }
+
+    /**
+     * Analyse a position reached by greedy play and log the estimate of every move
+     * @param args seed, moves to play before analysing, rollouts per move and horizon, all optional
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int before = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int rollouts = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int horizon = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_HORIZON;
+
+        GameEngine engine = new GameEngine(5, 5, GameEngine.CHALLENGE_MODE, new UniformPieceSequence(seed));
+        SelfPlayHarness.play(engine, new GreedyBot(), before, null);
+        logger.info("Analysing position after {} moves, score {}", before, engine.getScore());
+
+        MonteCarloEvaluator evaluator = new MonteCarloEvaluator(rollouts, horizon, s -> new GreedyBot(), seed,
+                ForkJoinPool.commonPool());
+        long start = System.nanoTime();
+        MoveEstimate[] estimates = evaluator.evaluate(engine);
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(estimates, (a, b) -> Double.compare(b.getMeanScore(), a.getMeanScore()));
+        for (MoveEstimate estimate : estimates) {
+            logger.info(estimate);
+        }
+        logger.info("{} moves x {} rollouts in {} ms on {} threads", estimates.length, rollouts, elapsed / 1_000_000,
+                ForkJoinPool.commonPool().getParallelism());
+    }
+}
@@ -0,0 +1,120 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameView;
+import uk.ac.soton.comp1206.game.MoveResult;
+import uk.ac.soton.comp1206.game.PlacementTable;
+
+/**
+ * A move chosen by a bot: optionally swap the current and following pieces, then place the current piece in the
+ * given rotation centred on the given block.
+ */
+public class Move {
+
+    /**
+     * Whether to swap the current and following pieces first
+     */
+    private final boolean swap;
+
+    /**
+     * Rotation of the piece, 0 to 3 clockwise turns from its spawn orientation
+     */
+    private final int rotation;
+
+    /**
+     * Column of the block the centre of the piece is placed on
+     */
+    private final int x;
+
+    /**
+     * Row of the block the centre of the piece is placed on
+     */
+    private final int y;
+
+    /**
+     * Create a new move
+     * @param swap whether to swap the current and following pieces first
+     * @param rotation rotation of the piece
+     * @param x column
+     * @param y row
+     */
+    public Move(boolean swap, int rotation, int x, int y) {
+        this.swap = swap;
+        this.rotation = rotation;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Play this move with the same rules as a player swapping and clicking on the board
+     * @param engine engine to play on
+     * @return the result of the placement
+     */
+    public MoveResult apply(GameEngine engine) {
+        if (swap) {
+            engine.swap();
+        }
+        return engine.place(rotation, x, y);
+    }
+
+    /**
+     * Whether to swap the current and following pieces first
+     * @return true to swap
+     */
+    public boolean isSwap() {
+        return swap;
+    }
+
+    /**
+     * Get the rotation of the piece
+     * @return rotation
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the column the piece is placed on
+     * @return column
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Get the row the piece is placed on
+     * @return row
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Get the piece this move places in a game, in its rotation
+     * @param view the game
+     * @return the rotated piece
+     */
+    public GamePiece getPiece(GameView view) {
+        GamePiece piece = swap ? view.getFollowingPiece() : view.getCurrentPiece();
+        return GamePiece.createPiece(piece.getNumber(), rotation);
+    }
+
+    /**
+     * Get the blocks this move covers in a game
+     * @param view the game
+     * @return bit y * cols + x set for every covered block
+     */
+    public long getFootprint(GameView view) {
+        PlacementTable table = PlacementTable.forSize(view.getCols(), view.getRows());
+        return table.getFootprint(getPiece(view).getIndex(), y * view.getCols() + x);
+    }
+
+    /**
+     * Return a string representation of this move
+     * @return string representation
+     */
+    @Override public String toString() {
+        return "Move [swap = " + swap + ", rotation = " + rotation + ", x = " + x + ", y = " + y + "]";
+    }
+}
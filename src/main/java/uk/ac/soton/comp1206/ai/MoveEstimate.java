@@ -0,0 +1,110 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The outcome of playing out the future of one move many times: the expected score gained and the chance of the game
+ * surviving, each with a 95% confidence interval.
+ */
+public class MoveEstimate {
+
+    private final Move move;
+    private final int rollouts;
+    private final double meanScore;
+    private final double scoreInterval;
+    private final int survived;
+
+    /**
+     * Create an estimate
+     * @param move the move
+     * @param rollouts number of futures played out
+     * @param meanScore mean score gained
+     * @param scoreInterval half the width of the 95% confidence interval of the mean score
+     * @param survived number of futures in which the game was still going at the end
+     */
+    public MoveEstimate(Move move, int rollouts, double meanScore, double scoreInterval, int survived) {
+        this.move = move;
+        this.rollouts = rollouts;
+        this.meanScore = meanScore;
+        this.scoreInterval = scoreInterval;
+        this.survived = survived;
+    }
+
+    /**
+     * Get the move
+     * @return move
+     */
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * Get the number of futures played out
+     * @return rollouts
+     */
+    public int getRollouts() {
+        return rollouts;
+    }
+
+    /**
+     * Get the mean score gained
+     * @return mean score
+     */
+    public double getMeanScore() {
+        return meanScore;
+    }
+
+    /**
+     * Get half the width of the 95% confidence interval of the mean score
+     * @return mean score plus or minus this value
+     */
+    public double getScoreInterval() {
+        return scoreInterval;
+    }
+
+    /**
+     * Get the fraction of futures in which the game was still going at the end
+     * @return survival probability from 0 to 1
+     */
+    public double getSurvival() {
+        return rollouts == 0 ? 0 : (double) survived / rollouts;
+    }
+
+    /**
+     * Get the lower end of the 95% Wilson interval of the survival probability
+     * @return lower bound
+     */
+    public double getSurvivalLow() {
+        return wilson(-1);
+    }
+
+    /**
+     * Get the upper end of the 95% Wilson interval of the survival probability
+     * @return upper bound
+     */
+    public double getSurvivalHigh() {
+        return wilson(1);
+    }
+
+    /**
+     * Work out one end of the Wilson score interval, which stays sensible for probabilities near 0 and 1
+     * @param sign -1 for the lower end, 1 for the upper end
+     * @return bound
+     */
+    private double wilson(int sign) {
+        if (rollouts == 0) return sign < 0 ? 0 : 1;
+        double z = 1.96;
+        double p = getSurvival();
+        double n = rollouts;
+        double centre = p + z * z / (2 * n);
+        double spread = z * Math.sqrt(p * (1 - p) / n + z * z / (4 * n * n));
+        return (centre + sign * spread) / (1 + z * z / n);
+    }
+
+    /**
+     * Return a string representation of this estimate
+     * @return string representation
+     */
+    @Override public String toString() {
+        return String.format("%s: score %.1f +-%.1f, survival %.3f [%.3f, %.3f] over %d rollouts",
+                move, meanScore, scoreInterval, getSurvival(), getSurvivalLow(), getSurvivalHigh(), rollouts);
+    }
+}
@@ -0,0 +1,170 @@
+package uk.ac.soton.comp1206.ai;
+
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.GameView;
+import uk.ac.soton.comp1206.game.PlacementTable;
+
+/**
+ * Every distinct legal placement of the current piece, and of the following piece after a swap, in a reusable list.
+ *
+ * Each placement is kept as its rotation table entry, anchor block and footprint (the mask of blocks it covers), so
+ * bots can work out the resulting board with a few bit operations. Rotations with the same shape are only listed once,
+ * and the following piece is skipped when it is the same piece as the current one. Generating the list does not
+ * allocate.
+ */
+public class MoveList {
+
+    /**
+     * Most placements there can be: two pieces, four rotations, 64 anchors
+     */
+    public static final int CAPACITY = 2 * GamePiece.ROTATIONS * Long.SIZE;
+
+    private final int[] entries = new int[CAPACITY];
+    private final int[] anchors = new int[CAPACITY];
+    private final long[] footprints = new long[CAPACITY];
+    private final boolean[] swaps = new boolean[CAPACITY];
+    private int size;
+    private int cols;
+
+    /**
+     * Fill the list with the legal placements in a game, replacing its contents
+     * @param view the game
+     * @return number of placements
+     */
+    public int generate(GameView view) {
+        PlacementTable table = PlacementTable.forSize(view.getCols(), view.getRows());
+        return generate(table, view, 0, view.getCurrentPiece(), view.getFollowingPiece());
+    }
+
+    /**
+     * Fill the list with the legal placements on a board that only exists as an occupancy, for example inside a search
+     * @param table placement geometry of the board
+     * @param occupancy occupancy of the board
+     * @param current the current piece
+     * @param following the following piece
+     * @return number of placements
+     */
+    public int generate(PlacementTable table, long occupancy, GamePiece current, GamePiece following) {
+        return generate(table, null, occupancy, current, following);
+    }
+
+    /**
+     * Fill the list, taking legal anchors from the view if there is one, otherwise from the occupancy
+     * @param table placement geometry
+     * @param view the game, or null
+     * @param occupancy occupancy of the board when there is no view
+     * @param current the current piece
+     * @param following the following piece
+     * @return number of placements
+     */
+    private int generate(PlacementTable table, GameView view, long occupancy, GamePiece current, GamePiece following) {
+        size = 0;
+        cols = table.getCols();
+        add(table, view, occupancy, current, false);
+        if (following.getNumber() != current.getNumber()) {
+            add(table, view, occupancy, following, true);
+        }
+        return size;
+    }
+
+    /**
+     * Add every legal placement of each distinct rotation of a piece
+     * @param table placement geometry
+     * @param view the game, or null
+     * @param occupancy occupancy of the board when there is no view
+     * @param piece the piece
+     * @param swap whether the piece is only current after a swap
+     */
+    private void add(PlacementTable table, GameView view, long occupancy, GamePiece piece, boolean swap) {
+        int first = piece.getNumber() * GamePiece.ROTATIONS;
+        for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+            GamePiece rotated = GamePiece.fromIndex(first + rotation);
+            if (isRepeat(first, rotation, rotated.getMask())) continue;
+
+            long legal = view != null ? view.getLegalAnchors(rotated) : table.legalAnchors(rotated.getIndex(), occupancy);
+            for (; legal != 0; legal &= legal - 1) {
+                int anchor = Long.numberOfTrailingZeros(legal);
+                entries[size] = rotated.getIndex();
+                anchors[size] = anchor;
+                footprints[size] = table.getFootprint(rotated.getIndex(), anchor);
+                swaps[size] = swap;
+                size++;
+            }
+        }
+    }
+
+    /**
+     * Check whether an earlier rotation of a piece has the same shape
+     * @param first rotation table index of rotation 0
+     * @param rotation rotation to check
+     * @param mask shape of the rotation
+     * @return true if the shape was already listed
+     */
+    private static boolean isRepeat(int first, int rotation, int mask) {
+        for (int earlier = 0; earlier < rotation; earlier++) {
+            if (GamePiece.fromIndex(first + earlier).getMask() == mask) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get the number of placements
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the rotation table entry of a placement
+     * @param i placement
+     * @return rotation table index
+     */
+    public int getEntry(int i) {
+        return entries[i];
+    }
+
+    /**
+     * Get the anchor of a placement
+     * @param i placement
+     * @return block index, y * cols + x
+     */
+    public int getAnchor(int i) {
+        return anchors[i];
+    }
+
+    /**
+     * Get the blocks a placement covers
+     * @param i placement
+     * @return footprint mask
+     */
+    public long getFootprint(int i) {
+        return footprints[i];
+    }
+
+    /**
+     * Get all footprints, valid up to size(). Used by batch evaluators.
+     * @return footprint array
+     */
+    public long[] getFootprints() {
+        return footprints;
+    }
+
+    /**
+     * Whether a placement needs a swap first
+     * @param i placement
+     * @return true if the following piece is placed
+     */
+    public boolean isSwap(int i) {
+        return swaps[i];
+    }
+
+    /**
+     * Create the move playing a placement
+     * @param i placement
+     * @return move
+     */
+    public Move getMove(int i) {
+        return new Move(swaps[i], entries[i] % GamePiece.ROTATIONS, anchors[i] % cols, anchors[i] / cols);
+    }
+}
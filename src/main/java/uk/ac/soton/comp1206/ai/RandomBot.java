@@ -0,0 +1,49 @@
+package uk.ac.soton.comp1206.ai;
+
+import java.util.SplittableRandom;
+import uk.ac.soton.comp1206.game.GameView;
+
+/**
+ * A bot which plays a random legal placement. Used as a baseline for other bots and for exercising the rules.
+ */
+public class RandomBot implements Bot {
+
+    /**
+     * Picks the placements
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Reused for every decision
+     */
+    private final MoveList moves = new MoveList();
+
+    /**
+     * Create a bot with the given seed
+     * @param seed seed of the random choices
+     */
+    public RandomBot(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Pick a random legal placement
+     * @param view the game to play
+     * @return move, or null if nothing can be placed
+     */
+    @Override
+    public Move chooseMove(GameView view) {
+        int size = moves.generate(view);
+        if (size == 0) return null;
+        return moves.getMove(random.nextInt(size));
+    }
+
+    /**
+     * Get the name of this bot
+     * @return name
+     */
+    @Override
+    public String getName() {
+        return "random";
+    }
+}
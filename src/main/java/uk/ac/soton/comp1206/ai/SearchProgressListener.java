@@ -0,0 +1,15 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The Search Progress listener is notified each time a search finishes another depth, so the best move so far can be
+ * shown or used before the search ends.
+ */
+public interface SearchProgressListener {
+
+    /**
+     * Handle a search finishing a depth
+     * @param result best move found at that depth
+     */
+    void progress(SearchResult result);
+
+}
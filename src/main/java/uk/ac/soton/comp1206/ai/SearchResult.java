@@ -0,0 +1,86 @@
+package uk.ac.soton.comp1206.ai;
+
+/**
+ * The best move found by a search so far, with how deep and how fast the search went.
+ */
+public class SearchResult {
+
+    private final Move move;
+    private final double value;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    /**
+     * Create a result
+     * @param move best move, or null if nothing can be placed
+     * @param value expected value of the best move
+     * @param depth number of placements searched ahead
+     * @param nodes number of positions searched
+     * @param elapsedNanos time taken so far
+     */
+    public SearchResult(Move move, double value, int depth, long nodes, long elapsedNanos) {
+        this.move = move;
+        this.value = value;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Get the best move
+     * @return move, or null if nothing can be placed
+     */
+    public Move getMove() {
+        return move;
+    }
+
+    /**
+     * Get the expected value of the best move
+     * @return value
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Get the number of placements searched ahead
+     * @return depth
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the number of positions searched
+     * @return nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the time the search took
+     * @return time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the number of positions searched per second
+     * @return nodes per second
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Return a string representation of this result
+     * @return string representation
+     */
+    @Override public String toString() {
+        return String.format("SearchResult [depth = %d, value = %.1f, nodes = %d, %.0f nodes/s, move = %s]",
+                depth, value, nodes, getNodesPerSecond(), move);
+    }
+}
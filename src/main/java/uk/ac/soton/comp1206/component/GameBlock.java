@@ -37,6 +37,7 @@ public class GameBlock extends Canvas {
     GraphicsContext g1 = getGraphicsContext2D();
     AnimationTimer animationTimer;
     double opacity=1;
+    boolean fading;
 
     /**
      * The set of colours for different pieces
@@ -84,6 +85,11 @@ public class GameBlock extends Canvas {
      */
     private final IntegerProperty value = new SimpleIntegerProperty(0);
 
+    /**
+     * The colour of the piece suggested for this block by a hint (0 = no hint)
+     */
+    private int hint = 0;
+
     /**
      * Create a new single Game Block
      * @param gameBoard the board this block belongs to
@@ -129,6 +135,10 @@ public class GameBlock extends Canvas {
         //If the block is empty, paint as empty
         if(value.get() == 0) {
             paintEmpty();
+            //Show the suggested piece through an empty block
+            if(hint != 0) {
+                paintHint(COLOURS[hint]);
+            }
         } else {
             //If the block is not empty, paint with the colour represented by the value
             paintColor(COLOURS[value.get()]);
@@ -156,6 +166,24 @@ public class GameBlock extends Canvas {
 
     }
 
+    /**
+     * Paint a faded piece colour over an empty block to suggest a placement
+     * @param color colour of the suggested piece
+     */
+    private void paintHint(Color color) {
+        var gc = getGraphicsContext2D();
+
+        //Faded fill
+        gc.setFill(Color.color(color.getRed(), color.getGreen(), color.getBlue(), 0.45));
+        gc.fillRect(0,0, width, height);
+
+        //Dashed border in the piece colour
+        gc.setStroke(color.brighter());
+        gc.setLineDashes(0.1*width);
+        gc.strokeRect(2,2,width-4,height-4);
+        gc.setLineDashes(null);
+    }
+
     /**
      * Paint this canvas with the given colour
      * @param color to add
@@ -225,6 +253,10 @@ public class GameBlock extends Canvas {
      * Initialize animation timer
      */
     protected void fadeOut(){
+        //Start a fade already running again rather than running a second timer over it
+        opacity=1;
+        if(fading) return;
+        fading=true;
         animationTimer = new AnimationTimer() {
             @Override
             public void handle(long l) {
@@ -248,6 +280,7 @@ public class GameBlock extends Canvas {
 
         if(opacity<0){
             animationTimer.stop();
+            fading=false;
             opacity=1;
             paint();
         }
@@ -278,6 +311,16 @@ public class GameBlock extends Canvas {
     }
 
 
+    /**
+     * Show or hide a hint on this block
+     * @param hint the colour value of the suggested piece, or 0 for no hint
+     */
+    public void setHint(int hint) {
+        if(this.hint == hint) return;
+        this.hint = hint;
+        paint();
+    }
+
     /**
      * Get the row of this block
      * @return row number
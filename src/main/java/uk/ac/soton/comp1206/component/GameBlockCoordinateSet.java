@@ -0,0 +1,88 @@
+package uk.ac.soton.comp1206.component;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only set of GameBlockCoordinates backed by a bitmask of a compact grid, bit y * cols + x for every block.
+ *
+ * Size and membership are answered from the mask directly. GameBlockCoordinates are only created while iterating.
+ */
+public class GameBlockCoordinateSet extends AbstractSet<GameBlockCoordinate> {
+
+    /**
+     * The blocks in this set
+     */
+    private final long mask;
+
+    /**
+     * Number of columns of the grid the mask belongs to
+     */
+    private final int cols;
+
+    /**
+     * Create a new set of the blocks in the given mask
+     * @param mask bit y * cols + x set for every block in the set
+     * @param cols number of columns of the grid
+     */
+    public GameBlockCoordinateSet(long mask, int cols) {
+        this.mask = mask;
+        this.cols = cols;
+    }
+
+    /**
+     * Get the bitmask backing this set
+     * @return mask of blocks
+     */
+    public long getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the number of blocks in this set
+     * @return number of blocks
+     */
+    @Override
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    /**
+     * Check whether a block is in this set
+     * @param o block to check
+     * @return true if the block is a GameBlockCoordinate in this set
+     */
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof GameBlockCoordinate)) return false;
+        GameBlockCoordinate block = (GameBlockCoordinate) o;
+        if (block.getX() < 0 || block.getX() >= cols || block.getY() < 0) return false;
+        int index = block.getY() * cols + block.getX();
+        return index < Long.SIZE && (mask & (1L << index)) != 0;
+    }
+
+    /**
+     * Iterate the blocks in this set in row order, creating each coordinate as it is reached
+     * @return iterator
+     */
+    @Override
+    public Iterator<GameBlockCoordinate> iterator() {
+        return new Iterator<>() {
+            private long remaining = mask;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public GameBlockCoordinate next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                int index = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return new GameBlockCoordinate(index % cols, index / cols);
+            }
+        };
+    }
+}
@@ -48,6 +48,11 @@ public class GameBoard extends GridPane {
      */
     final Grid grid;
 
+    /**
+     * Exposes the blocks of the grid as properties for the GameBlocks to bind to
+     */
+    GridBinding binding;
+
     /**
      * The blocks inside the grid
      */
@@ -118,6 +123,7 @@ public class GameBoard extends GridPane {
         setGridLinesVisible(true);
 
         blocks = new GameBlock[cols][rows];
+        binding = new GridBinding(grid);
 
         for(var y = 0; y < rows; y++) {
             for (var x = 0; x < cols; x++) {
@@ -146,7 +152,7 @@ public class GameBoard extends GridPane {
         blocks[x][y] = block;
 
         //Link the GameBlock component to the corresponding value in the Grid
-        block.bind(grid.getGridProperty(x,y));
+        block.bind(binding.getGridProperty(x,y));
 
         //Add a mouse click handler to the block to trigger GameBoard blockClicked method
         block.setOnMouseClicked((e) -> {
@@ -187,6 +193,27 @@ public class GameBoard extends GridPane {
         }
     }
 
+    /**
+     * Highlight a suggested placement, replacing any earlier one
+     * @param footprint bit y * cols + x set for every block the suggested piece covers
+     * @param value colour value of the suggested piece
+     */
+    public void showHint(long footprint, int value){
+        for(int y = 0; y < rows; y++){
+            for(int x = 0; x < cols; x++){
+                boolean covered = (footprint >>> (y * cols + x) & 1) != 0;
+                blocks[x][y].setHint(covered ? value : 0);
+            }
+        }
+    }
+
+    /**
+     * Remove the highlighted placement
+     */
+    public void clearHint(){
+        showHint(0, 0);
+    }
+
     /**
      * Triggered when a block is clicked. Call the attached listener
      * @param event mouse event
@@ -0,0 +1,72 @@
+package uk.ac.soton.comp1206.component;
+
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.SimpleIntegerProperty;
+import uk.ac.soton.comp1206.event.CellChangedListener;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Exposes each block of a Grid as an IntegerProperty so GameBlocks can be bound to it.
+ *
+ * The Grid itself only stores primitive values. A GridBinding is only created when the grid is displayed on a
+ * GameBoard, and mirrors every change to the grid into the matching property.
+ */
+public class GridBinding implements CellChangedListener {
+
+    /**
+     * The grid being mirrored
+     */
+    private final Grid grid;
+
+    /**
+     * One property per block, indexed by column then row
+     */
+    private final SimpleIntegerProperty[][] properties;
+
+    /**
+     * Create a new binding for the given grid and start listening to its changes
+     * @param grid grid to mirror
+     */
+    public GridBinding(Grid grid) {
+        this.grid = grid;
+
+        //Add a SimpleIntegerProperty holding the current value of every block in the grid
+        properties = new SimpleIntegerProperty[grid.getCols()][grid.getRows()];
+        for(var y = 0; y < grid.getRows(); y++) {
+            for(var x = 0; x < grid.getCols(); x++) {
+                properties[x][y] = new SimpleIntegerProperty(grid.get(x,y));
+            }
+        }
+
+        grid.setOnCellChanged(this);
+    }
+
+    /**
+     * Get the Integer property mirroring the block at a given row and column index. Can be used for binding.
+     * @param x column
+     * @param y row
+     * @return the IntegerProperty at the given x and y in the grid
+     */
+    public IntegerProperty getGridProperty(int x, int y) {
+        return properties[x][y];
+    }
+
+    /**
+     * Get the grid being mirrored
+     * @return grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Copy a changed block of the grid into its property
+     * @param x column of the block
+     * @param y row of the block
+     * @param value the new value of the block
+     */
+    @Override
+    public void cellChanged(int x, int y, int value) {
+        properties[x][y].set(value);
+    }
+}
@@ -36,14 +36,14 @@ public class PieceBoard extends GameBoard {
     public void displayCurrentPiece(GamePiece gamePiece) {
         for (int x = 0; x < gamePiece.getBlocks().length; x++) {
             for (int y = 0; y < gamePiece.getBlocks()[x].length; y++) {
-                grid.getGridProperty(x, y).setValue(0);
+                grid.set(x, y, 0);
             }
         }
         //For each coordinate, if value of block is not 0, set the boards value to the value of the game block
         for (int x = 0; x < gamePiece.getBlocks().length; x++) {
             for (int y = 0; y < gamePiece.getBlocks()[x].length; y++) {
                 if (gamePiece.getBlocks()[x][y] != 0) {
-                    grid.getGridProperty(x, y).setValue(gamePiece.getValue());
+                    grid.set(x, y, gamePiece.getValue());
                 }
                 //Add a circle to the centre of the piece board
                 if(x==1 && y==1 ){
@@ -61,14 +61,14 @@ public class PieceBoard extends GameBoard {
     public void displayNextPiece(GamePiece gamePiece) {
         for (int x = 0; x < gamePiece.getBlocks().length; x++) {
             for (int y = 0; y < gamePiece.getBlocks()[x].length; y++) {
-                grid.getGridProperty(x, y).setValue(0);
+                grid.set(x, y, 0);
             }
         }
         //For each coordinate, if value of block is not 0, set the boards value to the value of the game block
         for (int x = 0; x < gamePiece.getBlocks().length; x++) {
             for (int y = 0; y < gamePiece.getBlocks()[x].length; y++) {
                 if (gamePiece.getBlocks()[x][y] != 0) {
-                    grid.getGridProperty(x, y).setValue(gamePiece.getValue());
+                    grid.set(x, y, gamePiece.getValue());
                 }
             }
 
@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Cell Changed listener is used to observe changes to individual blocks of a Grid, for example to mirror them onto
+ * the visual GameBoard.
+ */
+public interface CellChangedListener {
+
+    /**
+     * Handle a block in the grid changing value
+     * @param x column of the block
+     * @param y row of the block
+     * @param value the new value of the block
+     */
+    void cellChanged(int x, int y, int value);
+
+}
@@ -0,0 +1,18 @@
+package uk.ac.soton.comp1206.event;
+
+import uk.ac.soton.comp1206.game.GameEvent;
+
+/**
+ * The Game Event listener is used to observe every event which changes how a game carries on, for example to record
+ * a replay of it.
+ */
+public interface GameEventListener {
+
+    /**
+     * Handle an event, called before the game acts on it
+     * @param event the event
+     * @param x column clicked for PLACE, clockwise turns for ROTATE, final score for END, otherwise 0
+     * @param y row clicked for PLACE, otherwise 0
+     */
+    void gameEvent(GameEvent event, int x, int y);
+}
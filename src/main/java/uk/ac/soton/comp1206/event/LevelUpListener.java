@@ -0,0 +1,15 @@
+package uk.ac.soton.comp1206.event;
+
+/**
+ * The Level Up listener is used to handle the event when the player reaches a new level. It is called once for every
+ * level reached, even when one placement passes several levels.
+ */
+public interface LevelUpListener {
+
+    /**
+     * Handle the player reaching a new level
+     * @param level the level reached
+     */
+    void levelUp(int level);
+
+}
@@ -0,0 +1,90 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Deals the pieces from a shuffled bag holding one of each of the 15 pieces. When the bag is empty it is refilled, so
+ * every piece is dealt exactly once in every 15 pieces.
+ */
+public class BagPieceSequence extends PieceSequence {
+
+    /**
+     * A full bag, one bit per piece
+     */
+    private static final int FULL = (1 << GamePiece.PIECES) - 1;
+
+    /**
+     * Pieces still in the bag, one bit per piece
+     */
+    private int bag = FULL;
+
+    /**
+     * Create a sequence starting from the given seed
+     * @param seed seed of the generator
+     */
+    public BagPieceSequence(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Create a copy of a sequence
+     * @param other sequence to copy
+     */
+    private BagPieceSequence(BagPieceSequence other) {
+        super(other);
+        this.bag = other.bag;
+    }
+
+    /**
+     * Take a random piece out of the bag
+     * @return piece number
+     */
+    @Override
+    public int next() {
+        if (bag == 0) {
+            bag = FULL;
+        }
+        //Skip over a random number of the pieces left
+        int remaining = bag;
+        for (int skip = nextInt(Integer.bitCount(bag)); skip > 0; skip--) {
+            remaining &= remaining - 1;
+        }
+        int piece = Integer.numberOfTrailingZeros(remaining);
+        bag &= ~(1 << piece);
+        return piece;
+    }
+
+    /**
+     * Create an exact copy of this sequence
+     * @return copy
+     */
+    @Override
+    public PieceSequence fork() {
+        return new BagPieceSequence(this);
+    }
+
+    /**
+     * Create a new independent sequence, starting with a full bag
+     * @return new sequence
+     */
+    @Override
+    public PieceSequence split() {
+        return new BagPieceSequence(splitSeed());
+    }
+
+    /**
+     * Get the state of this sequence beyond the generator
+     * @return state
+     */
+    @Override
+    protected long getStrategyState() {
+        return bag;
+    }
+
+    /**
+     * Restore the state of this sequence beyond the generator
+     * @param strategyState state
+     */
+    @Override
+    protected void setStrategyState(long strategyState) {
+        bag = (int) strategyState & FULL;
+    }
+}
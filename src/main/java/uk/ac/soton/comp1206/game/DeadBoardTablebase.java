@@ -0,0 +1,282 @@
+package uk.ac.soton.comp1206.game;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Answers questions about 5x5 boards from the table written by the StateSpaceAnalyser: which pieces can still be
+ * placed, whether a board is dead for a pair of pieces, and how many lines the best placement clears.
+ *
+ * The table file is memory-mapped read-only the first time the shared tablebase is used, so nothing is read until a
+ * lookup touches its page and startup is not slowed down. The file is taken from the "tetrecs.tablebase" system
+ * property, or "tablebase.bin" in the working directory. If there is no usable file every answer is worked out live
+ * from the PlacementTable instead, which gives the same results apart from reachability.
+ *
+ * A tablebase only ever reads the table, so it can be shared between threads.
+ */
+public class DeadBoardTablebase {
+
+    private static final Logger logger = LogManager.getLogger(DeadBoardTablebase.class);
+
+    /**
+     * System property naming the table file
+     */
+    public static final String PROPERTY = "tetrecs.tablebase";
+
+    /**
+     * Table file used when the property is not set
+     */
+    public static final String DEFAULT_FILE = "tablebase.bin";
+
+    private static final PlacementTable TABLE = PlacementTable.forSize(StateRecord.COLS, StateRecord.ROWS);
+    private static final LineClearDetector DETECTOR = LineClearDetector.forSize(StateRecord.COLS, StateRecord.ROWS);
+
+    /**
+     * Rotation table entries of the distinct shapes of each piece
+     */
+    private static final int[][] SHAPES = new int[GamePiece.PIECES][];
+
+    /**
+     * Blocks of every row and column
+     */
+    private static final long[] LINES = new long[StateRecord.COLS + StateRecord.ROWS];
+
+    static {
+        for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+            Set<Integer> masks = new HashSet<>();
+            List<Integer> shapes = new ArrayList<>();
+            for (int rotation = 0; rotation < GamePiece.ROTATIONS; rotation++) {
+                GamePiece shape = GamePiece.createPiece(piece, rotation);
+                if (masks.add(shape.getMask())) shapes.add(shape.getIndex());
+            }
+            SHAPES[piece] = shapes.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int cols = StateRecord.COLS;
+        for (int y = 0; y < StateRecord.ROWS; y++) {
+            LINES[y] = ((1L << cols) - 1) << (y * cols);
+        }
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < StateRecord.ROWS; y++) {
+                LINES[StateRecord.ROWS + x] |= 1L << (y * cols + x);
+            }
+        }
+    }
+
+    /**
+     * Opens the shared tablebase the first time it is asked for
+     */
+    private static class Holder {
+        private static final DeadBoardTablebase INSTANCE = open(Paths.get(System.getProperty(PROPERTY, DEFAULT_FILE)));
+    }
+
+    /**
+     * The records, or null when answers are worked out live
+     */
+    private final IntBuffer records;
+
+    /**
+     * Create a tablebase
+     * @param records the records, or null to work out every answer live
+     */
+    private DeadBoardTablebase(IntBuffer records) {
+        this.records = records;
+    }
+
+    /**
+     * Get the shared tablebase, mapping the table file on first use
+     * @return tablebase
+     */
+    public static DeadBoardTablebase get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Map a table file, falling back to live answers if it is missing or not a table
+     * @param path the file
+     * @return tablebase
+     */
+    public static DeadBoardTablebase open(Path path) {
+        if (!Files.isRegularFile(path)) {
+            logger.info("No tablebase at {}, working out dead boards live", path.toAbsolutePath());
+            return new DeadBoardTablebase(null);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != StateRecord.FILE_BYTES) {
+                throw new IOException("Expected " + StateRecord.FILE_BYTES + " bytes, found " + channel.size());
+            }
+            //The mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, StateRecord.FILE_BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (mapped.getInt(StateRecord.MAGIC_OFFSET) != StateRecord.MAGIC
+                    || mapped.getInt(StateRecord.VERSION_OFFSET) != StateRecord.VERSION
+                    || mapped.getInt(StateRecord.COLS_OFFSET) != StateRecord.COLS
+                    || mapped.getInt(StateRecord.ROWS_OFFSET) != StateRecord.ROWS) {
+                throw new IOException("Not a version " + StateRecord.VERSION + " table of a " + StateRecord.COLS + "x"
+                        + StateRecord.ROWS + " board");
+            }
+            IntBuffer records = mapped.position(StateRecord.HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+            logger.info("Mapped tablebase {} with {} reachable boards", path.toAbsolutePath(),
+                    mapped.getLong(StateRecord.REACHABLE_OFFSET));
+            return new DeadBoardTablebase(records);
+        } catch (IOException e) {
+            logger.error("Unable to map tablebase {}, working out dead boards live: {}", path.toAbsolutePath(), e.getMessage());
+            return new DeadBoardTablebase(null);
+        }
+    }
+
+    /**
+     * Check whether answers come from a table file
+     * @return true if a table is mapped, false if answers are worked out live
+     */
+    public boolean isLoaded() {
+        return records != null;
+    }
+
+    /**
+     * Check whether a board of the given size is described by the tablebase
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return true for a 5x5 board
+     */
+    public static boolean covers(int cols, int rows) {
+        return cols == StateRecord.COLS && rows == StateRecord.ROWS;
+    }
+
+    /**
+     * Get the record of a board
+     * @param occupancy the 5x5 board
+     * @return record, never marked reachable when worked out live
+     */
+    public int getRecord(long occupancy) {
+        return records != null ? records.get((int) occupancy) : compute(occupancy, false);
+    }
+
+    /**
+     * Check whether a piece can be placed anywhere on a board in any rotation
+     * @param occupancy the 5x5 board
+     * @param piece the piece
+     * @return true if it has a legal placement
+     */
+    public boolean canPlay(long occupancy, GamePiece piece) {
+        if (records != null) {
+            return StateRecord.canPlay(records.get((int) occupancy), piece.getNumber());
+        }
+        for (int entry : SHAPES[piece.getNumber()]) {
+            if (TABLE.legalAnchors(entry, occupancy) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Check whether neither of two pieces can be placed on a board
+     * @param occupancy the 5x5 board
+     * @param current the current piece
+     * @param following the following piece
+     * @return true if the board is dead for this pair
+     */
+    public boolean isDead(long occupancy, GamePiece current, GamePiece following) {
+        if (records != null) {
+            int record = records.get((int) occupancy);
+            return !StateRecord.canPlay(record, current.getNumber()) && !StateRecord.canPlay(record, following.getNumber());
+        }
+        return !canPlay(occupancy, current) && !canPlay(occupancy, following);
+    }
+
+    /**
+     * Find the placement of a piece clearing the most lines. The search stops as soon as a placement clears as many
+     * lines as the best placement of any piece, which the table already knows.
+     * @param occupancy the 5x5 board
+     * @param piece the piece, in any rotation
+     * @return placement as rotation table entry * 64 + anchor, or -1 if the piece cannot be placed
+     */
+    public int bestPlacement(long occupancy, GamePiece piece) {
+        int target = records != null ? StateRecord.getMaxLines(records.get((int) occupancy)) : StateRecord.MAX_LINES;
+        int best = -1;
+        int bestLines = -1;
+        for (int entry : SHAPES[piece.getNumber()]) {
+            for (long legal = TABLE.legalAnchors(entry, occupancy); legal != 0; legal &= legal - 1) {
+                int anchor = Long.numberOfTrailingZeros(legal);
+                int lines = DETECTOR.countLines(DETECTOR.detect(occupancy | TABLE.getFootprint(entry, anchor)));
+                if (lines > bestLines) {
+                    best = entry * Long.SIZE + anchor;
+                    bestLines = lines;
+                    if (lines >= target) return best;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the piece and rotation of a placement returned by bestPlacement
+     * @param placement the placement
+     * @return rotation table entry
+     */
+    public static int getEntry(int placement) {
+        return placement / Long.SIZE;
+    }
+
+    /**
+     * Get the block the centre of the piece is placed on by a placement returned by bestPlacement
+     * @param placement the placement
+     * @return anchor, y * 5 + x
+     */
+    public static int getAnchor(int placement) {
+        return placement % Long.SIZE;
+    }
+
+    /**
+     * Work out the record of a board from scratch
+     * @param occupancy the 5x5 board
+     * @param reachable whether the board is reachable, which cannot be worked out from the board alone
+     * @return record
+     */
+    public static int compute(long occupancy, boolean reachable) {
+        int playable = 0;
+        int moves = 0;
+        int maxLines = 0;
+        boolean alreadyFull = DETECTOR.detect(occupancy) != 0;
+
+        for (int piece = 0; piece < GamePiece.PIECES; piece++) {
+            for (int entry : SHAPES[piece]) {
+                long legal = TABLE.legalAnchors(entry, occupancy);
+                if (legal == 0) continue;
+                playable |= 1 << piece;
+                moves += Long.bitCount(legal);
+
+                //Only placements covering every missing block of some line can clear anything
+                long candidates = alreadyFull ? legal : 0;
+                int blocks = GamePiece.fromIndex(entry).getBlockCount();
+                for (int line = 0; line < LINES.length && candidates != legal; line++) {
+                    long missing = LINES[line] & ~occupancy;
+                    if (Long.bitCount(missing) > blocks) continue;
+                    long covering = legal;
+                    for (; missing != 0 && covering != 0; missing &= missing - 1) {
+                        covering &= TABLE.getCoveringAnchors(entry, Long.numberOfTrailingZeros(missing));
+                    }
+                    candidates |= covering;
+                }
+                for (; candidates != 0; candidates &= candidates - 1) {
+                    long placed = occupancy | TABLE.getFootprint(entry, Long.numberOfTrailingZeros(candidates));
+                    maxLines = Math.max(maxLines, DETECTOR.countLines(DETECTOR.detect(placed)));
+                }
+            }
+        }
+        return StateRecord.pack(playable, reachable, moves, Math.min(maxLines, StateRecord.MAX_LINES));
+    }
+}
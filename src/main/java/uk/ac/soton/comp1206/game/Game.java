@@ -13,16 +13,21 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+import uk.ac.soton.comp1206.component.GameBlockCoordinateSet;
 import uk.ac.soton.comp1206.component.GameBoard;
 import uk.ac.soton.comp1206.component.PieceBoard;
+import uk.ac.soton.comp1206.event.GameEventListener;
 import uk.ac.soton.comp1206.event.GameLoopListener;
+import uk.ac.soton.comp1206.event.LevelUpListener;
 import uk.ac.soton.comp1206.event.LineClearedListener;
 import uk.ac.soton.comp1206.event.NextPieceListener;
 import uk.ac.soton.comp1206.event.ScoreChangeListener;
 import uk.ac.soton.comp1206.utility.Multimedia;
 
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.Executor;
 
 /**
  * The Game class handles the main logic, state and properties of the TetrECS game. Methods to manipulate the game state
@@ -32,8 +37,8 @@ public class Game {
 
     private static final Logger logger = LogManager.getLogger(Game.class);
 
-    //Create a random number generator starting at 0
-    Random ran = new Random(0);
+    //Rules and state of the game, independent of the UI
+    private final GameEngine engine;
 
     //Create integer properties for score,level,lives,mulitplier
     private IntegerProperty scoreProperty = new SimpleIntegerProperty(0);
@@ -45,30 +50,18 @@ public class Game {
     //Declare listeners
     LineClearedListener linesClearedlistener;
     ScoreChangeListener scoreChangeListener;
+    LevelUpListener levelUpListener;
     protected GameLoopListener gameLoopListener;
     public boolean nextPieceClicked;
     NextPieceListener nextPieceListener;
+    GameEventListener gameEventListener;
 
-    //Initialize number of lines cleared and number of blocks cleared
-    int filled=0;
-    int noOflines=0;
-
-    //Arraylist of temporary blocks to clear
-    ArrayList<GameBlockCoordinate> tempList = new ArrayList<>();
-
-    //Set containing blocks to clear
-    Set<GameBlockCoordinate> toClear= new HashSet<>();
-    private long delayTime;
+    //Set containing blocks cleared by the last placement
+    Set<GameBlockCoordinate> toClear= Collections.emptySet();
 
     //Property for duration of each game loop
     private DoubleProperty timerProperty = new SimpleDoubleProperty(12000);
 
-    //Holds current gamepiece to place
-    private GamePiece currentPiece;
-
-    //Holds upcoming gamepiece to place
-    private GamePiece followingPiece;
-
     //Keeps track of if game has ended
     private boolean state;
 
@@ -78,13 +71,11 @@ public class Game {
     //Keeps track of if it is the first gameloop
     private boolean start = true;
 
-    //Keeps track of if timer is running
-    private boolean timerisRunning;
-    private TimerTask timerTask;
-    private Timer timer;
+    //Keeps the sound effects quiet, for example while a replay is played
+    private boolean muted;
 
-    //Which game mode it is
-    private String gameMode;
+    //Counts down each game loop on the shared tick scheduler
+    private final GameTimer timer;
 
     /**
      * Number of rows
@@ -105,26 +96,46 @@ public class Game {
      * Create a new game with the specified rows and columns. Creates a corresponding grid model.
      * @param cols number of columns
      * @param rows number of rows
+     * @param mode game mode
      */
     public Game(int cols, int rows,String mode) {
+        this(cols, rows, mode, TickScheduler.system(), Platform::runLater);
+    }
+
+    /**
+     * Create a new game whose loop timer runs on the given scheduler
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param mode game mode
+     * @param scheduler clock the game loop timer runs on
+     * @param dispatcher runs the game loop when the timer runs out
+     */
+    public Game(int cols, int rows, String mode, TickScheduler scheduler, Executor dispatcher) {
+        this(cols, rows, mode, new UniformPieceSequence(PieceSequence.newSeed()), scheduler, dispatcher);
+    }
+
+    /**
+     * Create a new game dealt pieces from the given sequence, whose loop timer runs on the given scheduler
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param mode game mode
+     * @param sequence deals the pieces of this game
+     * @param scheduler clock the game loop timer runs on
+     * @param dispatcher runs the game loop when the timer runs out
+     */
+    public Game(int cols, int rows, String mode, PieceSequence sequence, TickScheduler scheduler, Executor dispatcher) {
         this.cols = cols;
         this.rows = rows;
-        this.gameMode = mode;
-
-        //Create a new grid model to represent the game state
-        this.grid = new Grid(cols,rows);
 
-        //Reset special mode feature
-        regeneratedProperty().set(3);
+        //Create a new engine holding the grid model which represents the game state
+        this.engine = new GameEngine(cols,rows,mode,sequence);
+        this.grid = engine.getGrid();
 
-        //Set number of lives to 1 in special mode
-        if(mode.equals("Special Mode")){
-            livesProperty().set(1);
-        }
+        //Run the game loop whenever the time runs out
+        this.timer = new GameTimer(scheduler, dispatcher, this::gameLoop);
 
-        //Set the first two pieces
-        spawnPiece();
-        followingPiece = GamePiece.createPiece(1);
+        //Show the starting lives and regenerations of this mode
+        updateProperties();
     }
 
     /**
@@ -135,41 +146,57 @@ public class Game {
         logger.info("lives: {}", getLivesProperty());
         logger.info("if placed: {}",ifPlaced);
 
-        //If no lives left and no piece was placed in the previous loop, end the game
-        if(getLivesProperty()==0 &&!ifPlaced){
-            logger.info("no lives left - ending game");
-            //Set true that game has ended
-            state=true;
-            //Cancel timer and task
-            timer.cancel();
-            timerTask.cancel();
-            //Notify ChallengeScene
-            gameLoopListener.setTimer(getTimerDelay(),state);
-        }
-        //If there are remaining lives and no piece was placed and it is not the first loop of the game
-        else if((getLivesProperty()>0) && !ifPlaced && !start) {
+        //If no piece was placed in the previous loop and it is not the first loop of the game, the time ran out
+        if(!ifPlaced && !start) {
+            fireEvent(GameEvent.EXPIRE, 0, 0);
+            //If no lives left, end the game
+            if(engine.tick()==TickResult.GAME_OVER){
+                logger.info("no lives left - ending game");
+                endGame();
+                return;
+            }
+            //Otherwise a life was lost, the multiplier was reset and the upcoming pieces were replaced
             logger.info("No block placed");
-            Multimedia.playSound("lifelose.wav");
-            //Lose a life
-            setLivesProperty(getLivesProperty()-1);
-            //Reset multiplier to 1
-            setMultiplierProperty(1);
-            //Replace the upcoming gamepieces
-            nextPiece();
+            playSound("lifelose.wav");
+            updateProperties();
             //Notify listeners to display the updated pieces
             nextPieceListener.nextPiece(getCurrentPiece(),getFollowingPiece());
-            //Reset the timer
-            handleTimer();
-            //Notify ChallengeScene that a new loop is starting
-            gameLoopListener.setTimer(getTimerDelay(),state);}
-        else {
-            //Set after first loop of game has finished
-            setIfStart(false);
-            //Reset timer
-            handleTimer();
-            //Notify ChallengeScene that a new loop is starting
-            gameLoopListener.setTimer(getTimerDelay(),state);
+            if(checkLost()){
+                return;
+            }
+        }
+        //Set after first loop of game has finished
+        setIfStart(false);
+        //Reset timer
+        handleTimer();
+        //Notify ChallengeScene that a new loop is starting
+        gameLoopListener.setTimer(getTimerDelay(),state);
+    }
+
+    /**
+     * End the game, cancelling the timer and notifying ChallengeScene
+     */
+    private void endGame(){
+        //Set true that game has ended
+        state=true;
+        fireEvent(GameEvent.END, engine.getScore(), 0);
+        //Cancel timer
+        timer.cancel();
+        //Notify ChallengeScene
+        gameLoopListener.setTimer(getTimerDelay(),state);
+    }
+
+    /**
+     * End the game straight away if neither upcoming piece can be placed and nothing is left to save it
+     * @return true if the game was ended
+     */
+    private boolean checkLost(){
+        if(state || !engine.isLost()){
+            return false;
         }
+        logger.info("no legal moves and no lives left - ending game");
+        endGame();
+        return true;
     }
 
     /**
@@ -177,43 +204,47 @@ public class Game {
      */
     public void getNewPiece(){
         logger.info("Switching pieces");
+        fireEvent(GameEvent.REGENERATE, 0, 0);
         //If player has regenerations left, then regenerate
-        if(regeneratedProperty().get()>0){
-            nextPiece();
+        if(engine.regenerate()){
             nextPieceListener.nextPiece(getCurrentPiece(),getFollowingPiece());
-            regenerated.set(regeneratedProperty().get()-1);
+            updateProperties();
+            checkLost();
         }else{
-            Multimedia.playSound("fail.wav");
+            playSound("fail.wav");
             logger.info("No more switches left");
         }
     }
 
     /**
-     * Handles cancelling and initializing Timer and TimerTask at the end of each game loop
+     * Restart the countdown to the end of the game loop
      */
     private void handleTimer(){
-        //If Timer is running then cancel it
-        if (timerisRunning) {
-            timer.cancel();
-            timerTask.cancel();
-            logger.info("timer {} cancelled",timer.toString());
-            timerisRunning=false;
-        }//Initialize a new Timer and TimerTask
-            timer = new Timer();
-            logger.info("new timer {} initialised",timer.toString());
-            timerTask = new TimerTask() {
-                @Override
-                public void run() {
-                    gameLoop();
-                }
-            };
-            logger.info("new timer task {} initialised",timerTask.toString());
-            //Update timers state
-            timerisRunning=true;
-            //Schedule a new task
-            timer.schedule(timerTask,getTimerDelay());
-            logger.info("timer scheduled task");
+        timer.reset(getTimerDelay());
+        logger.info("timer reset to {}",getTimerDelay());
+    }
 
+    /**
+     * Write a snapshot of this game, including the time left in the current game loop
+     * @param buffer buffer to write GameSnapshot.size(getEngine()) bytes into
+     */
+    public void saveSnapshot(ByteBuffer buffer){
+        GameSnapshot.write(engine,timer.getRemaining(),buffer);
+    }
+
+    /**
+     * Restore a snapshot written by saveSnapshot, carrying on the game loop with the time that was left
+     * @param buffer buffer to read the snapshot from
+     */
+    public void restoreSnapshot(ByteBuffer buffer){
+        long remaining = GameSnapshot.read(engine,buffer);
+        updateProperties();
+        if(nextPieceListener!=null){
+            nextPieceListener.nextPiece(getCurrentPiece(),getFollowingPiece());
+        }
+        if(timer.isRunning()){
+            timer.reset(remaining);
+        }
     }
 
     /**
@@ -223,10 +254,12 @@ public class Game {
     public void keyboardSupport(KeyEvent keyEvent){
         if (keyEvent.getCode() == KeyCode.Q || keyEvent.getCode()==KeyCode.OPEN_BRACKET || keyEvent.getCode() == KeyCode.Z){
             logger.info("Key pressed: {} --> Rotating current piece anticlockwise",keyEvent.getCode() );
-            currentPiece.rotate(3);
+            fireEvent(GameEvent.ROTATE, 3, 0);
+            engine.rotate(3);
         }else if(keyEvent.getCode() == KeyCode.E || keyEvent.getCode() == KeyCode.C|| keyEvent.getCode() == KeyCode.CLOSE_BRACKET){
             logger.info("Key pressed: {} --> Rotating current piece clockwise",keyEvent.getCode() );
-            currentPiece.rotate(1);
+            fireEvent(GameEvent.ROTATE, 1, 0);
+            engine.rotate(1);
         }else if(keyEvent.getCode() == KeyCode.SPACE || keyEvent.getCode() == KeyCode.R) {
             logger.info("Key pressed: {} --> Swapping current and upcoming piece",keyEvent.getCode() );
             swapCurrentPiece();
@@ -274,26 +307,12 @@ public class Game {
             int x = gameBlock.getX();
             int y = gameBlock.getY();
 
-            //If the piece can be played, place the piece and set that a piece was placed
-            //Get the current and next game piece
-            //Call the game loop
-            //Notify the nextpiecelistener with updated game pieces
-            //Check if any lines have to be cleared
-
             try {
-                if (grid.canPlayPiece(currentPiece, x, y)) {
-                    grid.playPiece(currentPiece, x, y);
-                    ifPlaced=true;
-                    nextPiece();
-                    gameLoop();
-                    ifPlaced=false;
-                    nextPieceListener.nextPiece(currentPiece, followingPiece);
-                    afterPiece();
-                }else{
-                    //If a piece cannot be played, set that the piece was not placed
-                    ifPlaced=false;}
-            } catch (Exception e) {
-                logger.info(e);
+                playPiece(x, y);
+            } catch (RuntimeException e) {
+                //Log the error with its stack trace and pass it on, rather than carrying on with a broken game
+                logger.error("Failed to place {} at {},{}", getCurrentPiece(), x, y, e);
+                throw e;
             }
         }
         //If it was a right click and main game board was clicked, rotate the current piece
@@ -314,203 +333,131 @@ public class Game {
     }
 
     /**
-     * Return an initial game piece
-     * @return the game piece created
-     */
-    public GamePiece spawnPiece(){
-        logger.info("Entered spawnPiece method");
-
-        int pieceNumber = ran.nextInt(15);
-        currentPiece = GamePiece.createPiece(pieceNumber);
-
-        return currentPiece ;
-    }
-
-    /**
-     * Updates the current piece to the next piece, and creates a new following piece
-     * @return
-     */
-    public GamePiece nextPiece(){
-        logger.info("Entered nextPiece method");
-        int pieceNumber = ran.nextInt(15);
-
-        logger.info("Created new piece: "+GamePiece.createPiece(pieceNumber).toString());
-        currentPiece = followingPiece;
-        followingPiece = GamePiece.createPiece(pieceNumber);
-
-        return followingPiece;
+     * Place the current piece centred on the given block of the main game board, as if it was clicked
+     * @param x column
+     * @param y row
+     * @return true if the piece was placed
+     */
+    public boolean playPiece(int x, int y) {
+        //If the piece can be played, place the piece and set that a piece was placed
+        //Get the current and next game piece
+        //Call the game loop
+        //Notify the nextpiecelistener with updated game pieces
+        //Check if any lines have to be cleared
+        fireEvent(GameEvent.PLACE, x, y);
+        MoveResult result = engine.place(x, y);
+        if (result.isPlaced()) {
+            playSound("place.wav");
+            ifPlaced=true;
+            gameLoop();
+            ifPlaced=false;
+            nextPieceListener.nextPiece(getCurrentPiece(), getFollowingPiece());
+            afterPiece(result);
+            checkLost();
+            return true;
+        }
+        //If a piece cannot be played, set that the piece was not placed
+        playSound("fail.wav");
+        ifPlaced=false;
+        return false;
     }
 
     /**
-     * Handles checking if any lines need to be cleared
+     * Handles the lines cleared and score changes of a piece that was placed
+     * @param result the result of placing the piece
      */
-    public void afterPiece(){
-        //Initialize starting point coordinates
-        int initialX =0;
-        int initialY=0;
-
-        //Traverse each block in a row and if their value is not 0, add to a temporary list
-        //Once it reaches a block in a row that is 0, break the loop and check the next row
-        for(int i=0; i<grid.getRows(); i++) {
-            logger.info("Checking blocks across rows X: "+initialX +" ,Y: "+initialY);
+    private void afterPiece(MoveResult result){
+        //If blocks were cleared, play the relevant sound and notify the listener
+        if(result.getLines()>0) {
+            playSound("clear.wav");
 
-            while (grid.get(initialX, initialY) != 0 && initialX < grid.getCols()) {
-                tempList.add(new GameBlockCoordinate(initialX, initialY));
-                logger.info("Added coordinate: "+ initialX +", " +initialY+" to templist");
+            toClear = new GameBlockCoordinateSet(result.getClearedMask(), cols);
 
-                //Increment to move to next block in row
-                initialX++;
-                //Increment to keep track of how many blocks in a row had was filled
-                filled++;
+            //trigger listener when lines cleared
+            if(linesClearedlistener!=null){
+                linesClearedlistener.lineCleared(getToClear());
             }
-            //Handles clearing of temporary list
-            handleListClear();
-            initialX=0;
-
-            //Increment y coordinate to move to the next row
-            initialY++;
-
         }
+        logger.info("number of lines {}", result.getLines());
 
-        //Initialize starting point coordinates
-        initialX =0;
-        initialY=0;
-
-        //Traverse each block in a row and if their value is not 0, add to a temporary list
-        //Once it reaches a block in a row that is 0, break the loop and check the next row
-        for(int i=0; i<grid.getCols(); i++) {
-            logger.info("Checking blocks down columns X: "+initialX +" ,Y: "+initialY);
-            while (grid.get(initialX, initialY) != 0 && initialY < grid.getRows()) {
-                tempList.add(new GameBlockCoordinate(initialX, initialY));
-                logger.info("Added coordinate: "+ initialX +", " +initialY+" to templist");
-
-                //Increment to move to next block in column
-                initialY++;
-                //Increment to keep track of how many blocks in a row had was filled
-                filled++;
-            }
-            //Handles clearing of temporary list
-            handleListClear();
-            initialY=0;
-
-            //Increment x coordinate to move to the next column
-            initialX++;
+        updateProperties();
 
+        //Notify listener that score has changed
+        if(result.getPoints()>0 && scoreChangeListener!=null){
+            scoreChangeListener.scoreChanged(getScoreProperty());
         }
-        //If the blocks to clear are not empty, clear the blocks and play the relevant sound
-        if(!toClear.isEmpty()) {
-            Multimedia.playSound("clear.wav");
-
-            for (GameBlockCoordinate block : toClear) {
-                grid.set(block.getX(), block.getY(), 0);
-                logger.info("cleared " + block.getX() + ", "+block.getY()+ " block");
-            }
-
-            //trigger listener when lines cleared
-            if(linesClearedlistener!=null){
-                linesClearedlistener.lineCleared(getToClear());
+        //In Special Mode, a life is gained when the multiplier reaches 4
+        if(result.isLifeGained()){
+            playSound("lifegain.wav");
+        }
+        if(result.getLevelsGained()>0){
+            playSound("level.wav");
+            //Notify listener once for every level reached
+            if(levelUpListener!=null){
+                int reached = engine.getLevel();
+                for(int level = reached - result.getLevelsGained() + 1; level <= reached; level++){
+                    levelUpListener.levelUp(level);
+                }
             }
         }
-        int noOfBlocks = toClear.size();
-        logger.info("number of lines "+noOflines);
 
-        //Pass number of blocks and lines cleared to calculate score
-        score(noOflines,noOfBlocks);
-
-        //Reset blocks and lines cleared
-        toClear.clear();
-        noOflines=0;
     }
 
     /**
-     * Handles clearing and resetting of lists
+     * Copy the state of the engine into the properties displayed by the UI
      */
-    public void handleListClear(){
-        //If the number of blocks in a row or column filled is 5, the whole row/column has been filled
-        //Add these blocks to the set containing blocks to clear
+    private void updateProperties(){
+        scoreProperty.set(engine.getScore());
+        levelProperty.set(engine.getLevel());
+        livesProperty.set(engine.getLives());
+        multiplier.set(engine.getMultiplier());
+        regenerated.set(engine.getRegenerated());
+    }
 
-        if (filled == 5) {
-            toClear.addAll(tempList);
-            for(GameBlockCoordinate gb: toClear){
-                logger.info("Added: "+ gb.getX()+", " +gb.getY()+ "to toClear");}
+    /**
+     * Set next piece listener
+     * @param listener the component listening
+     */
+    public void setNextPieceListener(NextPieceListener listener){
+    this.nextPieceListener = listener;
+    }
 
-            //Increment the number of lines cleared
-            noOflines++;
-            tempList.clear();
-        } else {
-            for(GameBlockCoordinate gb: tempList){
-                logger.info("Removed: "+ gb.getX()+", " +gb.getY()+ " from tempList");}
+    /**
+     * Set game event listener
+     * @param listener the component listening, for example a replay recorder
+     */
+    public void setGameEventListener(GameEventListener listener){
+        this.gameEventListener = listener;
+    }
 
-            //Reset the temporary list
-            tempList.clear();
-        }
-        //Reset number of blocks filled
-        filled=0;
-    }
-
-    /**
-     * Handles updating of scores
-     * @param noOflines number of lines cleared
-     * @param noOfblocks number of blocks cleared
-     */
-    public void score(int noOflines, int noOfblocks){
-        //If no lines were cleared in a game loop, reset the multiplier to 1
-        if(noOflines==0){
-            setMultiplierProperty(1);
-        }else {
-            int toAdd = noOflines * noOfblocks * 10 * getMultiplierProperty();
-            int currScore = getScoreProperty();
-            int newScore = toAdd + currScore;
-            //Set score as the updated score
-            setScoreProperty(newScore);
-            //Notify listener that score has changed
-            if(scoreChangeListener!=null){
-            scoreChangeListener.scoreChanged(getScoreProperty());}
-            //Increment multiplier
-            setMultiplierProperty(getMultiplierProperty()+1);
-            //In Special Mode, when multiplier reaches, 4 gain a life
-            if(gameMode.equals("Special Mode")){
-                if(getMultiplierProperty()==4){
-                    setLivesProperty(getLivesProperty()+1);
-                    Multimedia.playSound("lifegain.wav");
-                }
-            }
-            //Check if level needs to be updated
-            updateLevel(newScore);
+    /**
+     * Tell the game event listener about an event, before acting on it
+     * @param event the event
+     * @param x column clicked for PLACE, clockwise turns for ROTATE, final score for END, otherwise 0
+     * @param y row clicked for PLACE, otherwise 0
+     */
+    private void fireEvent(GameEvent event, int x, int y){
+        if(gameEventListener!=null){
+            gameEventListener.gameEvent(event, x, y);
         }
     }
 
     /**
-     * Handles updating of level
-     * @param score the current score of user
+     * Play a sound effect unless the game is muted
+     * @param file sound file to play
      */
-    public void updateLevel(int score){
-        //Initialize the new level
-        int toupdatedlevel=0;
-        if(score>0) {
-            for (int i = 1; i <= score; i++) {
-                //If score is a multiple of 1000, increment the level
-                if (i % 1000 == 0) {
-                    toupdatedlevel++;
-
-                    //If the updated level is higher than current level, play the sound
-                    if(getLevelProperty()<toupdatedlevel){
-                    Multimedia.playSound("level.wav");}
-                }
-            }
-            //Update level
-            setLevelProperty(toupdatedlevel);
-
+    private void playSound(String file){
+        if(!muted){
+            Multimedia.playSound(file);
         }
-
     }
 
     /**
-     * Set next piece listener
-     * @param listener the component listening
+     * Mute or unmute the sound effects of this game
+     * @param muted true to keep the game quiet
      */
-    public void setNextPieceListener(NextPieceListener listener){
-    this.nextPieceListener = listener;
+    public void setMuted(boolean muted){
+        this.muted = muted;
     }
 
     /**
@@ -528,9 +475,10 @@ public class Game {
     public void rotateCurrentPiece(GameBlock block){
         logger.info("rotating current piece");
 
-        currentPiece.rotate();
+        fireEvent(GameEvent.ROTATE, 1, 0);
+        engine.rotate(1);
 
-        Multimedia.playSound("rotate.wav");
+        playSound("rotate.wav");
     }
 
     /**
@@ -538,11 +486,9 @@ public class Game {
      */
     public void swapCurrentPiece(){
         logger.info("swapping pieces");
-        GamePiece tempCurrent = currentPiece;
-
-        currentPiece= followingPiece;
-        followingPiece=tempCurrent;
-        Multimedia.playSound("rotate.wav");
+        fireEvent(GameEvent.SWAP, 0, 0);
+        engine.swap();
+        playSound("rotate.wav");
 
     }
 
@@ -551,13 +497,15 @@ public class Game {
      * @return time of game loop
      */
     public long getTimerDelay(){
-        delayTime= (12000-(500*getLevelProperty()));
-
-        if (delayTime < 2500){
-            delayTime=2500;}
-
-        return delayTime;
+        return engine.getTimerDelay();
+    }
 
+    /**
+     * Get the engine holding the rules and state of this game
+     * @return game engine
+     */
+    public GameEngine getEngine() {
+        return engine;
     }
 
     /**
@@ -604,24 +552,6 @@ public class Game {
         return regenerated;
     }
 
-    /*
-    Setter methods for properties
-     */
-    public void setLevelProperty(int set){
-        logger.info("setting level to "+set);
-        levelProperty().set(set);
-    }
-    public void setMultiplierProperty(int set){
-        multiplierProperty().set(set);
-
-    }
-    public void setScoreProperty(int set){
-        scoreProperty().set(set);
-    }
-    public void setLivesProperty(int set){
-        livesProperty().set(set);
-    }
-
     /*
     Getter methods for properties
      */
@@ -652,7 +582,7 @@ public class Game {
      * @return current piece
      */
     public GamePiece getCurrentPiece(){
-        return currentPiece;
+        return engine.getCurrentPiece();
     }
 
     /**
@@ -660,7 +590,7 @@ public class Game {
      * @return next piece
      */
     public GamePiece getFollowingPiece(){
-        return followingPiece;
+        return engine.getFollowingPiece();
     }
 
     /**
@@ -695,11 +625,19 @@ public class Game {
         scoreChangeListener = listener;
     }
 
+    /**
+     * Set listener for reaching a new level
+     * @param listener the component listening
+     */
+    public void setLevelUpListener(LevelUpListener listener){
+        levelUpListener = listener;
+    }
+
     /**
      * Get the current running timer to cancel
      * @return running timer
      */
-    public Timer getTimer(){
+    public GameTimer getTimer(){
         return timer;
     }
 
@@ -0,0 +1,509 @@
+package uk.ac.soton.comp1206.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The GameEngine holds the rules and state of a TetrECS game without any dependency on JavaFX, sound or the game loop
+ * timer. Every action returns a result value describing what happened, so the engine can be driven by the Game UI
+ * controller, by simulations or by tests.
+ *
+ * The engine works on compact grids of up to 64 blocks, which covers the 5x5 game board. Bots see it through the
+ * read-only GameView interface.
+ */
+public class GameEngine implements GameView {
+
+    /**
+     * Name of the normal game mode
+     */
+    public static final String CHALLENGE_MODE = "Challenge Mode";
+
+    /**
+     * Name of the game mode with a single life, bonus lives and piece regeneration
+     */
+    public static final String SPECIAL_MODE = "Special Mode";
+
+    /**
+     * Number of lives at the start of a normal game
+     */
+    public static final int STARTING_LIVES = 3;
+
+    /**
+     * Number of piece regenerations available in Special Mode
+     */
+    public static final int STARTING_REGENERATIONS = 3;
+
+    /**
+     * Number of bytes writeTo uses for everything except the grid and the piece sequence
+     */
+    private static final int STATE_BYTES = 13;
+
+    /**
+     * Deals the pieces of this game
+     */
+    private final PieceSequence sequence;
+
+    /**
+     * The grid holding the placed blocks
+     */
+    private final Grid grid;
+
+    /**
+     * Finds the full rows and columns of the grid
+     */
+    private final LineClearDetector detector;
+
+    /**
+     * Which game mode it is
+     */
+    private final String mode;
+
+    /**
+     * Level thresholds and game loop delays of this mode
+     */
+    private final LevelProgression progression;
+
+    private int score;
+    private int level;
+    private int lives = STARTING_LIVES;
+    private int multiplier = 1;
+    private int regenerated = STARTING_REGENERATIONS;
+
+    //Holds current gamepiece to place
+    private GamePiece currentPiece;
+
+    //Holds upcoming gamepiece to place
+    private GamePiece followingPiece;
+
+    //Keeps track of if game has ended
+    private boolean over;
+
+    /**
+     * Create a new engine with an empty grid of the specified size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param mode game mode
+     */
+    public GameEngine(int cols, int rows, String mode) {
+        this(cols, rows, mode, new UniformPieceSequence(PieceSequence.newSeed()));
+    }
+
+    /**
+     * Create a new engine with an empty grid of the specified size, dealt pieces from the given sequence
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param mode game mode
+     * @param sequence deals the pieces of this game
+     */
+    public GameEngine(int cols, int rows, String mode, PieceSequence sequence) {
+        if (cols * rows > Grid.COMPACT_CELLS) {
+            throw new IllegalArgumentException("Board of " + cols + "x" + rows + " is larger than " + Grid.COMPACT_CELLS + " blocks");
+        }
+        this.grid = new Grid(cols, rows);
+        this.detector = LineClearDetector.forSize(cols, rows);
+        this.mode = mode;
+        this.progression = LevelProgression.forMode(mode);
+        this.sequence = sequence;
+
+        //Set number of lives to 1 in special mode
+        if (isSpecialMode()) {
+            lives = 1;
+        }
+
+        //Set the first two pieces
+        currentPiece = GamePiece.createPiece(sequence.next());
+        followingPiece = GamePiece.createPiece(sequence.next());
+    }
+
+    /**
+     * Place the current piece, as currently rotated, centred on the given block
+     * @param x column
+     * @param y row
+     * @return the result of the placement
+     */
+    public MoveResult place(int x, int y) {
+        if (over || !grid.canPlayPiece(currentPiece, x, y)) {
+            return MoveResult.ILLEGAL;
+        }
+        grid.playPiece(currentPiece, x, y);
+        nextPiece();
+        return afterPiece();
+    }
+
+    /**
+     * Rotate the current piece to the given rotation and place it centred on the given block
+     * @param rotation rotation of the current piece, 0 to 3 clockwise turns from its spawn orientation
+     * @param x column
+     * @param y row
+     * @return the result of the placement
+     */
+    public MoveResult place(int rotation, int x, int y) {
+        currentPiece = GamePiece.createPiece(currentPiece.getNumber(), rotation);
+        return place(x, y);
+    }
+
+    /**
+     * Rotate the current piece clockwise
+     * @param rotations number of clockwise turns
+     */
+    public void rotate(int rotations) {
+        currentPiece = currentPiece.rotated(rotations);
+    }
+
+    /**
+     * Swap the current and following pieces
+     */
+    public void swap() {
+        GamePiece tempCurrent = currentPiece;
+        currentPiece = followingPiece;
+        followingPiece = tempCurrent;
+    }
+
+    /**
+     * Replace the upcoming pieces in Special Mode
+     * @return false if there are no regenerations left
+     */
+    public boolean regenerate() {
+        if (regenerated <= 0) {
+            return false;
+        }
+        nextPiece();
+        regenerated--;
+        return true;
+    }
+
+    /**
+     * Handle the game loop timer running out without a piece being placed. Loses a life, or ends the game if there
+     * are none left.
+     * @return the outcome of the timer running out
+     */
+    public TickResult tick() {
+        if (lives == 0) {
+            over = true;
+            return TickResult.GAME_OVER;
+        }
+        lives--;
+        multiplier = 1;
+        nextPiece();
+        return TickResult.LIFE_LOST;
+    }
+
+    /**
+     * Updates the current piece to the next piece, and creates a new following piece
+     */
+    private void nextPiece() {
+        currentPiece = followingPiece;
+        followingPiece = GamePiece.createPiece(sequence.next());
+    }
+
+    /**
+     * Clear any full rows and columns and update the score
+     * @return the result of the placement
+     */
+    private MoveResult afterPiece() {
+        long cleared = detector.detect(grid.getOccupancy());
+        if (cleared == 0) {
+            score(0, 0);
+            return MoveResult.PLACED;
+        }
+        grid.clear(cleared);
+
+        int lines = detector.countLines(cleared);
+        int blocks = Long.bitCount(cleared);
+        int previousLevel = level;
+        int previousLives = lives;
+        int points = score(lines, blocks);
+        return new MoveResult(true, lines, blocks, points, cleared, level - previousLevel, lives > previousLives);
+    }
+
+    /**
+     * Handles updating of scores
+     * @param lines number of lines cleared
+     * @param blocks number of blocks cleared
+     * @return points added to the score
+     */
+    private int score(int lines, int blocks) {
+        //If no lines were cleared, reset the multiplier to 1
+        if (lines == 0) {
+            multiplier = 1;
+            return 0;
+        }
+        int toAdd = lines * blocks * 10 * multiplier;
+        score += toAdd;
+
+        //Increment multiplier
+        multiplier++;
+
+        //In Special Mode, when multiplier reaches 4, gain a life
+        if (isSpecialMode() && multiplier == 4) {
+            lives++;
+        }
+
+        //Check if level needs to be updated
+        updateLevel(score);
+        return toAdd;
+    }
+
+    /**
+     * Handles updating of level
+     * @param score the current score
+     */
+    private void updateLevel(int score) {
+        level = progression.levelFor(score);
+    }
+
+    /**
+     * Get the Zobrist hash of the grid, current and following piece and multiplier, for keying caches of game states
+     * @return hash
+     */
+    @Override
+    public long hash() {
+        return grid.getHash() ^ Zobrist.current(currentPiece) ^ Zobrist.following(followingPiece)
+                ^ Zobrist.multiplier(multiplier);
+    }
+
+    /**
+     * Copy the state of another game of the same size and mode into this engine, for example to play out its future
+     * without changing it. Blocks are copied by occupancy only, and the piece sequence of this engine is kept.
+     * @param view game to copy
+     */
+    public void copyFrom(GameView view) {
+        if (view.getCols() != getCols() || view.getRows() != getRows()) {
+            throw new IllegalArgumentException("Cannot copy a " + view.getCols() + "x" + view.getRows() + " game into a "
+                    + getCols() + "x" + getRows() + " game");
+        }
+        grid.load(view.getOccupancy(), 1);
+        score = view.getScore();
+        level = view.getLevel();
+        lives = view.getLives();
+        multiplier = view.getMultiplier();
+        regenerated = view.getRegenerated();
+        currentPiece = view.getCurrentPiece();
+        followingPiece = view.getFollowingPiece();
+        over = view.isOver();
+    }
+
+    /**
+     * Get the number of bytes writeTo uses for this engine
+     * @return number of bytes
+     */
+    public int getSnapshotBytes() {
+        return grid.getSnapshotBytes() + STATE_BYTES + PieceSequence.BYTES;
+    }
+
+    /**
+     * Write the whole state of this game: the grid, counters, pieces and piece sequence
+     * @param buffer buffer to write getSnapshotBytes() bytes into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        grid.writeTo(buffer);
+        buffer.putInt(score);
+        buffer.putShort((short) level);
+        buffer.put((byte) lives);
+        buffer.putShort((short) multiplier);
+        buffer.put((byte) regenerated);
+        buffer.put((byte) currentPiece.getIndex());
+        buffer.put((byte) followingPiece.getIndex());
+        buffer.put((byte) (over ? 1 : 0));
+        sequence.writeTo(buffer);
+    }
+
+    /**
+     * Restore a state written by writeTo by an engine of the same size. Nothing is allocated.
+     * @param buffer buffer to read getSnapshotBytes() bytes from
+     */
+    public void readFrom(ByteBuffer buffer) {
+        grid.readFrom(buffer);
+        score = buffer.getInt();
+        level = buffer.getShort();
+        lives = buffer.get();
+        multiplier = buffer.getShort();
+        regenerated = buffer.get();
+        currentPiece = GamePiece.fromIndex(buffer.get());
+        followingPiece = GamePiece.fromIndex(buffer.get());
+        over = buffer.get() != 0;
+        sequence.readFrom(buffer);
+    }
+
+    /**
+     * Check whether the current or following piece can be placed anywhere in any rotation. A 5x5 board is looked up
+     * in the tablebase when one is mapped.
+     * @return true if there is a legal move
+     */
+    public boolean hasLegalMove() {
+        if (DeadBoardTablebase.covers(getCols(), getRows())) {
+            DeadBoardTablebase tablebase = DeadBoardTablebase.get();
+            if (tablebase.isLoaded()) {
+                return !tablebase.isDead(getOccupancy(), currentPiece, followingPiece);
+            }
+        }
+        PlacementIndex placements = grid.getPlacementIndex();
+        return placements.hasPlacement(currentPiece) || placements.hasPlacement(followingPiece);
+    }
+
+    /**
+     * Check whether the game can no longer be saved: no piece can be placed, there are no lives left to lose for new
+     * pieces and no regenerations left in Special Mode
+     * @return true if the game is certain to end when the timer runs out
+     */
+    public boolean isLost() {
+        return !over && lives == 0 && !(isSpecialMode() && regenerated > 0) && !hasLegalMove();
+    }
+
+    /**
+     * Return the duration of next game loop
+     * @return time of game loop in milliseconds
+     */
+    public long getTimerDelay() {
+        return progression.getDelay(level);
+    }
+
+    /**
+     * Whether this game is in Special Mode
+     * @return true if in Special Mode
+     */
+    @Override
+    public boolean isSpecialMode() {
+        return SPECIAL_MODE.equals(mode);
+    }
+
+    /**
+     * Get the number of columns of the board
+     * @return number of columns
+     */
+    @Override
+    public int getCols() {
+        return grid.getCols();
+    }
+
+    /**
+     * Get the number of rows of the board
+     * @return number of rows
+     */
+    @Override
+    public int getRows() {
+        return grid.getRows();
+    }
+
+    /**
+     * Get the occupancy of the board
+     * @return occupancy bitmask
+     */
+    @Override
+    public long getOccupancy() {
+        return grid.getOccupancy();
+    }
+
+    /**
+     * Get every anchor at which a piece can be placed
+     * @param piece piece to place
+     * @return mask of legal anchors
+     */
+    @Override
+    public long getLegalAnchors(GamePiece piece) {
+        return grid.getPlacementIndex().getLegalAnchors(piece);
+    }
+
+    /**
+     * Get the grid holding the placed blocks
+     * @return grid
+     */
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * Get the sequence dealing the pieces of this game
+     * @return piece sequence
+     */
+    public PieceSequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the level thresholds and game loop delays of this game
+     * @return level progression
+     */
+    public LevelProgression getProgression() {
+        return progression;
+    }
+
+    /**
+     * Get the game mode
+     * @return mode
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the current score
+     * @return score
+     */
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the current level
+     * @return level
+     */
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Get the lives remaining
+     * @return lives
+     */
+    @Override
+    public int getLives() {
+        return lives;
+    }
+
+    /**
+     * Get the current score multiplier
+     * @return multiplier
+     */
+    @Override
+    public int getMultiplier() {
+        return multiplier;
+    }
+
+    /**
+     * Get the regenerations remaining
+     * @return regenerations
+     */
+    @Override
+    public int getRegenerated() {
+        return regenerated;
+    }
+
+    /**
+     * Gets current piece
+     * @return current piece
+     */
+    @Override
+    public GamePiece getCurrentPiece() {
+        return currentPiece;
+    }
+
+    /**
+     * Gets next piece
+     * @return next piece
+     */
+    @Override
+    public GamePiece getFollowingPiece() {
+        return followingPiece;
+    }
+
+    /**
+     * Whether the game has ended
+     * @return true if ended
+     */
+    @Override
+    public boolean isOver() {
+        return over;
+    }
+}
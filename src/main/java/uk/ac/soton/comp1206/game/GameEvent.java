@@ -0,0 +1,38 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Something the player did to a Game, or something that happened to it, which changes how the game carries on.
+ * Together with the seed of the game's pieces, the events of a game are enough to play it again exactly.
+ */
+public enum GameEvent {
+
+    /**
+     * The board was clicked to place the current piece, whether or not it fitted
+     */
+    PLACE,
+
+    /**
+     * The current piece was rotated
+     */
+    ROTATE,
+
+    /**
+     * The current and following pieces were swapped
+     */
+    SWAP,
+
+    /**
+     * A regeneration of the upcoming pieces was asked for, whether or not there were any left
+     */
+    REGENERATE,
+
+    /**
+     * The game loop timer ran out without a piece being placed
+     */
+    EXPIRE,
+
+    /**
+     * The game ended
+     */
+    END
+}
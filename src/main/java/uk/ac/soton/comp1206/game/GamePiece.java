@@ -2,13 +2,15 @@ package uk.ac.soton.comp1206.game;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.component.GameBlock;
 
 /**
  * Instances of GamePiece Represents the model of a specific Game Piece with it's block makeup.
  *
  * The GamePiece class also contains a factory for producing a GamePiece of a particular shape, as specified by it's
  * number.
+ *
+ * Every shape and rotation is built once into a static table when the class is loaded. GamePieces are immutable
+ * flyweights referring to an entry of that table, so creating or rotating a piece never allocates.
  */
 public class GamePiece {
     private static final Logger logger = LogManager.getLogger(GamePiece.class);
@@ -20,120 +22,126 @@ public class GamePiece {
     public static final int PIECES = 15;
 
     /**
-     * The 2D grid representation of the shape of this piece
+     * The number of distinct rotations of each piece
      */
-    private int[][] blocks;
+    public static final int ROTATIONS = 4;
 
     /**
-     * The value of this piece
+     * The width and height of the grid every piece is defined in
      */
-    private final int value;
+    public static final int SIZE = 3;
 
     /**
-     * The name of this piece
+     * Every piece in every rotation, indexed by piece number * ROTATIONS + rotation
      */
-    private final String name;
+    private static final GamePiece[] TABLE = new GamePiece[PIECES * ROTATIONS];
 
     /**
-     * Create a new GamePiece of the specified piece number
-     * @param piece piece number
-     * @return the created GamePiece
+     * The name of each piece
      */
-    public static GamePiece createPiece(int piece) {
-        switch (piece) {
-            //Line
-            case 0 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Line", blocks, 1);
-            }
+    private static final String[] NAMES = {
+            "Line", "C", "Plus", "Dot", "Square", "L", "J", "S", "Z", "T", "X", "Corner", "Inverse Corner", "Diagonal",
+            "Double"
+    };
 
+    /**
+     * The shape of each piece in its spawn orientation, indexed by column then row
+     */
+    private static final int[][][] SHAPES = {
+            //Line
+            {{0, 0, 0}, {1, 1, 1}, {0, 0, 0}},
             //C
-            case 1 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}};
-                return new GamePiece("C", blocks, 2);
-            }
-
+            {{0, 0, 0}, {1, 1, 1}, {1, 0, 1}},
             //Plus
-            case 2 -> {
-                int[][] blocks = {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}};
-                return new GamePiece("Plus", blocks, 3);
-            }
-
+            {{0, 1, 0}, {1, 1, 1}, {0, 1, 0}},
             //Dot
-            case 3 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Dot", blocks, 4);
-            }
-
+            {{0, 0, 0}, {0, 1, 0}, {0, 0, 0}},
             //Square
-            case 4 -> {
-                int[][] blocks = {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Square", blocks, 5);
-            }
-
+            {{1, 1, 0}, {1, 1, 0}, {0, 0, 0}},
             //L
-            case 5 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}};
-                return new GamePiece("L", blocks, 6);
-            }
-
+            {{0, 0, 0}, {1, 1, 1}, {0, 0, 1}},
             //J
-            case 6 -> {
-                int[][] blocks = {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}};
-                return new GamePiece("J", blocks, 7);
-            }
-
+            {{0, 0, 1}, {1, 1, 1}, {0, 0, 0}},
             //S
-            case 7 -> {
-                int[][] blocks = {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}};
-                return new GamePiece("S", blocks, 8);
-            }
-
+            {{0, 0, 0}, {0, 1, 1}, {1, 1, 0}},
             //Z
-            case 8 -> {
-                int[][] blocks = {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}};
-                return new GamePiece("Z", blocks, 9);
-            }
-
+            {{1, 1, 0}, {0, 1, 1}, {0, 0, 0}},
             //T
-            case 9 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("T", blocks, 10);
-            }
-
+            {{1, 0, 0}, {1, 1, 0}, {1, 0, 0}},
             //X
-            case 10 -> {
-                int[][] blocks = {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}};
-                return new GamePiece("X", blocks, 11);
-            }
-
+            {{1, 0, 1}, {0, 1, 0}, {1, 0, 1}},
             //Corner
-            case 11 -> {
-                int[][] blocks = {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}};
-                return new GamePiece("Corner", blocks, 12);
-            }
-
+            {{0, 0, 0}, {1, 1, 0}, {1, 0, 0}},
             //Inverse Corner
-            case 12 -> {
-                int[][] blocks = {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Inverse Corner", blocks, 13);
-            }
-
+            {{1, 0, 0}, {1, 1, 0}, {0, 0, 0}},
             //Diagonal
-            case 13 -> {
-                int[][] blocks = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
-                return new GamePiece("Diagonal", blocks, 14);
-            }
-
+            {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}},
             //Double
-            case 14 -> {
-                int[][] blocks = {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}};
-                return new GamePiece("Double", blocks, 15);
+            {{0, 1, 0}, {0, 1, 0}, {0, 0, 0}}
+    };
+
+    static {
+        for (int piece = 0; piece < PIECES; piece++) {
+            int[][] shape = SHAPES[piece];
+            for (int rotation = 0; rotation < ROTATIONS; rotation++) {
+                TABLE[piece * ROTATIONS + rotation] = new GamePiece(piece, rotation, shape);
+                shape = rotate(shape);
             }
         }
+    }
+
+    /**
+     * The 2D grid representation of the shape of this piece
+     */
+    private final int[][] blocks;
+
+    /**
+     * The shape of this piece as a bitmask, bit y * 3 + x for every filled block
+     */
+    private final int mask;
+
+    /**
+     * The column of each block relative to the centre of the piece
+     */
+    private final int[] offsetsX;
+
+    /**
+     * The row of each block relative to the centre of the piece
+     */
+    private final int[] offsetsY;
+
+    /**
+     * The bounding box of the filled blocks within the 3x3 grid
+     */
+    private final int minX, minY, maxX, maxY;
+
+    /**
+     * The number of this piece
+     */
+    private final int number;
+
+    /**
+     * The number of clockwise turns this piece has been rotated from its spawn orientation, 0 to 3
+     */
+    private final int rotation;
+
+    /**
+     * The value of this piece
+     */
+    private final int value;
 
-        //Not a valid piece number
-        throw new IndexOutOfBoundsException("No such piece: " + piece);
+    /**
+     * The name of this piece
+     */
+    private final String name;
+
+    /**
+     * Create a new GamePiece of the specified piece number
+     * @param piece piece number
+     * @return the created GamePiece
+     */
+    public static GamePiece createPiece(int piece) {
+        return createPiece(piece, 0);
     }
 
     /**
@@ -143,31 +151,85 @@ public class GamePiece {
      * @return the created GamePiece
      */
     public static GamePiece createPiece(int piece, int rotation) {
-        var newPiece = createPiece(piece);
+        if (piece < 0 || piece >= PIECES) {
+            //Not a valid piece number
+            throw new IndexOutOfBoundsException("No such piece: " + piece);
+        }
+        return TABLE[piece * ROTATIONS + (rotation & (ROTATIONS - 1))];
+    }
 
-        newPiece.rotate(rotation);
-        return newPiece;
+    /**
+     * Get the GamePiece at the given index of the rotation table
+     * @param index piece number * ROTATIONS + rotation
+     * @return the GamePiece
+     */
+    public static GamePiece fromIndex(int index) {
+        return TABLE[index];
     }
 
     /**
-     * Create a new GamePiece with the given name, block makeup and value. Should not be called directly, only via the
-     * factory.
-     * @param name name of the piece
-     * @param blocks block makeup of the piece
-     * @param value the value of this piece
+     * Build the table entry for the given piece number, rotation and shape. Should not be called directly, only when
+     * building the table.
+     * @param number piece number
+     * @param rotation rotation of the shape
+     * @param shape block makeup of the piece in this rotation
      */
-    private GamePiece(String name, int[][] blocks, int value) {
-        this.name = name;
-        this.blocks = blocks;
-        this.value = value;
+    private GamePiece(int number, int rotation, int[][] shape) {
+        this.number = number;
+        this.rotation = rotation;
+        this.name = NAMES[number];
+        this.value = number + 1;
 
         //Use the shape of the block to create a grid with either 0 (empty) or the value of this shape for each block.
-        for(int x = 0; x < blocks.length; x++) {
-            for (int y = 0; y < blocks[x].length; y++) {
-                if(blocks[x][y] == 0) continue;
+        blocks = new int[SIZE][SIZE];
+        int mask = 0;
+        int count = 0;
+        int minX = SIZE, minY = SIZE, maxX = -1, maxY = -1;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (shape[x][y] == 0) continue;
                 blocks[x][y] = value;
+                mask |= 1 << (y * SIZE + x);
+                count++;
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+        }
+        this.mask = mask;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+
+        //Store the position of each block relative to the centre (1,1), row by row
+        offsetsX = new int[count];
+        offsetsY = new int[count];
+        int block = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if (shape[x][y] == 0) continue;
+                offsetsX[block] = x - 1;
+                offsetsY[block] = y - 1;
+                block++;
+            }
+        }
+    }
+
+    /**
+     * Rotate a 3x3 shape exactly once clockwise
+     * @param blocks shape to rotate
+     * @return a new rotated shape
+     */
+    private static int[][] rotate(int[][] blocks) {
+        int[][] rotated = new int[SIZE][SIZE];
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                rotated[SIZE - 1 - y][x] = blocks[x][y];
             }
         }
+        return rotated;
     }
 
     /**
@@ -179,7 +241,8 @@ public class GamePiece {
     }
 
     /**
-     * Get the block makeup of this piece
+     * Get the block makeup of this piece. The array is shared by every piece of this shape and rotation and must not
+     * be modified.
      * @return 2D grid of the blocks representing the piece shape
      */
     public int[][] getBlocks() {
@@ -187,33 +250,102 @@ public class GamePiece {
     }
 
     /**
-     * Rotate this piece the given number of rotations
-     * @param rotations number of rotations
+     * Get the shape of this piece as a bitmask
+     * @return bit y * 3 + x set for every filled block
      */
-    public void rotate(int rotations) {
-        for(int rotated = 0; rotated < rotations; rotated ++) {
-            rotate();
-        }
+    public int getMask() {
+        return mask;
+    }
+
+    /**
+     * Get the number of blocks in this piece
+     * @return number of blocks
+     */
+    public int getBlockCount() {
+        return offsetsX.length;
+    }
+
+    /**
+     * Get the column of a block relative to the centre of the piece
+     * @param block block number, 0 to getBlockCount() - 1
+     * @return column offset, -1 to 1
+     */
+    public int getOffsetX(int block) {
+        return offsetsX[block];
     }
 
     /**
-     * Rotate this piece exactly once by rotating it's 3x3 grid
+     * Get the row of a block relative to the centre of the piece
+     * @param block block number, 0 to getBlockCount() - 1
+     * @return row offset, -1 to 1
      */
-    public void rotate() {
-        int[][] rotated = new int[blocks.length][blocks[0].length];
-        rotated[2][0] = blocks[0][0];
-        rotated[1][0] = blocks[0][1];
-        rotated[0][0] = blocks[0][2];
+    public int getOffsetY(int block) {
+        return offsetsY[block];
+    }
 
-        rotated[2][1] = blocks[1][0];
-        rotated[1][1] = blocks[1][1];
-        rotated[0][1] = blocks[1][2];
+    /**
+     * Get the leftmost filled column within the 3x3 grid
+     * @return column
+     */
+    public int getMinX() {
+        return minX;
+    }
 
-        rotated[2][2] = blocks[2][0];
-        rotated[1][2] = blocks[2][1];
-        rotated[0][2] = blocks[2][2];
+    /**
+     * Get the topmost filled row within the 3x3 grid
+     * @return row
+     */
+    public int getMinY() {
+        return minY;
+    }
+
+    /**
+     * Get the rightmost filled column within the 3x3 grid
+     * @return column
+     */
+    public int getMaxX() {
+        return maxX;
+    }
 
-        blocks = rotated;
+    /**
+     * Get the bottommost filled row within the 3x3 grid
+     * @return row
+     */
+    public int getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Get the number of this piece
+     * @return piece number
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * Get the rotation of this piece
+     * @return number of clockwise turns from the spawn orientation, 0 to 3
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    /**
+     * Get the index of this piece and rotation in the rotation table
+     * @return piece number * ROTATIONS + rotation
+     */
+    public int getIndex() {
+        return number * ROTATIONS + rotation;
+    }
+
+    /**
+     * Get this piece rotated clockwise the given number of rotations
+     * @param rotations number of rotations
+     * @return the rotated piece
+     */
+    public GamePiece rotated(int rotations) {
+        return TABLE[number * ROTATIONS + ((rotation + rotations) & (ROTATIONS - 1))];
     }
 
 
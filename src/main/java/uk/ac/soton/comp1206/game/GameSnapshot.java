@@ -0,0 +1,60 @@
+package uk.ac.soton.comp1206.game;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes fixed-size binary snapshots of a game in progress, for undo, autosave, search and crash recovery.
+ *
+ * A snapshot holds a version byte, the full GameEngine state (two blocks of the grid to a byte, the counters, the
+ * current and following piece and the piece sequence) and the time left in the game loop. A 5x5 game takes 47 bytes.
+ * Restoring writes straight into an existing engine of the same size and allocates nothing.
+ */
+public class GameSnapshot {
+
+    /**
+     * Version of the snapshot layout, bumped whenever it changes
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Not created, all methods are static
+     */
+    private GameSnapshot() {
+    }
+
+    /**
+     * Get the size of a snapshot of the given engine
+     * @param engine engine to snapshot
+     * @return number of bytes
+     */
+    public static int size(GameEngine engine) {
+        return 1 + engine.getSnapshotBytes() + Integer.BYTES;
+    }
+
+    /**
+     * Write a snapshot of a game
+     * @param engine engine to snapshot
+     * @param timerRemaining time left in the game loop, in milliseconds
+     * @param buffer buffer to write size(engine) bytes into
+     */
+    public static void write(GameEngine engine, long timerRemaining, ByteBuffer buffer) {
+        buffer.put(VERSION);
+        engine.writeTo(buffer);
+        buffer.putInt((int) Math.min(Integer.MAX_VALUE, timerRemaining));
+    }
+
+    /**
+     * Restore a snapshot into an engine of the same size
+     * @param engine engine to restore into
+     * @param buffer buffer to read size(engine) bytes from
+     * @return time left in the game loop when the snapshot was taken, in milliseconds
+     */
+    public static long read(GameEngine engine, ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+        engine.readFrom(buffer);
+        return buffer.getInt();
+    }
+}
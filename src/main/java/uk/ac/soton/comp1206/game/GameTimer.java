@@ -0,0 +1,180 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Counts down each game loop towards a deadline on a shared TickScheduler, and hands the expiry to a dispatcher, for
+ * example the JavaFX application thread.
+ *
+ * The timer can be reset, paused and resumed, and always knows exactly how much time is left. Only one expiry is ever
+ * outstanding: resetting or cancelling the timer discards any expiry that was already on its way.
+ */
+public class GameTimer {
+
+    /**
+     * The clock the timer runs on
+     */
+    private final TickScheduler scheduler;
+
+    /**
+     * Runs the expiry callback, for example on the JavaFX application thread
+     */
+    private final Executor dispatcher;
+
+    /**
+     * Called when the timer runs out
+     */
+    private final Runnable onExpiry;
+
+    /**
+     * The time the current loop runs out, on the scheduler's clock
+     */
+    private long deadline;
+
+    /**
+     * The time left when the timer was paused
+     */
+    private long remaining;
+
+    /**
+     * The task waiting for the deadline
+     */
+    private TickScheduler.Handle pending;
+
+    /**
+     * Incremented whenever the deadline changes, so stale expiries can be recognised
+     */
+    private long generation;
+
+    private boolean running;
+    private boolean paused;
+
+    /**
+     * Create a new timer
+     * @param scheduler clock to run on
+     * @param dispatcher runs the expiry callback
+     * @param onExpiry called when the timer runs out
+     */
+    public GameTimer(TickScheduler scheduler, Executor dispatcher, Runnable onExpiry) {
+        this.scheduler = scheduler;
+        this.dispatcher = dispatcher;
+        this.onExpiry = onExpiry;
+    }
+
+    /**
+     * Start counting down a new loop, replacing any loop already running
+     * @param delay length of the loop in milliseconds
+     */
+    public synchronized void reset(long delay) {
+        running = true;
+        paused = false;
+        arm(scheduler.now() + delay);
+    }
+
+    /**
+     * Stop counting down, remembering the time left
+     */
+    public synchronized void pause() {
+        if (!running || paused) return;
+        remaining = Math.max(0, deadline - scheduler.now());
+        paused = true;
+        disarm();
+    }
+
+    /**
+     * Carry on counting down from where the timer was paused
+     */
+    public synchronized void resume() {
+        if (!running || !paused) return;
+        paused = false;
+        arm(scheduler.now() + remaining);
+    }
+
+    /**
+     * Stop the timer without it running out
+     */
+    public synchronized void cancel() {
+        running = false;
+        paused = false;
+        disarm();
+    }
+
+    /**
+     * Get the time left in the current loop
+     * @return time in milliseconds, 0 if the timer is not running
+     */
+    public synchronized long getRemaining() {
+        if (!running) return 0;
+        if (paused) return remaining;
+        return Math.max(0, deadline - scheduler.now());
+    }
+
+    /**
+     * Whether a loop is counting down or paused
+     * @return true if running
+     */
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Whether the timer is paused
+     * @return true if paused
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Schedule the expiry for a new deadline
+     * @param deadline time to run out, on the scheduler's clock
+     */
+    private void arm(long deadline) {
+        disarm();
+        this.deadline = deadline;
+        long expected = generation;
+        pending = scheduler.schedule(() -> fire(expected), Math.max(0, deadline - scheduler.now()));
+    }
+
+    /**
+     * Cancel the pending expiry and invalidate any expiry already on its way
+     */
+    private void disarm() {
+        generation++;
+        if (pending != null) {
+            pending.cancel();
+            pending = null;
+        }
+    }
+
+    /**
+     * Called by the scheduler when the deadline should have been reached
+     * @param expected generation the expiry was scheduled for
+     */
+    private void fire(long expected) {
+        synchronized (this) {
+            if (expected != generation) return;
+
+            //Scheduler clocks can wake slightly early, wait for the rest of the time
+            long left = deadline - scheduler.now();
+            if (left > 0) {
+                pending = scheduler.schedule(() -> fire(expected), left);
+                return;
+            }
+            pending = null;
+        }
+        dispatcher.execute(() -> expire(expected));
+    }
+
+    /**
+     * Run the expiry callback if the timer was not reset or cancelled in the meantime
+     * @param expected generation the expiry was scheduled for
+     */
+    private void expire(long expected) {
+        synchronized (this) {
+            if (expected != generation) return;
+            running = false;
+        }
+        onExpiry.run();
+    }
+}
@@ -0,0 +1,92 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A read-only view of the state of a game, given to bots and other players which must not change the game directly.
+ */
+public interface GameView {
+
+    /**
+     * Get the number of columns of the board
+     * @return number of columns
+     */
+    int getCols();
+
+    /**
+     * Get the number of rows of the board
+     * @return number of rows
+     */
+    int getRows();
+
+    /**
+     * Get the occupancy of the board, with bit y * cols + x set for every filled block
+     * @return occupancy bitmask
+     */
+    long getOccupancy();
+
+    /**
+     * Get every anchor (the block the centre of the piece is placed on) at which a piece can be placed
+     * @param piece piece to place
+     * @return mask of legal anchors, bit y * cols + x
+     */
+    long getLegalAnchors(GamePiece piece);
+
+    /**
+     * Get the piece to place next
+     * @return current piece
+     */
+    GamePiece getCurrentPiece();
+
+    /**
+     * Get the piece after the current piece, which it can be swapped with
+     * @return following piece
+     */
+    GamePiece getFollowingPiece();
+
+    /**
+     * Get the current score
+     * @return score
+     */
+    int getScore();
+
+    /**
+     * Get the current level
+     * @return level
+     */
+    int getLevel();
+
+    /**
+     * Get the lives remaining
+     * @return lives
+     */
+    int getLives();
+
+    /**
+     * Get the current score multiplier
+     * @return multiplier
+     */
+    int getMultiplier();
+
+    /**
+     * Get the regenerations remaining
+     * @return regenerations
+     */
+    int getRegenerated();
+
+    /**
+     * Whether the game is in Special Mode
+     * @return true if in Special Mode
+     */
+    boolean isSpecialMode();
+
+    /**
+     * Whether the game has ended
+     * @return true if ended
+     */
+    boolean isOver();
+
+    /**
+     * Get the Zobrist hash of the board, pieces and multiplier
+     * @return hash
+     */
+    long hash();
+}
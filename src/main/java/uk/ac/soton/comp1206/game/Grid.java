@@ -1,30 +1,27 @@
 package uk.ac.soton.comp1206.game;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import uk.ac.soton.comp1206.component.GameBlock;
-import uk.ac.soton.comp1206.component.GameBoard;
-import uk.ac.soton.comp1206.utility.Multimedia;
+import java.nio.ByteBuffer;
+import uk.ac.soton.comp1206.event.CellChangedListener;
 
 /**
  * The Grid is a model which holds the state of a game board. It is made up of a set of Integer values arranged in a 2D
  * arrow, with rows and columns.
  *
- * Each value inside the Grid is an IntegerProperty can be bound to enable modification and display of the contents of
- * the grid.
+ * Internally the grid is stored as an occupancy bitmask, with one bit per block indexed by y * cols + x, alongside a
+ * plane of colour values. Grids of up to 64 blocks keep their occupancy in a single long, larger grids use an array of
+ * longs.
  *
- * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
+ * The Grid does not hold any JavaFX properties itself. A GridBinding can be attached to expose each block as an
+ * IntegerProperty when the grid is displayed on a GameBoard.
  *
- * The Grid should be linked to a GameBoard for it's display.
+ * The Grid contains functions related to modifying the model, for example, placing a piece inside the grid.
  */
 public class Grid {
-    private static final Logger logger = LogManager.getLogger(Grid.class);
-    private int offsetX=0;
-    private int offsetY=0;
-
 
+    /**
+     * The largest number of blocks that fit in a single occupancy word
+     */
+    public static final int COMPACT_CELLS = Long.SIZE;
 
     /**
      * The number of columns in this grid
@@ -37,9 +34,34 @@ public class Grid {
     private final int rows;
 
     /**
-     * The grid is a 2D arrow with rows and columns of SimpleIntegerProperties.
+     * Occupancy of a compact grid, one bit per block
+     */
+    private long occupancy;
+
+    /**
+     * Occupancy of a grid larger than 64 blocks, split across 64 bit words. Null for compact grids.
+     */
+    private final long[] wideOccupancy;
+
+    /**
+     * The value held by each block, 0 for empty
+     */
+    private final byte[] colours;
+
+    /**
+     * Legal placements of every piece on a compact grid, created the first time a placement is checked
+     */
+    private PlacementIndex placements;
+
+    /**
+     * Zobrist hash of the blocks, updated whenever a block changes
+     */
+    private long hash;
+
+    /**
+     * The listener to call when a block changes value
      */
-    private final SimpleIntegerProperty[][] grid;
+    private CellChangedListener cellChangedListener;
 
     /**
      * Create a new Grid with the specified number of columns and rows and initialise them
@@ -50,51 +72,169 @@ public class Grid {
         this.cols = cols;
         this.rows = rows;
 
-        //Create the grid itself
-        grid = new SimpleIntegerProperty[cols][rows];
+        //Create the colour plane, every block starts empty
+        colours = new byte[cols * rows];
 
-        //Add a SimpleIntegerProperty to every block in the grid
-        for(var y = 0; y < rows; y++) {
-            for(var x = 0; x < cols; x++) {
-                grid[x][y] = new SimpleIntegerProperty(0);
-            }
+        //Only grids too large for a single word need the occupancy array
+        wideOccupancy = isCompact() ? null : new long[(cols * rows + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Set the listener to handle an event when a block changes value. A grid has a single listener, such as the
+     * GridBinding of the board showing it, so it cannot be replaced by another without first being removed.
+     * @param listener listener to add, or null to remove the current one
+     * @throws IllegalStateException if a different listener is already set
+     */
+    public void setOnCellChanged(CellChangedListener listener) {
+        if (listener != null && cellChangedListener != null && cellChangedListener != listener) {
+            throw new IllegalStateException("Grid already has a cell changed listener: " + cellChangedListener);
         }
+        this.cellChangedListener = listener;
     }
 
     /**
-     * Get the Integer property contained inside the grid at a given row and column index. Can be used for binding.
+     * Update the value at the given x and y index within the grid
      * @param x column
      * @param y row
-     * @return the IntegerProperty at the given x and y in this grid
+     * @param value the new value
      */
-    public IntegerProperty getGridProperty(int x, int y) {
-        return grid[x][y];
+    public void set(int x, int y, int value) {
+        if (!inBounds(x, y)) {
+            throw new IndexOutOfBoundsException("No such block: " + x + ", " + y);
+        }
+        int index = y * cols + x;
+        boolean wasFilled = colours[index] != 0;
+        store(x, y, value);
+
+        //Keep the placement index in step when the block is filled or emptied
+        if (placements != null && wasFilled != (value != 0)) {
+            if (value != 0) {
+                placements.filled(1L << index);
+            } else {
+                placements.emptied(1L << index, occupancy);
+            }
+        }
     }
 
     /**
-     * Update the value at the given x and y index within the grid
+     * Update the colour and occupancy of a block without updating the placement index
      * @param x column
      * @param y row
      * @param value the new value
      */
-    public void set(int x, int y, int value) {
-        grid[x][y].set(value);
+    private void store(int x, int y, int value) {
+        int index = y * cols + x;
+        if (colours[index] == value) return;
+
+        hash ^= Zobrist.cell(index, colours[index]) ^ Zobrist.cell(index, value);
+        colours[index] = (byte) value;
+
+        //Keep the occupancy bit in step with the colour
+        if (wideOccupancy == null) {
+            if (value == 0) {
+                occupancy &= ~(1L << index);
+            } else {
+                occupancy |= 1L << index;
+            }
+        } else {
+            if (value == 0) {
+                wideOccupancy[index >>> 6] &= ~(1L << index);
+            } else {
+                wideOccupancy[index >>> 6] |= 1L << index;
+            }
+        }
+
+        if (cellChangedListener != null) {
+            cellChangedListener.cellChanged(x, y, value);
+        }
     }
 
     /**
      * Get the value represented at the given x and y index within the grid
      * @param x column
      * @param y row
-     * @return the value
+     * @return the value, or -1 if there is no such index
      */
     public int get(int x, int y) {
-        try {
-            //Get the value held in the property at the x and y index provided
-            return grid[x][y].get();
-        } catch (ArrayIndexOutOfBoundsException e) {
+        if (!inBounds(x, y)) {
             //No such index
             return -1;
         }
+        return colours[y * cols + x];
+    }
+
+    /**
+     * Check whether the given x and y index is inside this grid
+     * @param x column
+     * @param y row
+     * @return true if the block exists
+     */
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < cols && y < rows;
+    }
+
+    /**
+     * Check whether this grid is small enough to keep its occupancy in a single long
+     * @return true if the grid has at most 64 blocks
+     */
+    public boolean isCompact() {
+        return cols * rows <= COMPACT_CELLS;
+    }
+
+    /**
+     * Get the occupancy bitmask of a compact grid, with bit y * cols + x set for every filled block
+     * @return occupancy bitmask
+     */
+    public long getOccupancy() {
+        if (wideOccupancy != null) {
+            throw new IllegalStateException("Grid of " + cols + "x" + rows + " does not fit in a single word");
+        }
+        return occupancy;
+    }
+
+    /**
+     * Get one 64 bit word of the occupancy bitmask. Works for grids of any size.
+     * @param word word index
+     * @return occupancy of blocks word * 64 to word * 64 + 63
+     */
+    public long getOccupancyWord(int word) {
+        if (wideOccupancy == null) {
+            return word == 0 ? occupancy : 0;
+        }
+        return wideOccupancy[word];
+    }
+
+    /**
+     * Get the Zobrist hash of the blocks of this grid. Grids holding the same values have the same hash.
+     * @return hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Empty every block in the given mask of a compact grid
+     * @param mask bit y * cols + x set for every block to empty
+     */
+    public void clear(long mask) {
+        for (long remaining = mask & occupancy; remaining != 0; remaining &= remaining - 1) {
+            int index = Long.numberOfTrailingZeros(remaining);
+            store(index % cols, index / cols, 0);
+        }
+        if (placements != null) {
+            placements.emptied(mask, occupancy);
+        }
+    }
+
+    /**
+     * Get the index of legal placements of every piece on this compact grid, building it if needed
+     * @return placement index
+     */
+    public PlacementIndex getPlacementIndex() {
+        if (placements == null) {
+            placements = new PlacementIndex(cols, rows, getOccupancy());
+        }
+        return placements;
     }
 
     /**
@@ -105,39 +245,23 @@ public class Grid {
      * @return if piece can be played
      */
     public boolean canPlayPiece(GamePiece gamePiece,int gridX,int gridY)  {
-        //Use center of a GamePiece in a 3x3 grid (1,1) to offset the block clicked on the grid
-        offsetX=gridX-1;
-        offsetY=gridY-1;
-        logger.info("offset: ("+offsetX+", " + offsetY +")");
-
-        int playableBlock=0;
-        int totalBlocks=0;
-        try {
-            for (int x = 0; x < gamePiece.getBlocks().length; x++) {
-                for (int y = 0; y < gamePiece.getBlocks()[x].length; y++) {
-                    if (gamePiece.getBlocks()[x][y] != 0) {
-                        totalBlocks++;
-
-                        //If space on board is empty, then that block is playable
-                        if (grid[x + offsetX][y + offsetY].get() == 0) {
-                            playableBlock++;
-                        } else {
-                            Multimedia.playSound("fail.wav");
-                            return false;
-                            //throw new Exception("Piece cannot be played");
-                            //Return false as soon as a GamePiece does not have a corresponding empty block on the grid
-
-                        }
-                    }
-                }
-            }
-        }catch (ArrayIndexOutOfBoundsException e){
-            logger.info("Cannot place block");
-            Multimedia.playSound("fail.wav");
+        if (!inBounds(gridX, gridY)) {
+            return false;
+        }
+
+        //On a compact grid every legal placement is already known
+        if (wideOccupancy == null) {
+            return getPlacementIndex().isLegal(gamePiece, gridY * cols + gridX);
         }
-        //Return true if the all blocks in the gamepiece are playable
-        return totalBlocks == playableBlock;
 
+        //Each block of the piece is stored relative to its centre, so offset it by the block clicked on the grid
+        for (int block = 0; block < gamePiece.getBlockCount(); block++) {
+            //Return false as soon as a GamePiece does not have a corresponding empty block on the grid
+            if (get(gridX + gamePiece.getOffsetX(block), gridY + gamePiece.getOffsetY(block)) != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -147,21 +271,70 @@ public class Grid {
      * @param gridY y coordinate postion of block
      */
     public void playPiece(GamePiece gamePiece,int gridX,int gridY) {
-        Multimedia.playSound("place.wav");
-
         //If game piece can be played, set the corresponding coordinates to the value of the game piece
         if (canPlayPiece(gamePiece,gridX,gridY)) {
-            for (int x = 0; x < gamePiece.getBlocks().length; x++) {
-                for (int y = 0; y < gamePiece.getBlocks()[x].length; y++) {
-                    if (gamePiece.getBlocks()[x][y] != 0) {
-                        grid[x+offsetX][y+offsetY].set(gamePiece.getValue());
+            for (int block = 0; block < gamePiece.getBlockCount(); block++) {
+                store(gridX + gamePiece.getOffsetX(block), gridY + gamePiece.getOffsetY(block), gamePiece.getValue());
+            }
+            if (placements != null) {
+                placements.filled(placements.getTable().getFootprint(gamePiece.getIndex(), gridY * cols + gridX));
+            }
+        }
+    }
 
-                    }else {}
-                }
+    /**
+     * Fill exactly the blocks in a mask of a compact grid, giving newly filled blocks the given value and keeping the
+     * value of blocks which were already filled
+     * @param mask bit y * cols + x set for every block to fill
+     * @param value value of newly filled blocks
+     */
+    public void load(long mask, int value) {
+        for (int index = 0; index < colours.length; index++) {
+            boolean filled = (mask & (1L << index)) != 0;
+            if (filled != (colours[index] != 0)) {
+                store(index % cols, index / cols, filled ? value : 0);
             }
         }
+        if (placements != null) {
+            placements.rebuild(occupancy);
+        }
+    }
+
+    /**
+     * Get the number of bytes writeTo uses for this grid, half a byte per block
+     * @return number of bytes
+     */
+    public int getSnapshotBytes() {
+        return (colours.length + 1) / 2;
+    }
+
+    /**
+     * Write the value of every block, two blocks to a byte
+     * @param buffer buffer to write getSnapshotBytes() bytes into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        for (int index = 0; index < colours.length; index += 2) {
+            int high = index + 1 < colours.length ? colours[index + 1] : 0;
+            buffer.put((byte) (colours[index] | high << 4));
+        }
     }
 
+    /**
+     * Restore the value of every block from a buffer written by writeTo
+     * @param buffer buffer to read getSnapshotBytes() bytes from
+     */
+    public void readFrom(ByteBuffer buffer) {
+        for (int index = 0; index < colours.length; index += 2) {
+            int packed = buffer.get();
+            store(index % cols, index / cols, packed & 0xF);
+            if (index + 1 < colours.length) {
+                store((index + 1) % cols, (index + 1) / cols, (packed >>> 4) & 0xF);
+            }
+        }
+        if (placements != null) {
+            placements.rebuild(occupancy);
+        }
+    }
 
     /**
      * Get the number of columns in this game
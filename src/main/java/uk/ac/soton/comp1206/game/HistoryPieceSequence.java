@@ -0,0 +1,102 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Deals pieces at random, but rerolls a few times when the piece was one of the last few dealt, making repeats less
+ * likely without ruling them out.
+ */
+public class HistoryPieceSequence extends PieceSequence {
+
+    /**
+     * Number of recent pieces remembered
+     */
+    public static final int HISTORY = 4;
+
+    /**
+     * Number of times a recent piece is rerolled before it is accepted
+     */
+    public static final int REROLLS = 4;
+
+    /**
+     * The most recent pieces, 4 bits each, newest in the lowest bits. Empty slots hold 0xF, which is not a piece.
+     */
+    private int history = 0xFFFF;
+
+    /**
+     * Create a sequence starting from the given seed
+     * @param seed seed of the generator
+     */
+    public HistoryPieceSequence(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Create a copy of a sequence
+     * @param other sequence to copy
+     */
+    private HistoryPieceSequence(HistoryPieceSequence other) {
+        super(other);
+        this.history = other.history;
+    }
+
+    /**
+     * Deal the next piece, rerolling recent pieces
+     * @return piece number
+     */
+    @Override
+    public int next() {
+        int piece = nextInt(GamePiece.PIECES);
+        for (int roll = 0; roll < REROLLS && isRecent(piece); roll++) {
+            piece = nextInt(GamePiece.PIECES);
+        }
+        history = ((history << 4) | piece) & 0xFFFF;
+        return piece;
+    }
+
+    /**
+     * Check whether a piece is in the history
+     * @param piece piece number
+     * @return true if it was dealt recently
+     */
+    private boolean isRecent(int piece) {
+        for (int slot = 0; slot < HISTORY; slot++) {
+            if (((history >>> (slot * 4)) & 0xF) == piece) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Create an exact copy of this sequence
+     * @return copy
+     */
+    @Override
+    public PieceSequence fork() {
+        return new HistoryPieceSequence(this);
+    }
+
+    /**
+     * Create a new independent sequence, starting with an empty history
+     * @return new sequence
+     */
+    @Override
+    public PieceSequence split() {
+        return new HistoryPieceSequence(splitSeed());
+    }
+
+    /**
+     * Get the state of this sequence beyond the generator
+     * @return state
+     */
+    @Override
+    protected long getStrategyState() {
+        return history;
+    }
+
+    /**
+     * Restore the state of this sequence beyond the generator
+     * @param strategyState state
+     */
+    @Override
+    protected void setStrategyState(long strategyState) {
+        history = (int) strategyState & 0xFFFF;
+    }
+}
@@ -0,0 +1,137 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.Arrays;
+
+/**
+ * Decides which level a score reaches and how long the game loop lasts at each level.
+ *
+ * The score needed for each level and the delay of each level are precomputed into tables. A level is found by binary
+ * search over the thresholds, and levels beyond the table carry on with a fixed number of points per level, so looking
+ * up a level takes the same time however high the score is.
+ */
+public class LevelProgression {
+
+    /**
+     * Number of levels precomputed by linear
+     */
+    private static final int TABLE_LEVELS = 64;
+
+    /**
+     * Progression of the Challenge Mode: a level every 1000 points, loops shortening by 500ms from 12 seconds down to
+     * 2.5 seconds
+     */
+    public static final LevelProgression CHALLENGE = linear(1000, 12000, 500, 2500);
+
+    /**
+     * Progression of the Special Mode, the same curve as the Challenge Mode
+     */
+    public static final LevelProgression SPECIAL = linear(1000, 12000, 500, 2500);
+
+    /**
+     * Score needed to reach each level, thresholds[i] for level i + 1, ascending
+     */
+    private final int[] thresholds;
+
+    /**
+     * Points per level after the last threshold
+     */
+    private final int step;
+
+    /**
+     * Game loop delay at each level, the last entry is used for every level beyond the table
+     */
+    private final long[] delays;
+
+    /**
+     * Create a progression from precomputed tables
+     * @param thresholds score needed to reach each level from level 1, ascending
+     * @param step points per level after the last threshold
+     * @param delays game loop delay in milliseconds at each level from level 0
+     */
+    public LevelProgression(int[] thresholds, int step, long[] delays) {
+        if (step <= 0) {
+            throw new IllegalArgumentException("Points per level must be positive: " + step);
+        }
+        if (delays.length == 0) {
+            throw new IllegalArgumentException("At least one delay is needed");
+        }
+        for (int i = 1; i < thresholds.length; i++) {
+            if (thresholds[i] <= thresholds[i - 1]) {
+                throw new IllegalArgumentException("Level thresholds must be ascending");
+            }
+        }
+        this.thresholds = thresholds.clone();
+        this.step = step;
+        this.delays = delays.clone();
+    }
+
+    /**
+     * Create a progression with a level every fixed number of points and a delay shortening by a fixed amount each
+     * level down to a minimum
+     * @param pointsPerLevel points per level
+     * @param startDelay delay at level 0 in milliseconds
+     * @param delayStep reduction of the delay per level in milliseconds
+     * @param minDelay shortest delay in milliseconds
+     * @return the progression
+     */
+    public static LevelProgression linear(int pointsPerLevel, long startDelay, long delayStep, long minDelay) {
+        int[] thresholds = new int[TABLE_LEVELS];
+        long[] delays = new long[TABLE_LEVELS + 1];
+        for (int level = 0; level <= TABLE_LEVELS; level++) {
+            delays[level] = Math.max(minDelay, startDelay - delayStep * level);
+            if (level < TABLE_LEVELS) {
+                thresholds[level] = pointsPerLevel * (level + 1);
+            }
+        }
+        return new LevelProgression(thresholds, pointsPerLevel, delays);
+    }
+
+    /**
+     * Get the progression of a game mode
+     * @param mode game mode
+     * @return the progression
+     */
+    public static LevelProgression forMode(String mode) {
+        return GameEngine.SPECIAL_MODE.equals(mode) ? SPECIAL : CHALLENGE;
+    }
+
+    /**
+     * Get the level reached with a score
+     * @param score the score
+     * @return level, 0 until the first threshold
+     */
+    public int levelFor(int score) {
+        if (thresholds.length == 0) {
+            return Math.max(0, score / step);
+        }
+        int last = thresholds[thresholds.length - 1];
+        if (score >= last) {
+            //Beyond the table, carry on with a fixed number of points per level
+            return thresholds.length + (score - last) / step;
+        }
+        int found = Arrays.binarySearch(thresholds, score);
+        //An exact match reaches that level, otherwise the insertion point is the number of thresholds passed
+        return found >= 0 ? found + 1 : -found - 1;
+    }
+
+    /**
+     * Get the score needed to reach a level
+     * @param level the level
+     * @return score needed, 0 for level 0
+     */
+    public int getThreshold(int level) {
+        if (level <= 0) return 0;
+        if (level <= thresholds.length) return thresholds[level - 1];
+        int last = thresholds.length == 0 ? 0 : thresholds[thresholds.length - 1];
+        return last + (level - thresholds.length) * step;
+    }
+
+    /**
+     * Get the game loop delay at a level
+     * @param level the level
+     * @return delay in milliseconds
+     */
+    public long getDelay(int level) {
+        return delays[Math.max(0, Math.min(level, delays.length - 1))];
+    }
+}
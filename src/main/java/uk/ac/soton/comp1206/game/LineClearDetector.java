@@ -0,0 +1,132 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the full rows and columns of a compact grid from its occupancy bitmask.
+ *
+ * A row is full when its block and the cols - 1 blocks after it are all set, and a column is full when its block and
+ * the rows - 1 blocks below it are all set. Both checks are made for every row and column at once by ANDing shifted
+ * copies of the occupancy, then spread back out into a mask of cleared blocks with the precomputed row and column
+ * masks. Nothing is allocated per check.
+ *
+ * One detector is shared by every grid of the same size.
+ */
+public class LineClearDetector {
+
+    /**
+     * Detectors already built, keyed by cols * 64 + rows
+     */
+    private static final ConcurrentHashMap<Integer, LineClearDetector> DETECTORS = new ConcurrentHashMap<>();
+
+    private final int cols;
+    private final int rows;
+
+    /**
+     * The first block of every row
+     */
+    private final long rowStarts;
+
+    /**
+     * Every block of the first row
+     */
+    private final long firstRow;
+
+    /**
+     * The first block of every row of the first column, used to spread a full column down the grid
+     */
+    private final long firstColumn;
+
+    /**
+     * Get the detector for grids of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the detector
+     */
+    public static LineClearDetector forSize(int cols, int rows) {
+        if (cols * rows > Grid.COMPACT_CELLS) {
+            throw new IllegalArgumentException("Grid of " + cols + "x" + rows + " is larger than " + Grid.COMPACT_CELLS + " blocks");
+        }
+        return DETECTORS.computeIfAbsent(cols * Grid.COMPACT_CELLS + rows, key -> new LineClearDetector(cols, rows));
+    }
+
+    /**
+     * Precompute the masks for a grid of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    private LineClearDetector(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+
+        long rowStarts = 0;
+        for (int y = 0; y < rows; y++) {
+            rowStarts |= 1L << (y * cols);
+        }
+        this.rowStarts = rowStarts;
+        this.firstColumn = rowStarts;
+        this.firstRow = cols == Long.SIZE ? -1L : (1L << cols) - 1;
+    }
+
+    /**
+     * Find every block in a full row or column
+     * @param occupancy occupancy of the grid
+     * @return mask of the blocks to clear
+     */
+    public long detect(long occupancy) {
+        //Blocks are spaced a whole row apart, so multiplying never carries between them
+        return fullRows(occupancy) * firstRow | fullColumns(occupancy) * firstColumn;
+    }
+
+    /**
+     * Count the lines in a mask returned by detect. Every block of a cleared line is in the mask, and a line with every
+     * block in the mask must have been full.
+     * @param cleared mask of cleared blocks
+     * @return number of rows and columns cleared
+     */
+    public int countLines(long cleared) {
+        return Long.bitCount(fullRows(cleared)) + Long.bitCount(fullColumns(cleared));
+    }
+
+    /**
+     * Find the full rows
+     * @param occupancy occupancy of the grid
+     * @return the first block of every full row
+     */
+    private long fullRows(long occupancy) {
+        long full = occupancy;
+        for (int x = 1; x < cols; x++) {
+            full &= occupancy >>> x;
+        }
+        return full & rowStarts;
+    }
+
+    /**
+     * Find the full columns
+     * @param occupancy occupancy of the grid
+     * @return the block in the first row of every full column
+     */
+    private long fullColumns(long occupancy) {
+        long full = occupancy;
+        for (int y = 1; y < rows; y++) {
+            full &= occupancy >>> (y * cols);
+        }
+        return full & firstRow;
+    }
+
+    /**
+     * Get the number of columns this detector works on
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows this detector works on
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+}
@@ -0,0 +1,137 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The outcome of placing a piece with the GameEngine. Holds whether the piece was placed, which blocks were cleared
+ * and how the score changed as a result.
+ */
+public class MoveResult {
+
+    /**
+     * Result returned when a piece could not be placed
+     */
+    public static final MoveResult ILLEGAL = new MoveResult(false, 0, 0, 0, 0L, 0, false);
+
+    /**
+     * Result returned when a piece was placed without clearing any lines
+     */
+    public static final MoveResult PLACED = new MoveResult(true, 0, 0, 0, 0L, 0, false);
+
+    /**
+     * Whether the piece was placed
+     */
+    private final boolean placed;
+
+    /**
+     * Number of lines cleared
+     */
+    private final int lines;
+
+    /**
+     * Number of blocks cleared
+     */
+    private final int blocks;
+
+    /**
+     * Points added to the score
+     */
+    private final int points;
+
+    /**
+     * Bitmask of the blocks cleared, bit y * cols + x
+     */
+    private final long clearedMask;
+
+    /**
+     * Number of levels gained
+     */
+    private final int levelsGained;
+
+    /**
+     * Whether a bonus life was gained
+     */
+    private final boolean lifeGained;
+
+    /**
+     * Create a new result. Only created by the GameEngine.
+     * @param placed whether the piece was placed
+     * @param lines number of lines cleared
+     * @param blocks number of blocks cleared
+     * @param points points added to the score
+     * @param clearedMask bitmask of the blocks cleared
+     * @param levelsGained number of levels gained
+     * @param lifeGained whether a bonus life was gained
+     */
+    MoveResult(boolean placed, int lines, int blocks, int points, long clearedMask, int levelsGained, boolean lifeGained) {
+        this.placed = placed;
+        this.lines = lines;
+        this.blocks = blocks;
+        this.points = points;
+        this.clearedMask = clearedMask;
+        this.levelsGained = levelsGained;
+        this.lifeGained = lifeGained;
+    }
+
+    /**
+     * Whether the piece was placed
+     * @return true if placed
+     */
+    public boolean isPlaced() {
+        return placed;
+    }
+
+    /**
+     * Get the number of lines cleared
+     * @return lines cleared
+     */
+    public int getLines() {
+        return lines;
+    }
+
+    /**
+     * Get the number of blocks cleared
+     * @return blocks cleared
+     */
+    public int getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Get the points added to the score
+     * @return points
+     */
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * Get the bitmask of blocks cleared, with bit y * cols + x set for every cleared block
+     * @return cleared blocks
+     */
+    public long getClearedMask() {
+        return clearedMask;
+    }
+
+    /**
+     * Get the number of levels gained
+     * @return levels gained
+     */
+    public int getLevelsGained() {
+        return levelsGained;
+    }
+
+    /**
+     * Whether a bonus life was gained
+     * @return true if a life was gained
+     */
+    public boolean isLifeGained() {
+        return lifeGained;
+    }
+
+    /**
+     * Return a string representation of this result
+     * @return string representation
+     */
+    @Override public String toString() {
+        return "MoveResult [placed = " + placed + ", lines = " + lines + ", blocks = " + blocks + ", points = " + points + "]";
+    }
+}
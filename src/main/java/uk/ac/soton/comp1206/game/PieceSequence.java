@@ -0,0 +1,162 @@
+package uk.ac.soton.comp1206.game;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deals the numbers of the pieces a game is given, from a seeded SplitMix64 generator.
+ *
+ * Every sequence owns its generator, so games never contend on a shared Random and the same seed always deals the
+ * same pieces. A sequence can be forked, giving an exact copy which deals the same pieces from then on (for searches
+ * exploring alternative futures), or split, giving a new independent sequence (for running games in parallel).
+ *
+ * Subclasses decide how random numbers become pieces. Their state must fit in a long, so the whole sequence can be
+ * saved in BYTES bytes.
+ */
+public abstract class PieceSequence {
+
+    /**
+     * Number of bytes written by writeTo
+     */
+    public static final int BYTES = 2 * Long.BYTES;
+
+    /**
+     * Increment of the SplitMix64 generator
+     */
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Hands out a different default seed to every new game
+     */
+    private static final AtomicLong SEEDER = new AtomicLong(mix(System.currentTimeMillis()) ^ mix(System.nanoTime()));
+
+    /**
+     * The seed this sequence started from
+     */
+    private final long seed;
+
+    /**
+     * State of the generator
+     */
+    private long state;
+
+    /**
+     * Create a sequence starting from the given seed
+     * @param seed seed of the generator
+     */
+    protected PieceSequence(long seed) {
+        this.seed = seed;
+        this.state = seed;
+    }
+
+    /**
+     * Create a copy of a sequence, dealing the same pieces from now on
+     * @param other sequence to copy
+     */
+    protected PieceSequence(PieceSequence other) {
+        this.seed = other.seed;
+        this.state = other.state;
+    }
+
+    /**
+     * Get a new seed, different for every call
+     * @return seed
+     */
+    public static long newSeed() {
+        return mix(SEEDER.getAndAdd(2 * GAMMA));
+    }
+
+    /**
+     * Deal the next piece
+     * @return piece number, 0 to GamePiece.PIECES - 1
+     */
+    public abstract int next();
+
+    /**
+     * Create an exact copy of this sequence which deals the same pieces as this one from now on
+     * @return copy of this sequence
+     */
+    public abstract PieceSequence fork();
+
+    /**
+     * Create a new sequence of the same kind, seeded from this one, which deals its own independent pieces
+     * @return new sequence
+     */
+    public abstract PieceSequence split();
+
+    /**
+     * Get the state of the subclass, for saving
+     * @return state
+     */
+    protected abstract long getStrategyState();
+
+    /**
+     * Restore the state of the subclass
+     * @param strategyState state returned by getStrategyState
+     */
+    protected abstract void setStrategyState(long strategyState);
+
+    /**
+     * Get a seed for a split sequence, advancing this one
+     * @return seed
+     */
+    protected long splitSeed() {
+        return mix(nextLong() ^ GAMMA);
+    }
+
+    /**
+     * Get the next 64 random bits
+     * @return random bits
+     */
+    protected long nextLong() {
+        state += GAMMA;
+        return mix(state);
+    }
+
+    /**
+     * Get a random number in a range
+     * @param bound upper bound, exclusive
+     * @return random number from 0 to bound - 1
+     */
+    protected int nextInt(int bound) {
+        //Multiply the top 32 bits into the range instead of dividing
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * Get the seed this sequence started from
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Write the current state of this sequence
+     * @param buffer buffer to write BYTES bytes into
+     */
+    public void writeTo(ByteBuffer buffer) {
+        buffer.putLong(state);
+        buffer.putLong(getStrategyState());
+    }
+
+    /**
+     * Restore a state written by writeTo, so this sequence carries on dealing from there
+     * @param buffer buffer to read BYTES bytes from
+     */
+    public void readFrom(ByteBuffer buffer) {
+        state = buffer.getLong();
+        setStrategyState(buffer.getLong());
+    }
+
+    /**
+     * Mix the bits of a value, the SplitMix64 output function
+     * @param z value
+     * @return mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
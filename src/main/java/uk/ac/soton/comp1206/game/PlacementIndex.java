@@ -0,0 +1,111 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Keeps track of where every piece and rotation can currently be placed on a compact grid.
+ *
+ * For each entry of the GamePiece rotation table the index holds a mask of the anchors (the block the centre of the
+ * piece is placed on) at which the piece fits. The masks are updated incrementally as blocks are filled and emptied,
+ * so checking a placement or whether any move exists is a bit test.
+ */
+public class PlacementIndex {
+
+    /**
+     * Geometry of the grid this index belongs to
+     */
+    private final PlacementTable table;
+
+    /**
+     * Legal anchors of each rotation table entry
+     */
+    private final long[] legal = new long[PlacementTable.ENTRIES];
+
+    /**
+     * Create an index for a grid with the given size and occupancy
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param occupancy current occupancy of the grid
+     */
+    public PlacementIndex(int cols, int rows, long occupancy) {
+        this.table = PlacementTable.forSize(cols, rows);
+        rebuild(occupancy);
+    }
+
+    /**
+     * Work out every legal anchor again from scratch
+     * @param occupancy occupancy of the grid
+     */
+    public void rebuild(long occupancy) {
+        for (int entry = 0; entry < PlacementTable.ENTRIES; entry++) {
+            legal[entry] = table.legalAnchors(entry, occupancy);
+        }
+    }
+
+    /**
+     * Update the index after blocks were filled. Any anchor covering a filled block is no longer legal.
+     * @param filled mask of blocks that were filled
+     */
+    public void filled(long filled) {
+        for (int entry = 0; entry < PlacementTable.ENTRIES; entry++) {
+            long blocked = 0;
+            for (long remaining = filled; remaining != 0; remaining &= remaining - 1) {
+                blocked |= table.getCoveringAnchors(entry, Long.numberOfTrailingZeros(remaining));
+            }
+            legal[entry] &= ~blocked;
+        }
+    }
+
+    /**
+     * Update the index after blocks were emptied. Only anchors covering an emptied block need checking again.
+     * @param emptied mask of blocks that were emptied
+     * @param occupancy occupancy of the grid after emptying them
+     */
+    public void emptied(long emptied, long occupancy) {
+        for (int entry = 0; entry < PlacementTable.ENTRIES; entry++) {
+            long candidates = 0;
+            for (long remaining = emptied; remaining != 0; remaining &= remaining - 1) {
+                candidates |= table.getCoveringAnchors(entry, Long.numberOfTrailingZeros(remaining));
+            }
+            candidates &= ~legal[entry];
+            if (candidates != 0) {
+                legal[entry] |= table.legalAnchors(entry, occupancy, candidates);
+            }
+        }
+    }
+
+    /**
+     * Check whether a piece can be placed at an anchor
+     * @param piece piece to place
+     * @param anchor block the centre of the piece is placed on
+     * @return true if the piece fits
+     */
+    public boolean isLegal(GamePiece piece, int anchor) {
+        return (legal[piece.getIndex()] & (1L << anchor)) != 0;
+    }
+
+    /**
+     * Get every anchor a piece can be placed at
+     * @param piece piece to place
+     * @return mask of legal anchors
+     */
+    public long getLegalAnchors(GamePiece piece) {
+        return legal[piece.getIndex()];
+    }
+
+    /**
+     * Check whether a piece can be placed anywhere in any rotation
+     * @param piece piece to check
+     * @return true if there is a legal placement
+     */
+    public boolean hasPlacement(GamePiece piece) {
+        int first = piece.getNumber() * GamePiece.ROTATIONS;
+        return (legal[first] | legal[first + 1] | legal[first + 2] | legal[first + 3]) != 0;
+    }
+
+    /**
+     * Get the placement geometry this index uses
+     * @return placement table
+     */
+    public PlacementTable getTable() {
+        return table;
+    }
+}
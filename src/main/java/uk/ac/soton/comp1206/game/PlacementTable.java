@@ -0,0 +1,180 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed placement geometry of every piece and rotation on a compact grid.
+ *
+ * For each entry of the GamePiece rotation table and each anchor block (the block the centre of the piece is placed
+ * on, index y * cols + x) the table holds the mask of blocks the piece would cover. The reverse is also kept: for each
+ * block, the anchors whose placement would cover it, so a change to one block only needs the affected anchors to be
+ * checked again.
+ *
+ * One table is shared by every grid of the same size.
+ */
+public class PlacementTable {
+
+    /**
+     * Number of entries in the GamePiece rotation table
+     */
+    public static final int ENTRIES = GamePiece.PIECES * GamePiece.ROTATIONS;
+
+    /**
+     * Tables already built, keyed by cols * 64 + rows
+     */
+    private static final ConcurrentHashMap<Integer, PlacementTable> TABLES = new ConcurrentHashMap<>();
+
+    private final int cols;
+    private final int rows;
+
+    /**
+     * Blocks covered by each entry at each anchor, 0 where the piece would leave the grid
+     */
+    private final long[][] footprints;
+
+    /**
+     * Anchors at which each entry stays inside the grid
+     */
+    private final long[] validAnchors;
+
+    /**
+     * Anchors at which each entry would cover each block
+     */
+    private final long[][] coveringAnchors;
+
+    /**
+     * Distance in bits from the anchor to each block of each entry, y offset * cols + x offset
+     */
+    private final int[][] shifts;
+
+    /**
+     * Get the table for grids of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     * @return the table
+     */
+    public static PlacementTable forSize(int cols, int rows) {
+        if (cols * rows > Grid.COMPACT_CELLS) {
+            throw new IllegalArgumentException("Grid of " + cols + "x" + rows + " is larger than " + Grid.COMPACT_CELLS + " blocks");
+        }
+        return TABLES.computeIfAbsent(cols * Grid.COMPACT_CELLS + rows, key -> new PlacementTable(cols, rows));
+    }
+
+    /**
+     * Build the table for a grid of the given size
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    private PlacementTable(int cols, int rows) {
+        this.cols = cols;
+        this.rows = rows;
+        int cells = cols * rows;
+
+        footprints = new long[ENTRIES][cells];
+        validAnchors = new long[ENTRIES];
+        coveringAnchors = new long[ENTRIES][cells];
+        shifts = new int[ENTRIES][];
+
+        for (int entry = 0; entry < ENTRIES; entry++) {
+            GamePiece piece = GamePiece.fromIndex(entry);
+            shifts[entry] = new int[piece.getBlockCount()];
+            for (int block = 0; block < piece.getBlockCount(); block++) {
+                shifts[entry][block] = piece.getOffsetY(block) * cols + piece.getOffsetX(block);
+            }
+            for (int anchor = 0; anchor < cells; anchor++) {
+                int anchorX = anchor % cols;
+                int anchorY = anchor / cols;
+                long footprint = 0;
+                for (int block = 0; block < piece.getBlockCount(); block++) {
+                    int x = anchorX + piece.getOffsetX(block);
+                    int y = anchorY + piece.getOffsetY(block);
+                    if (x < 0 || y < 0 || x >= cols || y >= rows) {
+                        //The piece would leave the grid, so it can never be placed here
+                        footprint = 0;
+                        break;
+                    }
+                    footprint |= 1L << (y * cols + x);
+                }
+                if (footprint == 0) continue;
+
+                footprints[entry][anchor] = footprint;
+                validAnchors[entry] |= 1L << anchor;
+                for (long covered = footprint; covered != 0; covered &= covered - 1) {
+                    coveringAnchors[entry][Long.numberOfTrailingZeros(covered)] |= 1L << anchor;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the blocks covered by a piece placed at an anchor
+     * @param entry rotation table index of the piece
+     * @param anchor block the centre of the piece is placed on
+     * @return mask of covered blocks, 0 if the piece would leave the grid
+     */
+    public long getFootprint(int entry, int anchor) {
+        return footprints[entry][anchor];
+    }
+
+    /**
+     * Get the anchors at which a piece stays inside the grid
+     * @param entry rotation table index of the piece
+     * @return mask of anchors
+     */
+    public long getValidAnchors(int entry) {
+        return validAnchors[entry];
+    }
+
+    /**
+     * Get the anchors at which a piece would cover a block
+     * @param entry rotation table index of the piece
+     * @param block index of the block
+     * @return mask of anchors
+     */
+    public long getCoveringAnchors(int entry, int block) {
+        return coveringAnchors[entry][block];
+    }
+
+    /**
+     * Work out every anchor at which a piece can be placed on a grid with the given occupancy
+     * @param entry rotation table index of the piece
+     * @param occupancy occupancy of the grid
+     * @return mask of legal anchors
+     */
+    public long legalAnchors(int entry, long occupancy) {
+        return legalAnchors(entry, occupancy, validAnchors[entry]);
+    }
+
+    /**
+     * Work out which of the given anchors a piece can be placed at
+     * @param entry rotation table index of the piece
+     * @param occupancy occupancy of the grid
+     * @param candidates anchors to check
+     * @return mask of legal anchors among the candidates
+     */
+    public long legalAnchors(int entry, long occupancy, long candidates) {
+        //Shift the occupancy onto the anchors once per block of the piece rather than testing each anchor. At a valid
+        //anchor every block is inside the grid, so the shifted bit is always the block the piece would cover there.
+        long blocked = 0;
+        for (int shift : shifts[entry]) {
+            blocked |= shift >= 0 ? occupancy >>> shift : occupancy << -shift;
+        }
+        return candidates & validAnchors[entry] & ~blocked;
+    }
+
+    /**
+     * Get the number of columns this table works on
+     * @return number of columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows this table works on
+     * @return number of rows
+     */
+    public int getRows() {
+        return rows;
+    }
+}
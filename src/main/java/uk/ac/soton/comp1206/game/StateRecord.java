@@ -0,0 +1,151 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The layout of the 5x5 state table: one 4 byte little-endian record for every occupancy of the board, after a
+ * fixed header. Record n describes the board whose occupancy (bit y * 5 + x per filled block) is n.
+ *
+ * Each record packs:
+ * <ul>
+ *     <li>bits 0-14: the pieces with at least one legal placement, bit n for piece number n</li>
+ *     <li>bit 15: whether the board can be reached from an empty board by placing pieces</li>
+ *     <li>bits 16-26: the number of legal placements of every piece, counting rotations with the same shape once</li>
+ *     <li>bits 27-29: the most lines any single placement clears, up to MAX_LINES</li>
+ * </ul>
+ *
+ * The header holds MAGIC, VERSION, the columns and rows, and the number of reachable boards.
+ */
+public final class StateRecord {
+
+    /**
+     * First four bytes of a table file, "TBL1"
+     */
+    public static final int MAGIC = 0x54424C31;
+
+    /**
+     * Version of the layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the board the table describes
+     */
+    public static final int COLS = 5;
+    public static final int ROWS = 5;
+
+    /**
+     * Number of records, one for every occupancy
+     */
+    public static final int STATES = 1 << (COLS * ROWS);
+
+    /**
+     * Size of the header in bytes
+     */
+    public static final int HEADER_BYTES = 64;
+
+    /**
+     * Size of one record in bytes
+     */
+    public static final int BYTES = Integer.BYTES;
+
+    /**
+     * Size of a whole table file in bytes
+     */
+    public static final long FILE_BYTES = HEADER_BYTES + (long) STATES * BYTES;
+
+    /**
+     * Byte offsets of the header fields
+     */
+    public static final int MAGIC_OFFSET = 0;
+    public static final int VERSION_OFFSET = 4;
+    public static final int COLS_OFFSET = 8;
+    public static final int ROWS_OFFSET = 12;
+    public static final int REACHABLE_OFFSET = 16;
+
+    /**
+     * Largest line count a record holds. Only unreachable boards, which already have full lines, can clear more.
+     */
+    public static final int MAX_LINES = 7;
+
+    private static final int PLAYABLE_MASK = (1 << GamePiece.PIECES) - 1;
+    private static final int REACHABLE = 1 << 15;
+    private static final int MOVES_SHIFT = 16;
+    private static final int MOVES_MASK = (1 << 11) - 1;
+    private static final int LINES_SHIFT = 27;
+    private static final int LINES_MASK = MAX_LINES;
+
+    /**
+     * Records are only packed and unpacked
+     */
+    private StateRecord() {
+    }
+
+    /**
+     * Pack a record
+     * @param playable bit n set if piece n has a legal placement
+     * @param reachable whether the board can be reached
+     * @param moves number of legal placements
+     * @param maxLines most lines a single placement clears, 0 to MAX_LINES
+     * @return record
+     */
+    public static int pack(int playable, boolean reachable, int moves, int maxLines) {
+        if (moves > MOVES_MASK || maxLines > LINES_MASK) {
+            throw new IllegalArgumentException("Record out of range: " + moves + " moves, " + maxLines + " lines");
+        }
+        return (playable & PLAYABLE_MASK) | (reachable ? REACHABLE : 0) | moves << MOVES_SHIFT | maxLines << LINES_SHIFT;
+    }
+
+    /**
+     * Get the byte offset of the record of an occupancy in a table file
+     * @param occupancy the board
+     * @return offset
+     */
+    public static long offset(long occupancy) {
+        return HEADER_BYTES + occupancy * BYTES;
+    }
+
+    /**
+     * Get the pieces with at least one legal placement
+     * @param record the record
+     * @return bit n set if piece n can be placed
+     */
+    public static int getPlayable(int record) {
+        return record & PLAYABLE_MASK;
+    }
+
+    /**
+     * Check whether a piece has a legal placement
+     * @param record the record
+     * @param piece piece number
+     * @return true if it can be placed
+     */
+    public static boolean canPlay(int record, int piece) {
+        return (record >>> piece & 1) != 0;
+    }
+
+    /**
+     * Check whether the board can be reached from an empty board
+     * @param record the record
+     * @return true if reachable
+     */
+    public static boolean isReachable(int record) {
+        return (record & REACHABLE) != 0;
+    }
+
+    /**
+     * Get the number of legal placements of every piece
+     * @param record the record
+     * @return number of placements
+     */
+    public static int getMoves(int record) {
+        return record >>> MOVES_SHIFT & MOVES_MASK;
+    }
+
+    /**
+     * Get the most lines a single placement clears
+     * @param record the record
+     * @return number of lines
+     */
+    public static int getMaxLines(int record) {
+        return record >>> LINES_SHIFT & LINES_MASK;
+    }
+}
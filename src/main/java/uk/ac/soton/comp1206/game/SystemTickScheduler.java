@@ -0,0 +1,56 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A TickScheduler driven by the system clock. A single long-lived daemon thread runs the tasks of every game, so
+ * resetting a timer never creates a thread.
+ */
+class SystemTickScheduler implements TickScheduler {
+
+    /**
+     * The shared instance
+     */
+    static final SystemTickScheduler INSTANCE = new SystemTickScheduler();
+
+    /**
+     * The single thread running every scheduled task
+     */
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Create the scheduler and its thread
+     */
+    private SystemTickScheduler() {
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "tick-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        //Drop cancelled tasks straight away so frequent resets do not pile up in the queue
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the current time of the monotonic system clock
+     * @return time in milliseconds
+     */
+    @Override
+    public long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Run a task once after a delay on the scheduler thread
+     * @param task task to run
+     * @param delay delay in milliseconds
+     * @return handle to cancel the task
+     */
+    @Override
+    public Handle schedule(Runnable task, long delay) {
+        ScheduledFuture<?> future = executor.schedule(task, delay, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+}
@@ -0,0 +1,17 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * The outcome of the game loop timer running out without a piece being placed
+ */
+public enum TickResult {
+
+    /**
+     * A life was lost and the upcoming pieces were replaced
+     */
+    LIFE_LOST,
+
+    /**
+     * There were no lives left, the game has ended
+     */
+    GAME_OVER
+}
@@ -0,0 +1,41 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * A clock which can run tasks after a delay. Game timers are driven by a TickScheduler so the real clock can be
+ * swapped for a virtual one in tests and simulations.
+ */
+public interface TickScheduler {
+
+    /**
+     * A scheduled task which can be cancelled before it runs
+     */
+    interface Handle {
+
+        /**
+         * Stop the task from running if it has not run yet
+         */
+        void cancel();
+    }
+
+    /**
+     * Get the current time of this clock
+     * @return time in milliseconds, only meaningful relative to other readings of the same clock
+     */
+    long now();
+
+    /**
+     * Run a task once after a delay
+     * @param task task to run
+     * @param delay delay in milliseconds
+     * @return handle to cancel the task
+     */
+    Handle schedule(Runnable task, long delay);
+
+    /**
+     * Get the scheduler driven by the system clock, shared by every game in this JVM
+     * @return system scheduler
+     */
+    static TickScheduler system() {
+        return SystemTickScheduler.INSTANCE;
+    }
+}
@@ -0,0 +1,67 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Deals every piece with the same chance each time, independently of the pieces dealt before.
+ */
+public class UniformPieceSequence extends PieceSequence {
+
+    /**
+     * Create a sequence starting from the given seed
+     * @param seed seed of the generator
+     */
+    public UniformPieceSequence(long seed) {
+        super(seed);
+    }
+
+    /**
+     * Create a copy of a sequence
+     * @param other sequence to copy
+     */
+    private UniformPieceSequence(UniformPieceSequence other) {
+        super(other);
+    }
+
+    /**
+     * Deal the next piece
+     * @return piece number
+     */
+    @Override
+    public int next() {
+        return nextInt(GamePiece.PIECES);
+    }
+
+    /**
+     * Create an exact copy of this sequence
+     * @return copy
+     */
+    @Override
+    public PieceSequence fork() {
+        return new UniformPieceSequence(this);
+    }
+
+    /**
+     * Create a new independent sequence
+     * @return new sequence
+     */
+    @Override
+    public PieceSequence split() {
+        return new UniformPieceSequence(splitSeed());
+    }
+
+    /**
+     * Get the state of this sequence beyond the generator
+     * @return state
+     */
+    @Override
+    protected long getStrategyState() {
+        return 0;
+    }
+
+    /**
+     * Restore the state of this sequence beyond the generator
+     * @param strategyState state
+     */
+    @Override
+    protected void setStrategyState(long strategyState) {
+    }
+}
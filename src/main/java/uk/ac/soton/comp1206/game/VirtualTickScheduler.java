@@ -0,0 +1,106 @@
+package uk.ac.soton.comp1206.game;
+
+import java.util.PriorityQueue;
+
+/**
+ * A TickScheduler with a virtual clock which only moves when advanced. Tasks run on the thread calling advance, in
+ * deadline order, so tests and simulations can run game timers deterministically and as fast as they like.
+ */
+public class VirtualTickScheduler implements TickScheduler {
+
+    /**
+     * A task waiting for its deadline
+     */
+    private static class Task implements Handle, Comparable<Task> {
+        private final Runnable runnable;
+        private final long deadline;
+        private final long order;
+        private boolean cancelled;
+
+        Task(Runnable runnable, long deadline, long order) {
+            this.runnable = runnable;
+            this.deadline = deadline;
+            this.order = order;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byDeadline = Long.compare(deadline, other.deadline);
+            return byDeadline != 0 ? byDeadline : Long.compare(order, other.order);
+        }
+    }
+
+    /**
+     * Tasks waiting to run, earliest first
+     */
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+
+    /**
+     * The current virtual time
+     */
+    private long now;
+
+    /**
+     * Number of tasks scheduled so far, used to run tasks with equal deadlines in the order they were scheduled
+     */
+    private long scheduled;
+
+    /**
+     * Get the current virtual time
+     * @return time in milliseconds
+     */
+    @Override
+    public long now() {
+        return now;
+    }
+
+    /**
+     * Run a task once the virtual clock has advanced by the delay
+     * @param task task to run
+     * @param delay delay in milliseconds
+     * @return handle to cancel the task
+     */
+    @Override
+    public Handle schedule(Runnable task, long delay) {
+        Task scheduledTask = new Task(task, now + Math.max(0, delay), scheduled++);
+        tasks.add(scheduledTask);
+        return scheduledTask;
+    }
+
+    /**
+     * Move the virtual clock forward, running every task that falls due on the way
+     * @param millis time to advance by in milliseconds
+     */
+    public void advance(long millis) {
+        long target = now + millis;
+        while (!tasks.isEmpty() && tasks.peek().deadline <= target) {
+            Task task = tasks.poll();
+            now = task.deadline;
+            if (!task.cancelled) {
+                task.runnable.run();
+            }
+        }
+        now = target;
+    }
+
+    /**
+     * Move the virtual clock straight to the next task and run it
+     * @return false if there were no tasks waiting
+     */
+    public boolean advanceToNext() {
+        while (!tasks.isEmpty()) {
+            Task task = tasks.poll();
+            now = Math.max(now, task.deadline);
+            if (!task.cancelled) {
+                task.runnable.run();
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,126 @@
+package uk.ac.soton.comp1206.game;
+
+/**
+ * Random 64 bit keys for Zobrist hashing of a game state.
+ *
+ * The hash of a state is the xor of one key per filled block (depending on its value), one for the current piece, one
+ * for the following piece and one for the multiplier. Changing one block only needs its old and new keys xored in, so
+ * the Grid keeps its hash up to date as blocks change.
+ *
+ * The keys come from a fixed seed, so hashes are the same in every run and can be stored, for example in replays.
+ */
+public class Zobrist {
+
+    /**
+     * Increment of the generator the keys are drawn from
+     */
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Number of block values with keys, values are 0 to 15
+     */
+    private static final int VALUES = 16;
+
+    /**
+     * Number of multipliers with keys in the table, larger multipliers are hashed directly
+     */
+    private static final int MULTIPLIERS = 64;
+
+    /**
+     * Keys of each value of each block of a compact grid, 0 for empty blocks
+     */
+    private static final long[] CELLS = new long[Grid.COMPACT_CELLS * VALUES];
+
+    /**
+     * Keys of each entry of the GamePiece rotation table as the current piece
+     */
+    private static final long[] CURRENT = new long[PlacementTable.ENTRIES];
+
+    /**
+     * Keys of each entry of the GamePiece rotation table as the following piece
+     */
+    private static final long[] FOLLOWING = new long[PlacementTable.ENTRIES];
+
+    /**
+     * Keys of each multiplier
+     */
+    private static final long[] MULTIPLIER = new long[MULTIPLIERS];
+
+    static {
+        long state = 0x5eed_7e7e_c5L;
+        for (int index = 0; index < CELLS.length; index++) {
+            //Empty blocks add nothing, so an empty grid hashes to 0
+            if (index % VALUES != 0) {
+                CELLS[index] = mix(state += GAMMA);
+            }
+        }
+        for (int entry = 0; entry < PlacementTable.ENTRIES; entry++) {
+            CURRENT[entry] = mix(state += GAMMA);
+            FOLLOWING[entry] = mix(state += GAMMA);
+        }
+        for (int multiplier = 0; multiplier < MULTIPLIERS; multiplier++) {
+            MULTIPLIER[multiplier] = mix(state += GAMMA);
+        }
+    }
+
+    /**
+     * Not created, all methods are static
+     */
+    private Zobrist() {
+    }
+
+    /**
+     * Get the key of a block holding a value
+     * @param index block index, y * cols + x
+     * @param value value of the block, 0 for empty
+     * @return key
+     */
+    public static long cell(int index, int value) {
+        if (index < Grid.COMPACT_CELLS) {
+            return CELLS[index * VALUES + value];
+        }
+        //Blocks of large grids are hashed directly
+        return value == 0 ? 0 : mix(((long) index * VALUES + value) * GAMMA);
+    }
+
+    /**
+     * Get the key of a piece as the current piece
+     * @param piece the piece
+     * @return key
+     */
+    public static long current(GamePiece piece) {
+        return CURRENT[piece.getIndex()];
+    }
+
+    /**
+     * Get the key of a piece as the following piece
+     * @param piece the piece
+     * @return key
+     */
+    public static long following(GamePiece piece) {
+        return FOLLOWING[piece.getIndex()];
+    }
+
+    /**
+     * Get the key of a multiplier
+     * @param multiplier the multiplier
+     * @return key
+     */
+    public static long multiplier(int multiplier) {
+        if (multiplier >= 0 && multiplier < MULTIPLIERS) {
+            return MULTIPLIER[multiplier];
+        }
+        return mix(~(multiplier * GAMMA));
+    }
+
+    /**
+     * Mix the bits of a value, the SplitMix64 output function
+     * @param z value
+     * @return mixed value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,246 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import uk.ac.soton.comp1206.game.GameEvent;
+
+/**
+ * A recorded game read back from the ReplayFormat: the header describing the game and every event, held in parallel
+ * arrays so a replay of thousands of events is only a few objects.
+ */
+public class Replay {
+
+    private final String mode;
+    private final int cols;
+    private final int rows;
+    private final long seed;
+    private final long started;
+    private final int count;
+    private final byte[] events;
+    private final long[] times;
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * Create a replay
+     * @param mode game mode
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed of the piece sequence
+     * @param started wall clock time the game started
+     * @param count number of events
+     * @param events ordinal of each event
+     * @param times milliseconds from the start to each event
+     * @param xs first argument of each event
+     * @param ys second argument of each event
+     */
+    private Replay(String mode, int cols, int rows, long seed, long started, int count, byte[] events, long[] times,
+                   int[] xs, int[] ys) {
+        this.mode = mode;
+        this.cols = cols;
+        this.rows = rows;
+        this.seed = seed;
+        this.started = started;
+        this.count = count;
+        this.events = events;
+        this.times = times;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Read a replay file
+     * @param path the file
+     * @return replay
+     * @throws IOException if the file cannot be read or is not a replay
+     */
+    public static Replay read(Path path) throws IOException {
+        return read(ByteBuffer.wrap(Files.readAllBytes(path)));
+    }
+
+    /**
+     * Read a replay from a buffer, up to the end of the buffer or the last whole event
+     * @param buffer the buffer, positioned at the header
+     * @return replay
+     * @throws IOException if the buffer does not hold a replay
+     */
+    public static Replay read(ByteBuffer buffer) throws IOException {
+        String mode;
+        int cols, rows;
+        long seed, started;
+        try {
+            if (buffer.getInt() != ReplayFormat.MAGIC) {
+                throw new IOException("Not a replay");
+            }
+            int version = ReplayFormat.getInt(buffer);
+            if (version != ReplayFormat.VERSION) {
+                throw new IOException("Unsupported replay version " + version);
+            }
+            cols = ReplayFormat.getInt(buffer);
+            rows = ReplayFormat.getInt(buffer);
+            mode = ReplayFormat.getString(buffer);
+            seed = buffer.getLong();
+            started = ReplayFormat.getVarint(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Replay header is damaged", e);
+        }
+
+        //Every event takes at least two bytes
+        int capacity = Math.max(1, buffer.remaining() / 2);
+        byte[] events = new byte[capacity];
+        long[] times = new long[capacity];
+        int[] xs = new int[capacity];
+        int[] ys = new int[capacity];
+        int count = 0;
+        long time = 0;
+        while (buffer.hasRemaining()) {
+            int start = buffer.position();
+            try {
+                GameEvent event = ReplayFormat.event(buffer.get());
+                time += ReplayFormat.getVarint(buffer);
+                int x = 0, y = 0;
+                switch (event) {
+                    case PLACE:
+                        x = ReplayFormat.getInt(buffer);
+                        y = ReplayFormat.getInt(buffer);
+                        break;
+                    case ROTATE:
+                    case END:
+                        x = ReplayFormat.getInt(buffer);
+                        break;
+                    default:
+                        break;
+                }
+                events[count] = (byte) event.ordinal();
+                times[count] = time;
+                xs[count] = x;
+                ys[count] = y;
+                count++;
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                //The recording was cut short, keep the events before it
+                buffer.position(start);
+                break;
+            }
+        }
+        return new Replay(mode, cols, rows, seed, started, count, Arrays.copyOf(events, count),
+                Arrays.copyOf(times, count), Arrays.copyOf(xs, count), Arrays.copyOf(ys, count));
+    }
+
+    /**
+     * Get the game mode
+     * @return mode
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the number of columns
+     * @return columns
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Get the number of rows
+     * @return rows
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the seed of the game's uniform piece sequence
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the wall clock time the game started
+     * @return milliseconds since the epoch
+     */
+    public long getStarted() {
+        return started;
+    }
+
+    /**
+     * Get the number of events
+     * @return events
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get an event
+     * @param index index of the event
+     * @return event
+     */
+    public GameEvent getEvent(int index) {
+        return ReplayFormat.event(events[index]);
+    }
+
+    /**
+     * Get the time of an event
+     * @param index index of the event
+     * @return milliseconds from the start of the game
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    /**
+     * Get the first argument of an event
+     * @param index index of the event
+     * @return column for PLACE, turns for ROTATE, score for END, otherwise 0
+     */
+    public int getX(int index) {
+        return xs[index];
+    }
+
+    /**
+     * Get the second argument of an event
+     * @param index index of the event
+     * @return row for PLACE, otherwise 0
+     */
+    public int getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Get the length of the game
+     * @return milliseconds from the start to the last event
+     */
+    public long getDuration() {
+        return count == 0 ? 0 : times[count - 1];
+    }
+
+    /**
+     * Check whether the recording carries on to the end of the game
+     * @return true if the last event is END
+     */
+    public boolean isComplete() {
+        return count > 0 && getEvent(count - 1) == GameEvent.END;
+    }
+
+    /**
+     * Get the final score recorded when the game ended
+     * @return score, or -1 if the recording stops before the end
+     */
+    public int getFinalScore() {
+        return isComplete() ? xs[count - 1] : -1;
+    }
+
+    @Override
+    public String toString() {
+        return "Replay of a " + cols + "x" + rows + " " + mode + " game with seed " + seed + ": " + count + " events over "
+                + getDuration() / 1000 + "s" + (isComplete() ? ", final score " + getFinalScore() : ", unfinished");
+    }
+}
@@ -0,0 +1,719 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameSnapshot;
+
+/**
+ * A directory holding any number of replays, appended into segment files with a fixed-size sidecar index.
+ *
+ * Each entry of a segment holds the replay exactly as it was recorded, followed by a keyframe every KEYFRAME_INTERVAL
+ * events: a GameSnapshot of the game before that event. Jumping to any event of a replay restores the keyframe before
+ * it and plays at most KEYFRAME_INTERVAL - 1 events, however long the game was. Segments are started afresh once they
+ * pass SEGMENT_BYTES.
+ *
+ * The index holds a RECORD_BYTES record per entry with where it is stored and the player, mode, start date, score,
+ * events and length of the game. Both the index and the segments are memory-mapped, so searching millions of games
+ * scans the index in place and reading a replay parses it straight out of its segment, without loading the archive
+ * into the heap.
+ *
+ * Entries are only ever appended, by one thread at a time. Any number of threads can read at once.
+ */
+public class ReplayArchive implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ReplayArchive.class);
+
+    /**
+     * Directory of the archive of this machine's games
+     */
+    public static final String DIRECTORY = "archive";
+
+    /**
+     * Events between keyframes
+     */
+    public static final int KEYFRAME_INTERVAL = 32;
+
+    /**
+     * Size a segment grows to before the next one is started
+     */
+    public static final long SEGMENT_BYTES = 1L << 26;
+
+    /**
+     * First four bytes of the index, "RIX1"
+     */
+    public static final int MAGIC = 0x52495831;
+
+    /**
+     * Version of the index layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Size of the index header and of each record, in bytes
+     */
+    public static final int HEADER_BYTES = 64;
+    public static final int RECORD_BYTES = 64;
+
+    /**
+     * Longest player name kept, in bytes of UTF-8
+     */
+    public static final int MAX_PLAYER_BYTES = 22;
+
+    /**
+     * Most games the archive can hold, as a mapping of the index cannot pass 2GB
+     */
+    public static final int MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+    /**
+     * Number of records the index grows by at a time
+     */
+    private static final int GROWTH = 1 << 14;
+
+    //Byte offsets of the header fields
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int INTERVAL_OFFSET = 8;
+    private static final int COUNT_OFFSET = 16;
+
+    //Byte offsets of the fields of a record
+    private static final int OFFSET = 0;
+    private static final int SEGMENT = 8;
+    private static final int LENGTH = 12;
+    private static final int STARTED = 16;
+    private static final int SCORE = 24;
+    private static final int EVENTS = 28;
+    private static final int DURATION = 32;
+    private static final int KEYFRAMES = 36;
+    private static final int SNAPSHOT = 38;
+    private static final int MODE = 40;
+    private static final int PLAYER_LENGTH = 41;
+    private static final int PLAYER = 42;
+
+    private static final String[] MODES = {GameEngine.CHALLENGE_MODE, GameEngine.SPECIAL_MODE};
+
+    /**
+     * Opens the archive of this machine's games the first time it is asked for
+     */
+    private static class Holder {
+        private static final ReplayArchive INSTANCE = openShared();
+    }
+
+    private final Path directory;
+    private final FileChannel indexChannel;
+
+    /**
+     * The mapped index, replaced by a larger mapping when it fills up
+     */
+    private volatile MappedByteBuffer index;
+
+    /**
+     * Number of entries, only written under the lock of this archive
+     */
+    private volatile int count;
+
+    /**
+     * Segment being appended to
+     */
+    private FileChannel segment;
+    private int segmentNumber;
+
+    /**
+     * Read-only mappings of the segments, each covering the segment as it was when first needed
+     */
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * Open an archive, creating it if the directory has none
+     * @param directory the archive's directory
+     * @throws IOException if the archive cannot be opened or is damaged
+     */
+    public ReplayArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        indexChannel = FileChannel.open(directory.resolve("index.idx"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        boolean created = indexChannel.size() == 0;
+        long records = created ? GROWTH : Math.max(GROWTH, (indexChannel.size() - HEADER_BYTES) / RECORD_BYTES);
+        index = map(records);
+        if (created) {
+            index.putInt(MAGIC_OFFSET, MAGIC);
+            index.putInt(VERSION_OFFSET, VERSION);
+            index.putInt(INTERVAL_OFFSET, KEYFRAME_INTERVAL);
+            index.putLong(COUNT_OFFSET, 0);
+        } else if (index.getInt(MAGIC_OFFSET) != MAGIC || index.getInt(VERSION_OFFSET) != VERSION
+                || index.getInt(INTERVAL_OFFSET) != KEYFRAME_INTERVAL) {
+            indexChannel.close();
+            throw new IOException("Not a version " + VERSION + " replay archive: " + directory.toAbsolutePath());
+        }
+        count = (int) index.getLong(COUNT_OFFSET);
+
+        //Carry on appending to the last segment
+        segmentNumber = count == 0 ? 0 : getSegment(count - 1);
+        segment = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        //Drop anything written after the last entry that made it into the index
+        segment.truncate(count == 0 ? 0 : getOffset(count - 1) + getLength(count - 1)
+                + (long) getKeyframes(count - 1) * getSnapshotBytes(count - 1));
+        logger.info("Opened replay archive {} with {} games", directory.toAbsolutePath(), count);
+    }
+
+    /**
+     * Get the archive of this machine's games, opening it on first use
+     * @return archive, or null if it cannot be opened
+     */
+    public static ReplayArchive get() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Open the archive of this machine's games
+     * @return archive, or null if it cannot be opened
+     */
+    private static ReplayArchive openShared() {
+        try {
+            return new ReplayArchive(Paths.get(DIRECTORY));
+        } catch (IOException e) {
+            logger.error("Unable to open replay archive {}: {}", Paths.get(DIRECTORY).toAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Map the index with room for a number of records
+     * @param records number of records
+     * @return mapping
+     * @throws IOException if it cannot be mapped
+     */
+    private MappedByteBuffer map(long records) throws IOException {
+        MappedByteBuffer mapped = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                HEADER_BYTES + records * RECORD_BYTES);
+        mapped.order(ByteOrder.LITTLE_ENDIAN);
+        return mapped;
+    }
+
+    /**
+     * Get the file of a segment
+     * @param number segment number
+     * @return path
+     */
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%05d.seg", number));
+    }
+
+    /**
+     * Add a replay file to the archive
+     * @param path the replay file
+     * @param player name of the player
+     * @return index of the new entry
+     * @throws IOException if the file cannot be read or the archive written
+     */
+    public int append(Path path, String player) throws IOException {
+        return append(Files.readAllBytes(path), player);
+    }
+
+    /**
+     * Add a replay to the archive, working out its keyframes by playing it
+     * @param bytes the replay as recorded
+     * @param player name of the player
+     * @return index of the new entry
+     * @throws IOException if the bytes are not a replay or the archive cannot be written
+     */
+    public synchronized int append(byte[] bytes, String player) throws IOException {
+        Replay replay = Replay.read(ByteBuffer.wrap(bytes));
+        int mode = Arrays.asList(MODES).indexOf(replay.getMode());
+        if (mode < 0) {
+            throw new IOException("Unknown game mode " + replay.getMode());
+        }
+        if (count >= MAX_ENTRIES) {
+            throw new IOException("Replay archive is full");
+        }
+
+        //Play the replay, taking a keyframe every KEYFRAME_INTERVAL events until the game ends
+        ReplayPlayer keyframer = new ReplayPlayer(replay);
+        int snapshotBytes = GameSnapshot.size(keyframer.getGame().getEngine());
+        int keyframes = (replay.size() + KEYFRAME_INTERVAL - 1) / KEYFRAME_INTERVAL;
+        ByteBuffer entry = ByteBuffer.allocate(bytes.length + keyframes * snapshotBytes);
+        entry.put(bytes);
+        int taken = 0;
+        try {
+            for (; taken < keyframes && !keyframer.getGame().getState(); taken++) {
+                while (keyframer.getPosition() < taken * KEYFRAME_INTERVAL) {
+                    keyframer.step();
+                }
+                if (keyframer.getGame().getState()) break;
+                keyframer.writeKeyframe(entry);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Replay cannot be played", e);
+        }
+        entry.flip();
+
+        //Start a new segment once this one is full
+        if (segment.size() > 0 && segment.size() + entry.remaining() > SEGMENT_BYTES) {
+            segment.force(false);
+            segment.close();
+            //A segment left over from an append that never reached the index is overwritten
+            segment = FileChannel.open(segmentPath(++segmentNumber), StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        long offset = segment.size();
+        while (entry.hasRemaining()) {
+            segment.write(entry, offset + entry.position());
+        }
+
+        if (HEADER_BYTES + (long) (count + 1) * RECORD_BYTES > index.capacity()) {
+            index = map(Math.min(MAX_ENTRIES, (index.capacity() - HEADER_BYTES) / RECORD_BYTES * 2));
+        }
+        MappedByteBuffer index = this.index;
+        int record = record(index, count);
+        index.putLong(record + OFFSET, offset);
+        index.putInt(record + SEGMENT, segmentNumber);
+        index.putInt(record + LENGTH, bytes.length);
+        index.putLong(record + STARTED, replay.getStarted());
+        index.putInt(record + SCORE, replay.getFinalScore());
+        index.putInt(record + EVENTS, replay.size());
+        index.putInt(record + DURATION, (int) Math.min(Integer.MAX_VALUE, replay.getDuration()));
+        index.putShort(record + KEYFRAMES, (short) taken);
+        index.putShort(record + SNAPSHOT, (short) snapshotBytes);
+        index.put(record + MODE, (byte) mode);
+        byte[] name = truncate(player);
+        index.put(record + PLAYER_LENGTH, (byte) name.length);
+        index.put(record + PLAYER, name);
+
+        //The entry only counts once its record is complete
+        index.putLong(COUNT_OFFSET, count + 1);
+        return count++;
+    }
+
+    /**
+     * Get the UTF-8 bytes of a player name, cut short at a character boundary if it is too long
+     * @param player the name
+     * @return bytes
+     */
+    private static byte[] truncate(String player) {
+        byte[] bytes = player.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_PLAYER_BYTES) return bytes;
+        int length = MAX_PLAYER_BYTES;
+        //Step back over continuation bytes so no character is split
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Write everything appended so far to disk
+     * @throws IOException if it cannot be written
+     */
+    public synchronized void force() throws IOException {
+        segment.force(false);
+        index.force();
+    }
+
+    /**
+     * Get the number of games in the archive
+     * @return games
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Get the byte offset of an entry's record in the index
+     * @param entry the entry
+     * @return offset
+     */
+    private int record(int entry) {
+        if (entry < 0 || entry >= count) {
+            throw new IndexOutOfBoundsException("No such game: " + entry);
+        }
+        //Read the mapping after the count, as append grows it before counting the entry
+        return record(index, entry);
+    }
+
+    /**
+     * Get the byte offset of an entry's record in a mapping of the index
+     * @param index the mapping
+     * @param entry the entry
+     * @return offset
+     */
+    private static int record(ByteBuffer index, int entry) {
+        long record = HEADER_BYTES + (long) entry * RECORD_BYTES;
+        if (record + RECORD_BYTES > index.capacity()) {
+            throw new IndexOutOfBoundsException("Game " + entry + " is past the end of the index");
+        }
+        return (int) record;
+    }
+
+    /**
+     * Get the byte offset of an entry in its segment
+     * @param entry the entry
+     * @return offset
+     */
+    private long getOffset(int entry) {
+        int record = record(entry);
+        return index.getLong(record + OFFSET);
+    }
+
+    /**
+     * Get the segment an entry is stored in
+     * @param entry the entry
+     * @return segment number
+     */
+    private int getSegment(int entry) {
+        int record = record(entry);
+        return index.getInt(record + SEGMENT);
+    }
+
+    /**
+     * Get the size of the replay of an entry, without its keyframes
+     * @param entry the entry
+     * @return bytes
+     */
+    private int getLength(int entry) {
+        int record = record(entry);
+        return index.getInt(record + LENGTH);
+    }
+
+    /**
+     * Get the number of keyframes stored with an entry
+     * @param entry the entry
+     * @return keyframes
+     */
+    private int getKeyframes(int entry) {
+        int record = record(entry);
+        return index.getShort(record + KEYFRAMES);
+    }
+
+    /**
+     * Get the size of each keyframe of an entry
+     * @param entry the entry
+     * @return bytes
+     */
+    private int getSnapshotBytes(int entry) {
+        int record = record(entry);
+        return index.getShort(record + SNAPSHOT);
+    }
+
+    /**
+     * Get the name of the player of a game
+     * @param entry the game
+     * @return player
+     */
+    public String getPlayer(int entry) {
+        int record = record(entry);
+        byte[] name = new byte[index.get(record + PLAYER_LENGTH)];
+        index.get(record + PLAYER, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the mode of a game
+     * @param entry the game
+     * @return mode
+     */
+    public String getMode(int entry) {
+        int record = record(entry);
+        return MODES[index.get(record + MODE)];
+    }
+
+    /**
+     * Get the wall clock time a game started
+     * @param entry the game
+     * @return milliseconds since the epoch
+     */
+    public long getStarted(int entry) {
+        int record = record(entry);
+        return index.getLong(record + STARTED);
+    }
+
+    /**
+     * Get the final score of a game
+     * @param entry the game
+     * @return score, or -1 if the recording stops before the end
+     */
+    public int getScore(int entry) {
+        int record = record(entry);
+        return index.getInt(record + SCORE);
+    }
+
+    /**
+     * Get the number of events of a game
+     * @param entry the game
+     * @return events
+     */
+    public int getEvents(int entry) {
+        int record = record(entry);
+        return index.getInt(record + EVENTS);
+    }
+
+    /**
+     * Get the length of a game
+     * @param entry the game
+     * @return milliseconds from the start to the last event
+     */
+    public long getDuration(int entry) {
+        int record = record(entry);
+        return index.getInt(record + DURATION);
+    }
+
+    /**
+     * Find the games matching a search, by scanning the index in place
+     * @param player name of the player, or null for any
+     * @param mode game mode, or null for any
+     * @param from earliest start time, in milliseconds since the epoch
+     * @param to latest start time, in milliseconds since the epoch
+     * @param minScore lowest score
+     * @return matching games, oldest first
+     */
+    public int[] find(String player, String mode, long from, long to, int minScore) {
+        byte[] name = player == null ? null : truncate(player);
+        int modeNumber = mode == null ? -1 : Arrays.asList(MODES).indexOf(mode);
+        //No game is of a mode the archive does not know
+        if (mode != null && modeNumber < 0) return new int[0];
+        //Read the count before the mapping, as append grows the mapping before counting the entry
+        int size = count;
+        MappedByteBuffer index = this.index;
+
+        int[] found = new int[16];
+        int matches = 0;
+        for (int entry = 0; entry < size; entry++) {
+            int record = record(index, entry);
+            long started = index.getLong(record + STARTED);
+            if (started < from || started > to || index.getInt(record + SCORE) < minScore) continue;
+            if (modeNumber >= 0 && index.get(record + MODE) != modeNumber) continue;
+            if (name != null && !matchesPlayer(index, record, name)) continue;
+            if (matches == found.length) found = Arrays.copyOf(found, matches * 2);
+            found[matches++] = entry;
+        }
+        return Arrays.copyOf(found, matches);
+    }
+
+    /**
+     * Check the player of a record without decoding the name
+     * @param index the index
+     * @param record offset of the record
+     * @param name UTF-8 bytes of the name looked for
+     * @return true if they are the same
+     */
+    private static boolean matchesPlayer(ByteBuffer index, int record, byte[] name) {
+        if (index.get(record + PLAYER_LENGTH) != name.length) return false;
+        for (int i = 0; i < name.length; i++) {
+            if (index.get(record + PLAYER + i) != name[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the games with the highest scores
+     * @param games number of games
+     * @param mode game mode, or null for any
+     * @return best games, highest score first
+     */
+    public int[] top(int games, String mode) {
+        int modeNumber = mode == null ? -1 : Arrays.asList(MODES).indexOf(mode);
+        if (mode != null && modeNumber < 0) return new int[0];
+        //Read the count before the mapping, as append grows the mapping before counting the entry
+        int size = count;
+        MappedByteBuffer index = this.index;
+
+        //Keep the best games seen so far, lowest score at the head
+        PriorityQueue<int[]> best = new PriorityQueue<>((a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1])
+                : Integer.compare(b[0], a[0]));
+        for (int entry = 0; entry < size; entry++) {
+            int record = record(index, entry);
+            if (modeNumber >= 0 && index.get(record + MODE) != modeNumber) continue;
+            int score = index.getInt(record + SCORE);
+            if (best.size() < games) {
+                best.add(new int[]{entry, score});
+            } else if (games > 0 && score > best.peek()[1]) {
+                best.poll();
+                best.add(new int[]{entry, score});
+            }
+        }
+        int[] found = new int[best.size()];
+        for (int i = found.length - 1; i >= 0; i--) {
+            found[i] = best.poll()[0];
+        }
+        return found;
+    }
+
+    /**
+     * Get the stored bytes of a game, straight from its mapped segment
+     * @param entry the game
+     * @return read-only buffer of the replay followed by its keyframes
+     * @throws IOException if the segment cannot be mapped
+     */
+    private ByteBuffer entry(int entry) throws IOException {
+        long offset = getOffset(entry);
+        int bytes = getLength(entry) + getKeyframes(entry) * getSnapshotBytes(entry);
+        MappedByteBuffer mapped = segment(getSegment(entry), offset + bytes);
+        return mapped.duplicate().position((int) offset).limit((int) offset + bytes).slice();
+    }
+
+    /**
+     * Get a mapping of a segment covering at least the given number of bytes
+     * @param number segment number
+     * @param bytes bytes needed
+     * @return mapping
+     * @throws IOException if the segment cannot be mapped
+     */
+    private synchronized MappedByteBuffer segment(int number, long bytes) throws IOException {
+        while (segments.size() <= number) {
+            segments.add(null);
+        }
+        MappedByteBuffer mapped = segments.get(number);
+        if (mapped == null || mapped.capacity() < bytes) {
+            //The segment being appended to is mapped again as it grows
+            try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            segments.set(number, mapped);
+        }
+        return mapped;
+    }
+
+    /**
+     * Read a game
+     * @param entry the game
+     * @return replay
+     * @throws IOException if it cannot be read
+     */
+    public Replay read(int entry) throws IOException {
+        return Replay.read(entry(entry).limit(getLength(entry)));
+    }
+
+    /**
+     * Get a keyframe of a game
+     * @param entry the game
+     * @param keyframe the keyframe, taken before event keyframe * KEYFRAME_INTERVAL
+     * @return read-only buffer of the snapshot
+     * @throws IOException if it cannot be read
+     */
+    public ByteBuffer getKeyframe(int entry, int keyframe) throws IOException {
+        if (keyframe < 0 || keyframe >= getKeyframes(entry)) {
+            throw new IndexOutOfBoundsException("No keyframe " + keyframe + " in game " + entry);
+        }
+        int start = getLength(entry) + keyframe * getSnapshotBytes(entry);
+        return entry(entry).position(start).limit(start + getSnapshotBytes(entry)).slice();
+    }
+
+    /**
+     * Get the number of keyframes of a game
+     * @param entry the game
+     * @return keyframes
+     */
+    public int getKeyframeCount(int entry) {
+        return getKeyframes(entry);
+    }
+
+    /**
+     * Move a player of one of this archive's games to any event, restoring the keyframe before it and playing on
+     * @param entry the game being played
+     * @param player the player
+     * @param position index of the next event to play
+     * @throws IOException if the keyframe cannot be read
+     */
+    public void seek(int entry, ReplayPlayer player, int position) throws IOException {
+        position = Math.max(0, Math.min(position, player.getReplay().size()));
+        int keyframe = Math.min(position / KEYFRAME_INTERVAL, getKeyframes(entry) - 1);
+        //Only restore when it saves playing events
+        if (keyframe >= 0 && (player.getPosition() > position
+                || player.getPosition() < keyframe * KEYFRAME_INTERVAL)) {
+            player.restore(keyframe * KEYFRAME_INTERVAL, getKeyframe(entry, keyframe));
+        }
+        while (player.getPosition() < position) {
+            player.step();
+        }
+    }
+
+    /**
+     * Close the archive
+     * @throws IOException if it cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        segment.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Add replays to an archive or search it from the command line
+     * @param args "import", the archive directory, the player and replay files or directories of them; or "list",
+     *             the archive directory and optionally a player; or "top", the archive directory, a number of games
+     *             and optionally a mode
+     * @throws IOException if the archive cannot be used
+     */
+    public static void main(String[] args) throws IOException {
+        try (ReplayArchive archive = new ReplayArchive(Paths.get(args[1]))) {
+            switch (args[0]) {
+                case "import":
+                    long start = System.nanoTime();
+                    int imported = 0;
+                    for (int arg = 3; arg < args.length; arg++) {
+                        Path path = Paths.get(args[arg]);
+                        List<Path> files;
+                        if (Files.isDirectory(path)) {
+                            try (Stream<Path> list = Files.list(path)) {
+                                files = list.filter(file -> file.toString().endsWith(ReplayRecorder.EXTENSION)).sorted()
+                                        .collect(Collectors.toList());
+                            }
+                        } else {
+                            files = List.of(path);
+                        }
+                        for (Path file : files) {
+                            try {
+                                archive.append(file, args[2]);
+                                imported++;
+                            } catch (IOException e) {
+                                logger.error("Unable to import {}: {}", file, e.getMessage());
+                            }
+                        }
+                    }
+                    logger.info("Imported {} games in {} ms", imported, (System.nanoTime() - start) / 1_000_000);
+                    break;
+                case "list":
+                    for (int entry : archive.find(args.length > 2 ? args[2] : null, null, 0, Long.MAX_VALUE,
+                            Integer.MIN_VALUE)) {
+                        logger.info(archive.describe(entry));
+                    }
+                    break;
+                case "top":
+                    for (int entry : archive.top(Integer.parseInt(args[2]), args.length > 3 ? args[3] : null)) {
+                        logger.info(archive.describe(entry));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown command " + args[0]);
+            }
+        }
+    }
+
+    /**
+     * Describe a game in one line
+     * @param entry the game
+     * @return description
+     */
+    public String describe(int entry) {
+        return String.format("%d: %s, %s, %tF %<tR, score %d, %d events over %ds", entry, getPlayer(entry),
+                getMode(entry), getStarted(entry), getScore(entry), getEvents(entry), getDuration(entry) / 1000);
+    }
+}
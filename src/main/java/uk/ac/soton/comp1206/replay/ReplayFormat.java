@@ -0,0 +1,178 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import uk.ac.soton.comp1206.game.GameEvent;
+
+/**
+ * The layout of a replay file: a header describing the game, then one record per GameEvent in the order they
+ * happened. Numbers are unsigned LEB128 varints, 7 bits per byte with the top bit set on every byte but the last, so
+ * the small numbers making up most of a replay take a single byte.
+ *
+ * The header holds:
+ * <ul>
+ *     <li>MAGIC, as 4 fixed bytes</li>
+ *     <li>VERSION, the columns and rows of the board</li>
+ *     <li>the game mode, as a varint byte length then UTF-8</li>
+ *     <li>the seed of the game's uniform piece sequence, as 8 fixed bytes</li>
+ *     <li>the wall clock time the game started, in milliseconds since the epoch</li>
+ * </ul>
+ *
+ * Each event holds:
+ * <ul>
+ *     <li>the ordinal of the GameEvent, as one byte</li>
+ *     <li>the milliseconds since the previous event on a monotonic clock, or since the start for the first</li>
+ *     <li>for PLACE the column then the row clicked, for ROTATE the clockwise turns, for END the final score</li>
+ * </ul>
+ *
+ * A game of ten minutes is a few hundred events of 3 or 4 bytes each. A file cut short by a crash is still readable up
+ * to its last whole event.
+ */
+public final class ReplayFormat {
+
+    /**
+     * First four bytes of a replay, "RPL1"
+     */
+    public static final int MAGIC = 0x52504C31;
+
+    /**
+     * Version of the layout
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Most bytes a single event can take
+     */
+    public static final int MAX_EVENT_BYTES = 1 + 3 * 10;
+
+    /**
+     * Longest game mode name in bytes
+     */
+    public static final int MAX_MODE_BYTES = 255;
+
+    /**
+     * Most bytes a header can take
+     */
+    public static final int MAX_HEADER_BYTES = 4 + 3 * 10 + MAX_MODE_BYTES + 8 + 10;
+
+    private static final GameEvent[] EVENTS = GameEvent.values();
+
+    /**
+     * Replays are only written and read
+     */
+    private ReplayFormat() {
+    }
+
+    /**
+     * Write a header
+     * @param buffer buffer with at least MAX_HEADER_BYTES remaining
+     * @param mode game mode
+     * @param cols number of columns
+     * @param rows number of rows
+     * @param seed seed of the piece sequence
+     * @param started wall clock time the game started
+     */
+    public static void writeHeader(ByteBuffer buffer, String mode, int cols, int rows, long seed, long started) {
+        byte[] name = mode.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_MODE_BYTES) {
+            throw new IllegalArgumentException("Game mode name too long: " + mode);
+        }
+        buffer.putInt(MAGIC);
+        putVarint(buffer, VERSION);
+        putVarint(buffer, cols);
+        putVarint(buffer, rows);
+        putVarint(buffer, name.length);
+        buffer.put(name);
+        buffer.putLong(seed);
+        putVarint(buffer, started);
+    }
+
+    /**
+     * Write an event
+     * @param buffer buffer with at least MAX_EVENT_BYTES remaining
+     * @param event the event
+     * @param delta milliseconds since the previous event
+     * @param x column for PLACE, turns for ROTATE, score for END
+     * @param y row for PLACE
+     */
+    public static void writeEvent(ByteBuffer buffer, GameEvent event, long delta, int x, int y) {
+        buffer.put((byte) event.ordinal());
+        putVarint(buffer, delta);
+        switch (event) {
+            case PLACE:
+                putVarint(buffer, x);
+                putVarint(buffer, y);
+                break;
+            case ROTATE:
+            case END:
+                putVarint(buffer, x);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Get the event with an ordinal read from a replay
+     * @param ordinal the ordinal
+     * @return event
+     */
+    public static GameEvent event(int ordinal) {
+        if (ordinal < 0 || ordinal >= EVENTS.length) {
+            throw new IllegalArgumentException("No such event: " + ordinal);
+        }
+        return EVENTS[ordinal];
+    }
+
+    /**
+     * Write a varint. Negative numbers take 10 bytes and read back the same.
+     * @param buffer the buffer
+     * @param value the number
+     */
+    public static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Read a varint
+     * @param buffer the buffer
+     * @return the number
+     */
+    public static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte next = buffer.get();
+            value |= (long) (next & 0x7F) << shift;
+            if (next >= 0) return value;
+        }
+        throw new IllegalArgumentException("Varint longer than 10 bytes");
+    }
+
+    /**
+     * Read a varint which must fit in an int
+     * @param buffer the buffer
+     * @return the number
+     */
+    public static int getInt(ByteBuffer buffer) {
+        return (int) getVarint(buffer);
+    }
+
+    /**
+     * Read a string written as a varint length then UTF-8
+     * @param buffer the buffer
+     * @return the string
+     */
+    public static String getString(ByteBuffer buffer) {
+        int length = getInt(buffer);
+        if (length < 0 || length > MAX_MODE_BYTES) {
+            throw new IllegalArgumentException("String of " + length + " bytes");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
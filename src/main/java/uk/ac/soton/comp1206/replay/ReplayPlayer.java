@@ -0,0 +1,173 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.nio.ByteBuffer;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameEvent;
+import uk.ac.soton.comp1206.game.GameSnapshot;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+import uk.ac.soton.comp1206.game.VirtualTickScheduler;
+
+/**
+ * Plays the events of a replay through a Game, one at a time.
+ *
+ * The game's loop timer runs on a virtual clock which only moves when the replay says the timer ran out, so events
+ * can be played as fast or as slowly as the caller likes. The player keeps track of when the timer would run out in
+ * replay time, which goes into keyframes so a game restored from one carries on with the right time left.
+ */
+public class ReplayPlayer {
+
+    private final Replay replay;
+    private final VirtualTickScheduler clock;
+    private final Game game;
+
+    /**
+     * Index of the next event to play
+     */
+    private int position;
+
+    /**
+     * Replay time the game loop timer runs out
+     */
+    private long deadline;
+
+    /**
+     * Create a player with its own headless game
+     * @param replay the replay
+     */
+    public ReplayPlayer(Replay replay) {
+        this(replay, new VirtualTickScheduler());
+        game.setNextPieceListener((current, following) -> { });
+        game.setGameLoopListener((time, ended) -> { });
+        start();
+    }
+
+    /**
+     * Create a player whose game is set up by the caller, for example with listeners showing it on screen. The game
+     * must have its next piece and game loop listeners set before start is called.
+     * @param replay the replay
+     * @param clock clock of the game's loop timer, never advanced except by this player
+     */
+    public ReplayPlayer(Replay replay, VirtualTickScheduler clock) {
+        this.replay = replay;
+        this.clock = clock;
+        this.game = new Game(replay.getCols(), replay.getRows(), replay.getMode(),
+                new UniformPieceSequence(replay.getSeed()), clock, Runnable::run);
+    }
+
+    /**
+     * Start the game, before the first event
+     */
+    public void start() {
+        game.start();
+        position = 0;
+        deadline = game.getTimerDelay();
+    }
+
+    /**
+     * Play the next event
+     * @return the event played
+     */
+    public GameEvent step() {
+        GameEvent event = replay.getEvent(position);
+        long time = replay.getTime(position);
+        switch (event) {
+            case PLACE:
+                if (game.playPiece(replay.getX(position), replay.getY(position))) {
+                    deadline = time + game.getTimerDelay();
+                }
+                break;
+            case ROTATE:
+                game.getEngine().rotate(replay.getX(position));
+                break;
+            case SWAP:
+                game.swapCurrentPiece();
+                break;
+            case REGENERATE:
+                game.getNewPiece();
+                break;
+            case EXPIRE:
+                //Run the game loop the timer would have run
+                clock.advanceToNext();
+                deadline = time + game.getTimerDelay();
+                break;
+            case END:
+                break;
+            default:
+                throw new IllegalArgumentException("No such event: " + event);
+        }
+        position++;
+        return event;
+    }
+
+    /**
+     * Get the replay time of the last event played
+     * @return milliseconds from the start, 0 before the first event
+     */
+    public long getTime() {
+        return position == 0 ? 0 : replay.getTime(position - 1);
+    }
+
+    /**
+     * Write a keyframe of the game as it is now
+     * @param buffer buffer to write GameSnapshot.size bytes into
+     */
+    public void writeKeyframe(ByteBuffer buffer) {
+        GameSnapshot.write(game.getEngine(), Math.max(0, deadline - getTime()), buffer);
+    }
+
+    /**
+     * Restore a keyframe written by writeKeyframe, restarting the game if it had ended
+     * @param position index of the next event to play after the keyframe
+     * @param buffer buffer to read the keyframe from
+     */
+    public void restore(int position, ByteBuffer buffer) {
+        if (game.getState()) {
+            //Let the ended game start again, as ChallengeScene does when cleaning up
+            game.setIfStart(true);
+            game.start();
+        }
+        this.position = position;
+        game.restoreSnapshot(buffer.duplicate());
+        deadline = getTime() + game.getTimer().getRemaining();
+    }
+
+    /**
+     * Get the replay
+     * @return replay
+     */
+    public Replay getReplay() {
+        return replay;
+    }
+
+    /**
+     * Get the game the replay is played through
+     * @return game
+     */
+    public Game getGame() {
+        return game;
+    }
+
+    /**
+     * Get the index of the next event to play
+     * @return position
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Check whether every event has been played
+     * @return true at the end of the replay
+     */
+    public boolean isFinished() {
+        return position >= replay.size();
+    }
+
+    /**
+     * Get the replay time the game loop timer runs out
+     * @return milliseconds from the start
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+}
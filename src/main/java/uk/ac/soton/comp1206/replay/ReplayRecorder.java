@@ -0,0 +1,248 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.event.GameEventListener;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameEvent;
+import uk.ac.soton.comp1206.game.TickScheduler;
+
+/**
+ * Records every event of a Game into a replay file in the ReplayFormat.
+ *
+ * Events are encoded straight into an in-memory buffer on the thread the game runs on, which costs a few stores per
+ * event. Full buffers are handed to a single background thread which writes them to the file while the game carries
+ * on filling a spare buffer, so the game thread never waits for the disk. The recording is closed, and the last
+ * buffer written, when the game ends or the recorder is closed. A game left before it ends is discarded instead.
+ */
+public class ReplayRecorder implements GameEventListener, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ReplayRecorder.class);
+
+    /**
+     * Directory replays are saved in
+     */
+    public static final String DIRECTORY = "replays";
+
+    /**
+     * File extension of replays
+     */
+    public static final String EXTENSION = ".rpl";
+
+    /**
+     * Size of each buffer, enough for the whole of most games
+     */
+    private static final int BUFFER_BYTES = 4096;
+
+    /**
+     * The single thread writing the replays of every game
+     */
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replay-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Path path;
+    private final FileChannel channel;
+    private final TickScheduler clock;
+
+    /**
+     * Buffers the writer has finished with, ready to be filled again
+     */
+    private final Queue<ByteBuffer> spare = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Buffer being filled with events
+     */
+    private ByteBuffer active = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /**
+     * Clock time of the previous event
+     */
+    private long last;
+
+    /**
+     * Completed with the path once the whole replay is written and the file closed
+     */
+    private final CompletableFuture<Path> saved = new CompletableFuture<>();
+
+    private boolean closed;
+    private volatile boolean failed;
+
+    /**
+     * Start recording a game which has not started yet
+     * @param path file to record into, which must not exist
+     * @param game the game
+     * @param clock monotonic clock to time events by
+     * @throws IOException if the file cannot be created
+     */
+    public ReplayRecorder(Path path, Game game, TickScheduler clock) throws IOException {
+        this.path = path;
+        this.clock = clock;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.last = clock.now();
+
+        ReplayFormat.writeHeader(active, game.getEngine().getMode(), game.getCols(), game.getRows(),
+                game.getEngine().getSequence().getSeed(), System.currentTimeMillis());
+        game.setGameEventListener(this);
+    }
+
+    /**
+     * Start recording a game into a new file in the replay directory
+     * @param game the game, which has not started yet
+     * @return recorder, or null if the replay cannot be saved
+     */
+    public static ReplayRecorder start(Game game) {
+        String name = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date()) + EXTENSION;
+        Path path = Paths.get(DIRECTORY, name);
+        try {
+            Files.createDirectories(path.getParent());
+            ReplayRecorder recorder = new ReplayRecorder(path, game, TickScheduler.system());
+            logger.info("Recording replay to {}", path.toAbsolutePath());
+            return recorder;
+        } catch (IOException e) {
+            logger.error("Unable to record replay to {}: {}", path.toAbsolutePath(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Record an event
+     * @param event the event
+     * @param x column clicked for PLACE, clockwise turns for ROTATE, final score for END, otherwise 0
+     * @param y row clicked for PLACE, otherwise 0
+     */
+    @Override
+    public synchronized void gameEvent(GameEvent event, int x, int y) {
+        if (closed) return;
+        long now = clock.now();
+        //The clock is monotonic, but never write a negative gap if it is swapped for another
+        ReplayFormat.writeEvent(active, event, Math.max(0, now - last), x, y);
+        last = now;
+
+        if (event == GameEvent.END) {
+            close();
+        } else if (active.remaining() < ReplayFormat.MAX_EVENT_BYTES) {
+            handOff();
+        }
+    }
+
+    /**
+     * Hand the events recorded so far to the writer
+     */
+    public synchronized void flush() {
+        if (!closed && active.position() > 0) {
+            handOff();
+        }
+    }
+
+    /**
+     * Give the active buffer to the writer and carry on with a spare one
+     */
+    private void handOff() {
+        ByteBuffer full = active;
+        ByteBuffer next = spare.poll();
+        active = next != null ? next : ByteBuffer.allocate(BUFFER_BYTES);
+        WRITER.execute(() -> write(full));
+    }
+
+    /**
+     * Write a buffer to the file, on the writer thread
+     * @param buffer the buffer
+     */
+    private void write(ByteBuffer buffer) {
+        buffer.flip();
+        try {
+            if (!failed) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            failed = true;
+            logger.error("Unable to write replay {}: {}", path.toAbsolutePath(), e.getMessage());
+        }
+        buffer.clear();
+        spare.add(buffer);
+    }
+
+    /**
+     * Stop recording, writing out the last events and closing the file in the background
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        handOff();
+        WRITER.execute(() -> {
+            try {
+                channel.close();
+                if (failed) throw new IOException("Some events could not be written");
+                logger.info("Saved replay {}", path.toAbsolutePath());
+                saved.complete(path);
+            } catch (IOException e) {
+                logger.error("Unable to save replay {}: {}", path.toAbsolutePath(), e.getMessage());
+                saved.completeExceptionally(e);
+            }
+        });
+    }
+
+    /**
+     * Stop recording a game which did not end, deleting the file in the background as it has no final score
+     */
+    public synchronized void discard() {
+        if (closed) return;
+        closed = true;
+        active.clear();
+        WRITER.execute(() -> {
+            try {
+                channel.close();
+                Files.deleteIfExists(path);
+                logger.info("Discarded replay {}", path.toAbsolutePath());
+            } catch (IOException e) {
+                logger.error("Unable to discard replay {}: {}", path.toAbsolutePath(), e.getMessage());
+            }
+            saved.cancel(false);
+        });
+    }
+
+    /**
+     * Get the file being recorded into
+     * @return path
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Get notified once the replay is saved
+     * @return completed with the path of the file once it is written and closed, or with the error if it could not be
+     */
+    public CompletableFuture<Path> getSaved() {
+        return saved;
+    }
+
+    /**
+     * Check whether writing the file has failed
+     * @return true if some events could not be written
+     */
+    public boolean hasFailed() {
+        return failed;
+    }
+}
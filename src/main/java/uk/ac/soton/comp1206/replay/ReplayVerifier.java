@@ -0,0 +1,230 @@
+package uk.ac.soton.comp1206.replay;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GameEvent;
+import uk.ac.soton.comp1206.game.Grid;
+
+/**
+ * Checks that a replay backs up the score claimed for it by playing it again.
+ *
+ * The replay's events are played through a new Game dealt the same pieces, with the game loop timer on a virtual
+ * clock which only moves when the replay says the timer ran out, so a game of many minutes is played in well under a
+ * millisecond. The replay is rejected if an event comes after the game ended, if the timer runs out before it could
+ * have or an event comes long after the timer should already have run out, or if the game does not end with the
+ * claimed score. Timings are allowed TOLERANCE of slack for the delay between the timer running out and the game
+ * loop running on the FX thread.
+ *
+ * Batches of replays are checked in parallel on a work-stealing pool.
+ */
+public class ReplayVerifier {
+
+    private static final Logger logger = LogManager.getLogger(ReplayVerifier.class);
+
+    /**
+     * Slack allowed on the timing of the game loop timer, in milliseconds
+     */
+    public static final long TOLERANCE = 500;
+
+    /**
+     * Number of replays each task checks before it stops splitting
+     */
+    private static final int REPLAYS_PER_TASK = 4;
+
+    /**
+     * Check a replay file against a claimed score
+     * @param path the replay file
+     * @param claimed score claimed for the game
+     * @return result
+     */
+    public static VerificationResult verify(Path path, int claimed) {
+        try {
+            return verify(Replay.read(path), claimed);
+        } catch (IOException e) {
+            return VerificationResult.rejected(claimed, -1, 0, "Unable to read replay: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Check a replay against a claimed score
+     * @param replay the replay
+     * @param claimed score claimed for the game
+     * @return result
+     */
+    public static VerificationResult verify(Replay replay, int claimed) {
+        if (!GameEngine.CHALLENGE_MODE.equals(replay.getMode()) && !GameEngine.SPECIAL_MODE.equals(replay.getMode())) {
+            return VerificationResult.rejected(claimed, -1, 0, "Unknown game mode " + replay.getMode());
+        }
+        if (replay.getCols() <= 0 || replay.getRows() <= 0 || replay.getCols() * replay.getRows() > Grid.COMPACT_CELLS) {
+            return VerificationResult.rejected(claimed, -1, 0, "Unsupported board " + replay.getCols() + "x"
+                    + replay.getRows());
+        }
+        if (!replay.isComplete()) {
+            return VerificationResult.rejected(claimed, -1, 0, "Replay stops before the end of the game");
+        }
+
+        ReplayPlayer player = null;
+        try {
+            player = new ReplayPlayer(replay);
+            Game game = player.getGame();
+            while (!player.isFinished()) {
+                int index = player.getPosition();
+                GameEvent event = replay.getEvent(index);
+                long time = replay.getTime(index);
+                if (event == GameEvent.END) {
+                    return finish(replay, index, game, claimed);
+                }
+                if (game.getState()) {
+                    return VerificationResult.rejected(claimed, game.getEngine().getScore(), index,
+                            event + " after the game ended");
+                }
+                //The timer can run out a little late, but not early, and every other event must come before it does
+                long deadline = player.getDeadline();
+                if (event == GameEvent.EXPIRE ? time < deadline - TOLERANCE : time > deadline + TOLERANCE) {
+                    return VerificationResult.rejected(claimed, game.getEngine().getScore(), index, event + " at "
+                            + time + "ms but the timer runs out at " + deadline + "ms");
+                }
+                player.step();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Replay of game with seed {} could not be played", replay.getSeed(), e);
+            return VerificationResult.rejected(claimed, -1, player == null ? 0 : player.getPosition(),
+                    "Replay could not be played: " + e);
+        }
+        return VerificationResult.rejected(claimed, -1, replay.size(), "Replay has no end");
+    }
+
+    /**
+     * Check the end of a replay matches the game played again
+     * @param replay the replay
+     * @param index index of its END event, which must be the last
+     * @param game the game played again
+     * @param claimed score claimed for the game
+     * @return result
+     */
+    private static VerificationResult finish(Replay replay, int index, Game game, int claimed) {
+        int score = game.getEngine().getScore();
+        if (index != replay.size() - 1) {
+            return VerificationResult.rejected(claimed, score, index, "Events after the end of the game");
+        }
+        if (!game.getState()) {
+            return VerificationResult.rejected(claimed, score, index, "Replay ends but the game carries on");
+        }
+        if (replay.getX(index) != score || claimed != score) {
+            return VerificationResult.rejected(claimed, score, index, "Game ended with " + score + ", replay records "
+                    + replay.getX(index) + " and " + claimed + " was claimed");
+        }
+        return VerificationResult.accepted(score, index + 1);
+    }
+
+    /**
+     * Check a batch of replays in parallel
+     * @param replays the replays
+     * @param claimed score claimed for each replay
+     * @param pool pool to check them on
+     * @return result of each replay
+     */
+    public static VerificationResult[] verifyAll(Replay[] replays, int[] claimed, ForkJoinPool pool) {
+        if (replays.length != claimed.length) {
+            throw new IllegalArgumentException(replays.length + " replays but " + claimed.length + " scores");
+        }
+        VerificationResult[] results = new VerificationResult[replays.length];
+        pool.invoke(new VerifyTask(replays, claimed, results, 0, replays.length));
+        return results;
+    }
+
+    /**
+     * Checks a range of replays, splitting it in half until it is small
+     */
+    private static class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Replay[] replays;
+        private final int[] claimed;
+        private final VerificationResult[] results;
+        private final int from;
+        private final int to;
+
+        VerifyTask(Replay[] replays, int[] claimed, VerificationResult[] results, int from, int to) {
+            this.replays = replays;
+            this.claimed = claimed;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > REPLAYS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyTask(replays, claimed, results, from, middle),
+                        new VerifyTask(replays, claimed, results, middle, to));
+                return;
+            }
+            for (int replay = from; replay < to; replay++) {
+                results[replay] = verify(replays[replay], claimed[replay]);
+            }
+        }
+    }
+
+    /**
+     * Check replay files from the command line against the final score each one records
+     * @param args replay files, or directories of them
+     * @throws IOException if a directory cannot be listed
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> paths = new ArrayList<>();
+        for (String arg : args.length > 0 ? args : new String[]{ReplayRecorder.DIRECTORY}) {
+            Path path = Paths.get(arg);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> files = Files.list(path)) {
+                    paths.addAll(files.filter(file -> file.toString().endsWith(ReplayRecorder.EXTENSION)).sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                paths.add(path);
+            }
+        }
+
+        List<Replay> replays = new ArrayList<>();
+        List<Path> read = new ArrayList<>();
+        for (Path path : paths) {
+            try {
+                replays.add(Replay.read(path));
+                read.add(path);
+            } catch (IOException e) {
+                logger.error("Unable to read replay {}: {}", path, e.getMessage());
+            }
+        }
+        int[] claimed = replays.stream().mapToInt(Replay::getFinalScore).toArray();
+
+        long start = System.nanoTime();
+        VerificationResult[] results = verifyAll(replays.toArray(new Replay[0]), claimed, ForkJoinPool.commonPool());
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        int valid = 0;
+        long played = 0;
+        for (int replay = 0; replay < results.length; replay++) {
+            played += replays.get(replay).getDuration();
+            if (results[replay].isValid()) {
+                valid++;
+            } else {
+                logger.warn("{}: {}", read.get(replay), results[replay]);
+            }
+        }
+        logger.info("{} of {} replays valid, {} s of play checked in {} ms", valid, results.length, played / 1000,
+                elapsed / 1_000_000);
+    }
+}
@@ -0,0 +1,98 @@
+package uk.ac.soton.comp1206.replay;
+
+/**
+ * The outcome of checking a replay with the ReplayVerifier: whether it backs up the score claimed for it, and if not,
+ * why not.
+ */
+public class VerificationResult {
+
+    private final boolean valid;
+    private final int claimed;
+    private final int score;
+    private final int events;
+    private final String reason;
+
+    /**
+     * Create a result
+     * @param valid whether the replay backs up the claimed score
+     * @param claimed score claimed for the replay
+     * @param score score reached by playing the replay again, -1 if it could not be played
+     * @param events number of events played before the replay was accepted or rejected
+     * @param reason why the replay was rejected, null if it was accepted
+     */
+    private VerificationResult(boolean valid, int claimed, int score, int events, String reason) {
+        this.valid = valid;
+        this.claimed = claimed;
+        this.score = score;
+        this.events = events;
+        this.reason = reason;
+    }
+
+    /**
+     * Create a result for a replay which backs up its score
+     * @param score the score
+     * @param events number of events played
+     * @return result
+     */
+    public static VerificationResult accepted(int score, int events) {
+        return new VerificationResult(true, score, score, events, null);
+    }
+
+    /**
+     * Create a result for a replay which does not back up its score
+     * @param claimed score claimed for the replay
+     * @param score score reached by playing the replay again, -1 if it could not be played
+     * @param events number of events played before it was rejected
+     * @param reason why it was rejected
+     * @return result
+     */
+    public static VerificationResult rejected(int claimed, int score, int events, String reason) {
+        return new VerificationResult(false, claimed, score, events, reason);
+    }
+
+    /**
+     * Check whether the replay backs up the claimed score
+     * @return true if it does
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Get the score claimed for the replay
+     * @return claimed score
+     */
+    public int getClaimed() {
+        return claimed;
+    }
+
+    /**
+     * Get the score reached by playing the replay again
+     * @return score, -1 if it could not be played
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the number of events played
+     * @return events
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * Get why the replay was rejected
+     * @return reason, null if it was accepted
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return valid ? "Accepted score " + score + " after " + events + " events"
+                : "Rejected claimed score " + claimed + " after " + events + " events: " + reason;
+    }
+}
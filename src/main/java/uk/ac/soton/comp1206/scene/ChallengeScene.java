@@ -8,6 +8,8 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.effect.DropShadow;
+import javafx.scene.effect.Glow;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.KeyCode;
@@ -22,6 +24,8 @@ import javafx.util.Duration;
 import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.HintService;
+import uk.ac.soton.comp1206.ai.SearchResult;
 import uk.ac.soton.comp1206.component.GameBlock;
 import uk.ac.soton.comp1206.component.GameBlockCoordinate;
 import uk.ac.soton.comp1206.component.GameBoard;
@@ -32,13 +36,12 @@ import uk.ac.soton.comp1206.event.NextPieceListener;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.game.GamePiece;
 import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
+import uk.ac.soton.comp1206.scores.ScoreStore;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.utility.Multimedia;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.util.*;
 
 /**
@@ -56,8 +59,20 @@ public class ChallengeScene extends BaseScene {
     protected Timeline timeline = new Timeline();
     private Text currHighScore;
     private Integer highScore =0;
-    private ArrayList<Integer> scores;
     private String mode;
+    protected GameBoard board;
+    private CheckBox hintButton;
+    private ImageView swapArrow;
+
+    /**
+     * Works out hints in the background while the hint button is selected
+     */
+    private final HintService hints = new HintService(Platform::runLater);
+
+    /**
+     * Records a replay of the game, or null if it cannot be saved
+     */
+    private ReplayRecorder recorder;
 
 
     /**
@@ -95,7 +110,7 @@ public class ChallengeScene extends BaseScene {
         mainPane.setPadding(new Insets(20,20,20,20));
 
         //Add the gameboard with the relevant grid and dimensions
-        var board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
+        board = new GameBoard(game.getGrid(),gameWindow.getWidth()/2,gameWindow.getWidth()/2);
 
         //Handle block on gameboard grid being clicked
         board.setOnBlockClick((MouseEvent event, GameBlock gameBlock,GameBoard gameBoard) -> {
@@ -123,12 +138,12 @@ public class ChallengeScene extends BaseScene {
         hbox.getChildren().add(rec);
 
         //Add an arrow showing current and upcoming piece can be swapped
-        var image= new ImageView(new Image(this.getClass().getResource("/images/arrow.png").toExternalForm()));
-        image.setX(300);
-        image.setY(1000);
-        image.setFitWidth(gameWindow.getWidth()*0.5/5);
-        image.setFitHeight(gameWindow.getHeight()*0.5/5);
-        image.setPreserveRatio(true);
+        swapArrow= new ImageView(new Image(this.getClass().getResource("/images/arrow.png").toExternalForm()));
+        swapArrow.setX(300);
+        swapArrow.setY(1000);
+        swapArrow.setFitWidth(gameWindow.getWidth()*0.5/5);
+        swapArrow.setFitHeight(gameWindow.getHeight()*0.5/5);
+        swapArrow.setPreserveRatio(true);
 
         //Add relevant text components for score, highscore, multiplier, lives, level, sound
         var score = new Text("Score");
@@ -143,6 +158,7 @@ public class ChallengeScene extends BaseScene {
         var currLevel = new Text();
         var currMultiplier = new Text();
         var soundButton = new CheckBox("Sound");
+        hintButton = new CheckBox("Hint");
         var regeneratePiecesButton = new Text("Regenerate pieces");
         var currRegenerate = new Text();
 
@@ -170,14 +186,16 @@ public class ChallengeScene extends BaseScene {
         vboxcenter.getChildren().addAll(modeType,board);
         vboxright1.getChildren().add(incoming);
         vboxleft1.getChildren().addAll(regeneratePiecesButton,currRegenerate,hbox2);
-        hbox2.getChildren().add(soundButton);
-        //Disable using space bar to toggle sound checkbox
-        soundButton.addEventFilter(KeyEvent.KEY_PRESSED,keyEvent ->{
-            if(KeyCode.SPACE == keyEvent.getCode()){
-                keyEvent.consume();
-                keySupport(keyEvent);
-            }
-        });
+        hbox2.getChildren().addAll(soundButton,hintButton);
+        //Disable using space bar to toggle sound and hint checkboxes
+        for(CheckBox checkBox : List.of(soundButton,hintButton)) {
+            checkBox.addEventFilter(KeyEvent.KEY_PRESSED, keyEvent -> {
+                if (KeyCode.SPACE == keyEvent.getCode()) {
+                    keyEvent.consume();
+                    keySupport(keyEvent);
+                }
+            });
+        }
         regeneratePiecesButton.setVisible(false);
         currRegenerate.setVisible(false);
 
@@ -189,6 +207,7 @@ public class ChallengeScene extends BaseScene {
         vboxcenter.setAlignment(Pos. TOP_CENTER);
         vboxright1.setAlignment(Pos.TOP_CENTER);
         hbox2.setAlignment(Pos.BOTTOM_CENTER);
+        hbox2.setSpacing(20);
 
         //Set spacing
         vboxleft.setSpacing(10);
@@ -213,6 +232,7 @@ public class ChallengeScene extends BaseScene {
         currMultiplier.getStyleClass().add("myscore");
         currHighScore.getStyleClass().add("myscore");
         soundButton.getStyleClass().add("soundbutton");
+        hintButton.getStyleClass().add("soundbutton");
         regeneratePiecesButton.getStyleClass().add("newgamebutton");
         currRegenerate.getStyleClass().add("challenge-labels");
 
@@ -225,6 +245,9 @@ public class ChallengeScene extends BaseScene {
         //Add listener to sound button
         soundButton.setOnMouseClicked(event -> handleSound("game.wav"));
 
+        //Start or stop hints when the hint button is toggled
+        hintButton.selectedProperty().addListener((observable, oldValue, newValue) -> refreshHint());
+
 
         //Play the music for the game
         Multimedia.playMusic("game.wav");
@@ -234,7 +257,7 @@ public class ChallengeScene extends BaseScene {
         incomingpieceBoard.displayCurrentPiece(game.getCurrentPiece());
 
         vboxright1.getChildren().add(incomingpieceBoard);
-        vboxright1.getChildren().add(image);
+        vboxright1.getChildren().add(swapArrow);
 
         //Create a slightly smaller pieceboard representing the next incoming game piece and pass in the grid and dimensions
         nextincomingpieceBoard = new PieceBoard(new Grid(3,3),gameWindow.getWidth()/9,gameWindow.getWidth()/9);
@@ -293,6 +316,45 @@ public class ChallengeScene extends BaseScene {
     private void nextPiece(GamePiece upComing,GamePiece followingPiece) {
         incomingpieceBoard.displayCurrentPiece(upComing);
         nextincomingpieceBoard.displayNextPiece(followingPiece);
+        refreshHint();
+    }
+
+    /**
+     * Drop the current hint, as the player has acted or a new piece has arrived, and start working out a new one if
+     * hints are on. The search runs in the background and the highlight improves as it searches deeper.
+     */
+    private void refreshHint() {
+        hints.cancel();
+        board.clearHint();
+        showSwap(false);
+        if (!hintButton.isSelected() || game.getEngine().isOver()) return;
+        hints.request(game.getEngine(), this::showHint);
+    }
+
+    /**
+     * Highlight the best placement found so far
+     * @param result the best move found by the latest finished search depth
+     */
+    private void showHint(SearchResult result) {
+        if (result.getMove() == null) {
+            board.clearHint();
+            showSwap(false);
+            return;
+        }
+        var engine = game.getEngine();
+        board.showHint(result.getMove().getFootprint(engine), result.getMove().getPiece(engine).getValue());
+        //The footprint is of the following piece when the hint is to swap first
+        showSwap(result.getMove().isSwap());
+        logger.debug("Hint at depth {}: {}", result.getDepth(), result.getMove());
+    }
+
+    /**
+     * Light up the swap arrow and the following piece when the hint is to swap the pieces first
+     * @param swap true if the hint swaps the pieces
+     */
+    private void showSwap(boolean swap) {
+        swapArrow.setEffect(swap ? new Glow(1) : null);
+        nextincomingpieceBoard.setEffect(swap ? new DropShadow(20, Color.YELLOW) : null);
     }
 
     /**
@@ -305,6 +367,7 @@ public class ChallengeScene extends BaseScene {
         if(keyEvent.getCode()== KeyCode.ESCAPE){
             handleEscape(keyEvent);
             game.getTimer().cancel();
+            hints.shutdown();
         }else {
             game.keyboardSupport(keyEvent);
             nextPiece(game.getCurrentPiece(), game.getFollowingPiece());
@@ -360,6 +423,7 @@ public class ChallengeScene extends BaseScene {
         logger.info("ending the game");
         Platform.runLater(()-> {
             gameWindow.passGameState(game);
+            gameWindow.passReplay(recorder);
             gameWindow.startScoreScene();
 
         });
@@ -388,37 +452,9 @@ public class ChallengeScene extends BaseScene {
      */
     protected Integer findHighscore(){
         logger.info("finding highscore");
-        //Create an arraylist to hold all scores
-        //ArrayList<Integer> scoresscores = new ArrayList<>();
-        scores= new ArrayList<>();
-
-        //Use a buffered reader to read from scores.txt file to find initial high score
-        try {
-            BufferedReader bufferedReader = new BufferedReader(new FileReader("scores.txt"));
-            String line= bufferedReader.readLine();
-            while(line!=null){
-                try {
-                    String info[] = line.split(":");
-                    Integer score = Integer.parseInt(info[1]);
-                    scores.add(score);
-
-                } catch (Exception e) {
-                    System.out.println(e);
-                }
-                line= bufferedReader.readLine();
-            }
-            bufferedReader.close();
-            Collections.sort(scores,Collections.reverseOrder());
-            //Set the first item after sorting in descending order as the high score
-            highScore = scores.get(0);
-        } catch (Exception e) {
-            //If scores file does not currently exist, create a new file and set inital high score to 0
-            try{
-            FileWriter writtenScores = new FileWriter("scores.txt");}catch (Exception ex){
-                System.out.println(ex);}
-            System.out.println(e);
-            highScore=0;
-        }
+        //Use the best of every local score kept, or 0 if there are none
+        ScoreStore store = ScoreStore.get();
+        highScore = store == null ? 0 : store.getHighScore();
         logger.info("Highscore set to: "+highScore);
         return highScore;
     }
@@ -430,6 +466,8 @@ public class ChallengeScene extends BaseScene {
     public void initialise() {
         logger.info("Initialising Challenge");
 
+        //Start recording right before the game, so the replay is timed from when the game loop starts
+        recorder = ReplayRecorder.start(game);
         game.start();
 
         //Keyboard support
@@ -441,8 +479,16 @@ public class ChallengeScene extends BaseScene {
      */
     public void cleanUp(){
         logger.info("End of game");
-        scores.clear();
         highScore=0;
+        hints.shutdown();
+        if(recorder!=null){
+            //A game left before it ended has no final score, so its replay is not kept
+            if(game.getState()){
+                recorder.close();
+            }else{
+                recorder.discard();
+            }
+        }
         game.setIfStart(true);
     }
 }
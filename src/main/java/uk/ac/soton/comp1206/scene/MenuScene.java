@@ -86,6 +86,7 @@ public class MenuScene extends BaseScene {
         //create buttons
         var singlePlayerButton = new Button("Singleplayer");
         var multiPlayerButton = new Button("Multiplayer");
+        var replayButton = new Button("Replays");
         var insButton = new Button("Instructions");
         var exitButton = new Button("Exit");
         var soundButton = new CheckBox("Sound");
@@ -101,6 +102,7 @@ public class MenuScene extends BaseScene {
         //Add buttons to menu
         vbox.getChildren().add(singlePlayerButton);
         vbox.getChildren().add(multiPlayerButton);
+        vbox.getChildren().add(replayButton);
         vbox.getChildren().add(insButton);
         vbox.getChildren().add(exitButton);
         mainPane.setBottom(soundButton);
@@ -108,12 +110,15 @@ public class MenuScene extends BaseScene {
         //Add style to buttons
         singlePlayerButton.getStyleClass().add("menuItem");
         multiPlayerButton.getStyleClass().add("menuItem");
+        replayButton.getStyleClass().add("menuItem");
         insButton.getStyleClass().add("menuItem");
         exitButton.getStyleClass().add("menuItem");
         soundButton.getStyleClass().add("soundbutton");
 
         //Listen to the button action to the startGame method in the menu
         singlePlayerButton.setOnAction(event -> chooseMode());
+        //Listen to the button action to open the replays scene
+        replayButton.setOnAction(this::replayPage);
         //Listen to the button action to open instructions scene
         insButton.setOnAction(this::insPage);
         //Listen the button action to open multiplayer lobby
@@ -190,6 +195,16 @@ public class MenuScene extends BaseScene {
         gameWindow.startInstructionScene();
     }
 
+    /**
+     * Handle when the Replays button is pressed
+     * @param event event
+     */
+    private void replayPage(ActionEvent event){
+        //Stops the animation and starts the replay scene
+        parallelTransition.stop();
+        gameWindow.startReplayScene();
+    }
+
     /**
      * Handle when the Multiplayer button is pressed
      * @param event event
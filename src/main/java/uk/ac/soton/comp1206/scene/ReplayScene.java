@@ -0,0 +1,570 @@
+package uk.ac.soton.comp1206.scene;
+
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.ScrollPane;
+import javafx.scene.control.Slider;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.text.Text;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.component.GameBlockCoordinate;
+import uk.ac.soton.comp1206.component.GameBoard;
+import uk.ac.soton.comp1206.component.PieceBoard;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.VirtualTickScheduler;
+import uk.ac.soton.comp1206.replay.Replay;
+import uk.ac.soton.comp1206.replay.ReplayArchive;
+import uk.ac.soton.comp1206.replay.ReplayPlayer;
+import uk.ac.soton.comp1206.ui.GamePane;
+import uk.ac.soton.comp1206.ui.GameWindow;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The Replay scene. Lists the games in the replay archive and plays one back on a GameBoard, at anything from a
+ * quarter of its speed to 64 times faster, with a timeline to skip to any point of the game.
+ *
+ * The game is played through a ReplayPlayer off screen, and the board only shows it once per frame: the blocks are
+ * copied onto the board's own grid and the lines cleared since the last frame fade out together. However many events
+ * are played in a frame, each block is repainted and fades at most once. Moving the timeline restores the nearest
+ * keyframe from the archive instead of playing the game again from the start.
+ */
+public class ReplayScene extends BaseScene {
+
+    private static final Logger logger = LogManager.getLogger(ReplayScene.class);
+
+    /**
+     * Playback speeds to pick from
+     */
+    private static final double[] SPEEDS = {0.25, 0.5, 1, 2, 4, 8, 16, 32, 64};
+
+    /**
+     * Index of normal speed in SPEEDS
+     */
+    private static final int NORMAL_SPEED = 2;
+
+    /**
+     * Number of games listed
+     */
+    private static final int LISTED_GAMES = 50;
+
+    /**
+     * Milliseconds skipped by the arrow keys
+     */
+    private static final long SKIP = 5000;
+
+    private final ReplayArchive archive = ReplayArchive.get();
+
+    /**
+     * Archive entry being played, -1 before one is picked
+     */
+    private int entry = -1;
+    private ReplayPlayer player;
+
+    /**
+     * Grid shown on the board, copied from the game being played once per frame
+     */
+    private Grid shownGrid;
+    private GameBoard board;
+    private PieceBoard incomingpieceBoard;
+    private PieceBoard nextincomingpieceBoard;
+
+    /**
+     * Blocks cleared since the last frame
+     */
+    private final Set<GameBlockCoordinate> cleared = new HashSet<>();
+
+    /**
+     * Position of the player last shown on the board
+     */
+    private int shown = -1;
+
+    /**
+     * Replay time reached, in milliseconds from the start
+     */
+    private double time;
+    private int speed = NORMAL_SPEED;
+    private boolean paused;
+
+    /**
+     * Time of the previous frame, 0 before the first one
+     */
+    private long lastFrame;
+
+    /**
+     * Set while the timeline is moved to follow playback, rather than by the user
+     */
+    private boolean following;
+
+    private final AnimationTimer frames = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            frame(now);
+        }
+    };
+
+    private VBox gameList;
+    private Text selected;
+    private VBox boardBox;
+    private Text modeType;
+    private Text currScore;
+    private Text currLevel;
+    private Text currLives;
+    private Text currMultiplier;
+    private Text speedText;
+    private Text playText;
+    private Text timeText;
+    private Slider timeline;
+    private Rectangle rec;
+    private double timerWidth;
+
+    /**
+     * Create a new Replay scene
+     * @param gameWindow the Game Window
+     */
+    public ReplayScene(GameWindow gameWindow) {
+        super(gameWindow);
+        logger.info("Creating Replay Scene");
+    }
+
+    /**
+     * Build the Replay window
+     */
+    @Override
+    public void build() {
+        logger.info("Building " + this.getClass().getName());
+
+        root = new GamePane(gameWindow.getWidth(),gameWindow.getHeight());
+
+        var replayPane = new StackPane();
+        replayPane.setMaxWidth(gameWindow.getWidth());
+        replayPane.setMaxHeight(gameWindow.getHeight());
+        replayPane.getStyleClass().add("challenge-background");
+        root.getChildren().add(replayPane);
+
+        var mainPane = new BorderPane();
+        replayPane.getChildren().add(mainPane);
+        mainPane.setPadding(new Insets(20,20,20,20));
+
+        //List the archived games on the left, most recent or best first
+        var title = new Text("Replays");
+        title.getStyleClass().add("title");
+        var recent = new Text("Recent");
+        var best = new Text("Best");
+        recent.getStyleClass().add("newgamebutton");
+        best.getStyleClass().add("newgamebutton");
+        recent.setOnMouseClicked(event -> listRecent());
+        best.setOnMouseClicked(event -> listBest());
+        var hboxlist = new HBox(recent,best);
+        hboxlist.setSpacing(20);
+
+        gameList = new VBox();
+        gameList.setSpacing(5);
+        var scroller = new ScrollPane(gameList);
+        scroller.getStyleClass().add("scroller");
+        scroller.setFitToWidth(true);
+        scroller.setPrefWidth(gameWindow.getWidth()/3.0);
+
+        var vboxleft = new VBox(title,hboxlist,scroller);
+        vboxleft.setSpacing(10);
+        vboxleft.setAlignment(Pos.TOP_CENTER);
+        VBox.setVgrow(scroller,Priority.ALWAYS);
+        mainPane.setLeft(vboxleft);
+
+        //The board is added once a game is picked
+        modeType = new Text("Pick a game");
+        modeType.getStyleClass().add("challenge-labels");
+        boardBox = new VBox(modeType);
+        boardBox.setSpacing(30);
+        boardBox.setAlignment(Pos.TOP_CENTER);
+        mainPane.setCenter(boardBox);
+
+        //Add the score, level, lives, multiplier and pieces of the game on the right
+        var score = new Text("Score");
+        var level = new Text("Level");
+        var lives = new Text("Lives");
+        var multiplier = new Text("Multiplier");
+        var incoming = new Text("Incoming");
+        currScore = new Text();
+        currLevel = new Text();
+        currLives = new Text();
+        currMultiplier = new Text();
+        for(Text label : new Text[]{score,level,lives,multiplier,incoming}){
+            label.getStyleClass().add("challenge-labels");
+        }
+        for(Text value : new Text[]{currScore,currLevel,currLives,currMultiplier}){
+            value.getStyleClass().add("myscore");
+        }
+        incomingpieceBoard = new PieceBoard(new Grid(3,3),gameWindow.getWidth()/10,gameWindow.getWidth()/10);
+        nextincomingpieceBoard = new PieceBoard(new Grid(3,3),gameWindow.getWidth()/12,gameWindow.getWidth()/12);
+        incomingpieceBoard.setMouseTransparent(true);
+        nextincomingpieceBoard.setMouseTransparent(true);
+
+        var vboxright = new VBox(score,currScore,level,currLevel,lives,currLives,multiplier,currMultiplier,incoming,
+                incomingpieceBoard,nextincomingpieceBoard);
+        vboxright.setSpacing(5);
+        vboxright.setAlignment(Pos.TOP_CENTER);
+        mainPane.setRight(vboxright);
+
+        //Add the game loop timer, the playback controls and the timeline along the bottom
+        timerWidth = gameWindow.getWidth() - 40;
+        rec = new Rectangle(10,0,timerWidth,20);
+        rec.setFill(Color.GREEN.brighter());
+
+        playText = new Text("Pause");
+        var slower = new Text("<<");
+        speedText = new Text();
+        var faster = new Text(">>");
+        timeText = new Text();
+        for(Text control : new Text[]{playText,slower,faster}){
+            control.getStyleClass().add("newgamebutton");
+        }
+        speedText.getStyleClass().add("challenge-labels");
+        timeText.getStyleClass().add("challenge-labels");
+        playText.setOnMouseClicked(event -> togglePause());
+        slower.setOnMouseClicked(event -> changeSpeed(-1));
+        faster.setOnMouseClicked(event -> changeSpeed(1));
+
+        timeline = new Slider(0,1,0);
+        HBox.setHgrow(timeline,Priority.ALWAYS);
+        //Seek whenever the user moves the timeline, including while it is being dragged
+        timeline.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if(!following && player!=null){
+                seek(newValue.doubleValue());
+            }
+        });
+
+        var hboxcontrols = new HBox(playText,slower,speedText,faster,timeline,timeText);
+        hboxcontrols.setSpacing(15);
+        hboxcontrols.setAlignment(Pos.CENTER);
+        var vboxbottom = new VBox(rec,hboxcontrols);
+        vboxbottom.setSpacing(10);
+        mainPane.setBottom(vboxbottom);
+
+        showSpeed();
+        setControlsDisabled(true);
+        listRecent();
+
+        fader(title);
+    }
+
+    /**
+     * Initialise the scene and start drawing frames
+     */
+    @Override
+    public void initialise() {
+        logger.info("Initialising Replays");
+        scene.setOnKeyPressed(this::keySupport);
+        frames.start();
+    }
+
+    /**
+     * List the most recent games in the archive
+     */
+    private void listRecent() {
+        if(archive==null) {
+            showList(new int[0]);
+            return;
+        }
+        int size = archive.size();
+        int[] games = new int[Math.min(LISTED_GAMES,size)];
+        for(int i=0; i<games.length; i++){
+            games[i] = size - 1 - i;
+        }
+        showList(games);
+    }
+
+    /**
+     * List the best games in the archive
+     */
+    private void listBest() {
+        showList(archive==null ? new int[0] : archive.top(LISTED_GAMES,null));
+    }
+
+    /**
+     * Show a list of games to pick from
+     * @param games archive entries to list
+     */
+    private void showList(int[] games) {
+        gameList.getChildren().clear();
+        selected = null;
+        if(games.length==0){
+            var none = new Text(archive==null ? "Replays unavailable" : "No replays yet");
+            none.getStyleClass().add("channelItem");
+            gameList.getChildren().add(none);
+            return;
+        }
+        for(int game : games){
+            var item = new Text(String.format("%s  %d  %tF %<tR", archive.getPlayer(game), archive.getScore(game),
+                    archive.getStarted(game)));
+            item.getStyleClass().add("channelItem");
+            if(game==entry){
+                select(item);
+            }
+            item.setOnMouseClicked(event -> {
+                select(item);
+                load(game);
+            });
+            gameList.getChildren().add(item);
+        }
+    }
+
+    /**
+     * Highlight the game picked in the list
+     * @param item the game's item
+     */
+    private void select(Text item) {
+        if(selected!=null){
+            selected.getStyleClass().remove("selected");
+        }
+        item.getStyleClass().add("selected");
+        selected = item;
+    }
+
+    /**
+     * Start playing a game from the archive
+     * @param entry archive entry of the game
+     */
+    private void load(int entry) {
+        Replay replay;
+        try {
+            replay = archive.read(entry);
+        } catch (IOException e) {
+            logger.error("Unable to read replay {}: {}", entry, e.getMessage());
+            return;
+        }
+        logger.info("Playing replay {}", archive.describe(entry));
+        this.entry = entry;
+
+        //Play the game off screen on a clock which only the player moves, and keep its sound effects quiet
+        player = new ReplayPlayer(replay, new VirtualTickScheduler());
+        Game game = player.getGame();
+        game.setMuted(true);
+        game.setNextPieceListener((upComing, followingPiece) -> { });
+        game.setGameLoopListener((delay, ended) -> { });
+        game.setLinesClearedListener(cleared::addAll);
+        player.start();
+
+        //Show the game on a board of its own size, which only changes when a frame copies the game onto it
+        shownGrid = new Grid(replay.getCols(),replay.getRows());
+        board = new GameBoard(shownGrid,gameWindow.getWidth()/3,gameWindow.getWidth()/3);
+        board.setMouseTransparent(true);
+        modeType.setText(replay.getMode());
+        boardBox.getChildren().setAll(modeType,board);
+
+        currScore.textProperty().bind(game.scoreProperty().asString());
+        currLevel.textProperty().bind(game.levelProperty().asString());
+        currLives.textProperty().bind(game.livesProperty().asString());
+        currMultiplier.textProperty().bind(game.multiplierProperty().asString());
+
+        following = true;
+        timeline.setMax(Math.max(1,replay.getDuration()));
+        following = false;
+        setControlsDisabled(false);
+
+        time = 0;
+        cleared.clear();
+        shown = -1;
+        setPaused(false);
+        show();
+    }
+
+    /**
+     * Play the events due by a frame and show the game as it is after them
+     * @param now time of the frame, in nanoseconds
+     */
+    private void frame(long now) {
+        long elapsed = lastFrame==0 ? 0 : now - lastFrame;
+        lastFrame = now;
+        if(player==null) return;
+
+        if(!paused){
+            time += elapsed / 1_000_000.0 * SPEEDS[speed];
+            Replay replay = player.getReplay();
+            while(!player.isFinished() && replay.getTime(player.getPosition()) <= time){
+                player.step();
+            }
+            //Stop at the end rather than running the clock on past it
+            if(player.isFinished()){
+                time = Math.min(time,replay.getDuration());
+                setPaused(true);
+            }
+        }
+        show();
+    }
+
+    /**
+     * Show the game as it is now. The board, pieces and fades only change if events were played since the last frame
+     */
+    private void show() {
+        Game game = player.getGame();
+        if(player.getPosition()!=shown){
+            shown = player.getPosition();
+
+            //Only blocks which changed are repainted, however many times they changed since the last frame
+            Grid playedGrid = game.getGrid();
+            for(int y=0; y<shownGrid.getRows(); y++){
+                for(int x=0; x<shownGrid.getCols(); x++){
+                    shownGrid.set(x,y,playedGrid.get(x,y));
+                }
+            }
+            incomingpieceBoard.displayCurrentPiece(game.getCurrentPiece());
+            nextincomingpieceBoard.displayNextPiece(game.getFollowingPiece());
+
+            if(!cleared.isEmpty()){
+                board.fadeOut(cleared);
+                cleared.clear();
+            }
+        }
+
+        //Shrink the timer bar as the game loop timer runs down
+        double left = game.getState() ? 0 : (player.getDeadline() - time) / game.getTimerDelay();
+        rec.setWidth(timerWidth * Math.max(0,Math.min(1,left)));
+        rec.setFill(left > 2/3.0 ? Color.GREEN.brighter() : left > 1/3.0 ? Color.YELLOW : Color.RED);
+
+        if(!timeline.isValueChanging()){
+            following = true;
+            timeline.setValue(time);
+            following = false;
+        }
+        timeText.setText(formatTime(time) + " / " + formatTime(player.getReplay().getDuration()));
+    }
+
+    /**
+     * Move playback to any time in the game, from the nearest keyframe before it
+     * @param target replay time, in milliseconds from the start
+     */
+    private void seek(double target) {
+        Replay replay = player.getReplay();
+        target = Math.max(0,Math.min(target,replay.getDuration()));
+
+        //Find the first event after the target time
+        int low = 0;
+        int high = replay.size();
+        while(low<high){
+            int middle = (low + high) >>> 1;
+            if(replay.getTime(middle) <= target){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+
+        try {
+            archive.seek(entry,player,low);
+        } catch (IOException e) {
+            logger.error("Unable to seek replay {}: {}", entry, e.getMessage());
+            return;
+        }
+        time = target;
+        //Lines cleared on the way are not faded
+        cleared.clear();
+        show();
+    }
+
+    /**
+     * Handles keyboard presses
+     * @param keyEvent the key pressed
+     */
+    private void keySupport(KeyEvent keyEvent) {
+        if(keyEvent.getCode()==KeyCode.ESCAPE){
+            handleEscape(keyEvent);
+            return;
+        }
+        if(player==null) return;
+        //Space pauses, left and right skip back and forward, up and down change speed
+        switch(keyEvent.getCode()){
+            case SPACE:
+                togglePause();
+                break;
+            case LEFT:
+                seek(time - SKIP);
+                break;
+            case RIGHT:
+                seek(time + SKIP);
+                break;
+            case UP:
+                changeSpeed(1);
+                break;
+            case DOWN:
+                changeSpeed(-1);
+                break;
+            default:
+                return;
+        }
+        keyEvent.consume();
+    }
+
+    /**
+     * Pause or carry on playing, starting again from the beginning once the end is reached
+     */
+    private void togglePause() {
+        if(player==null) return;
+        if(paused && player.isFinished()){
+            seek(0);
+        }
+        setPaused(!paused);
+    }
+
+    /**
+     * Pause or carry on playing
+     * @param paused true to pause
+     */
+    private void setPaused(boolean paused) {
+        this.paused = paused;
+        playText.setText(paused ? "Play" : "Pause");
+    }
+
+    /**
+     * Move to the next speed up or down
+     * @param step 1 to play faster, -1 to play slower
+     */
+    private void changeSpeed(int step) {
+        speed = Math.max(0,Math.min(SPEEDS.length - 1,speed + step));
+        showSpeed();
+    }
+
+    /**
+     * Show the playback speed
+     */
+    private void showSpeed() {
+        double value = SPEEDS[speed];
+        speedText.setText((value < 1 ? String.valueOf(value) : String.valueOf((int) value)) + "x");
+    }
+
+    /**
+     * Enable the playback controls once there is a game to play
+     * @param disabled true to disable them
+     */
+    private void setControlsDisabled(boolean disabled) {
+        timeline.setDisable(disabled);
+        playText.setDisable(disabled);
+    }
+
+    /**
+     * Format a replay time as minutes and seconds
+     * @param millis milliseconds
+     * @return time
+     */
+    private static String formatTime(double millis) {
+        long seconds = (long) millis / 1000;
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+
+    /**
+     * Stop drawing frames when leaving the scene
+     */
+    @Override
+    protected void cleanUp() {
+        frames.stop();
+    }
+}
@@ -23,13 +23,19 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.event.CommunicationsListener;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.replay.ReplayArchive;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
+import uk.ac.soton.comp1206.replay.ReplayVerifier;
 import uk.ac.soton.comp1206.ui.GamePane;
 import uk.ac.soton.comp1206.ui.GameWindow;
 import uk.ac.soton.comp1206.ui.ScoresList;
 import uk.ac.soton.comp1206.utility.Multimedia;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class used to find and display current scores
@@ -59,6 +65,16 @@ public class ScoresScene extends BaseScene{
     private ScoresList remotescoreslist;
     private boolean beatenLocal=false;
     private boolean beatenRemote=false;
+    private boolean archived=false;
+    private boolean saved=false;
+    //Completed with whether the replay was archived, and once it has been checked for an online score
+    private CompletableFuture<Boolean> archiving=CompletableFuture.completedFuture(false);
+    private CompletableFuture<?> verifying=CompletableFuture.completedFuture(null);
+
+    /**
+     * Player name of games saved and archived without a name being entered
+     */
+    private static final String ANONYMOUS = "Anonymous";
 
     public ScoresScene(GameWindow gameWindow) {
         super(gameWindow);
@@ -177,13 +193,89 @@ public class ScoresScene extends BaseScene{
     }
 
     /**
-     * Send a high score to communicator
+     * Send a high score to communicator, once the replay of the game has been checked to back it up
      * @param name the players name
      * @param score the players score
      */
     protected void writeOnlineScore(String name, Integer score){
-        logger.info("Sending score: {}", score);
-        communicator.send("HISCORE " + name + ":" + score+"\n");
+        ReplayRecorder replay = gameWindow.getReplay();
+        if(replay==null){
+            logger.warn("No replay of this game, not sending score {}", score);
+            return;
+        }
+        //Play the replay again in the background once it is saved, and only send the score if it matches
+        verifying = replay.getSaved()
+                .thenApplyAsync(path -> ReplayVerifier.verify(path, score))
+                .whenComplete((result, error) -> Platform.runLater(() -> {
+                    if(error!=null){
+                        logger.error("Unable to check replay, not sending score {}: {}", score, error.getMessage());
+                    }else if(!result.isValid()){
+                        logger.error("Replay does not back up score {}, not sending it: {}", score, result);
+                    }else{
+                        logger.info("Sending score: {}", score);
+                        communicator.send("HISCORE " + name + ":" + score+"\n");
+                    }
+                }));
+    }
+
+    /**
+     * Add the replay of the game to the archive of this machine's games once it is saved, in the background
+     * @param name the player's name
+     */
+    private void archiveReplay(String name){
+        ReplayRecorder replay = gameWindow.getReplay();
+        if(archived || replay==null){
+            return;
+        }
+        archived=true;
+        archiving = replay.getSaved().thenApplyAsync(path -> {
+            ReplayArchive archive = ReplayArchive.get();
+            if(archive==null){
+                return false;
+            }
+            try {
+                archive.append(path, name);
+                return true;
+            } catch (IOException e) {
+                logger.error("Unable to archive replay {}: {}", path, e.getMessage());
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Delete the replay file of the game once it is in the archive and any online score has been checked against it
+     */
+    private void removeArchivedReplay(){
+        ReplayRecorder replay = gameWindow.getReplay();
+        if(replay==null){
+            return;
+        }
+        CompletableFuture<Boolean> archived = archiving;
+        CompletableFuture.allOf(archived, verifying).whenComplete((done, error) -> {
+            //Keep the file if it is the only copy of the replay
+            if(archived.isCompletedExceptionally() || !archived.join()){
+                return;
+            }
+            try {
+                Files.deleteIfExists(replay.getPath());
+                logger.info("Removed archived replay {}", replay.getPath());
+            } catch (IOException e) {
+                logger.error("Unable to remove archived replay {}: {}", replay.getPath(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Save the score of the game to the local score store, whether or not it reached the top ten
+     * @param name the player's name
+     */
+    private void saveScore(String name){
+        if(saved){
+            return;
+        }
+        saved=true;
+        localscoreslist.writeScores(name,userScore);
     }
 
     /**
@@ -193,12 +285,9 @@ public class ScoresScene extends BaseScene{
         logger.info("loading local scores");
 
         try {
-            for (Pair<String, Integer> item : localscoreslist.loadScores()) {
-                String toAddname = item.getKey();
-                Integer toAddscore = item.getValue();
-
-                addtoLocal(toAddname, toAddscore);
-            }
+            //Already saved, so only shown
+            localScores.addAll(localscoreslist.loadScores());
+            Collections.sort(localScores,new sortScores());
         } catch (Exception e) {
             System.out.println(e);
         }
@@ -243,9 +332,6 @@ public class ScoresScene extends BaseScene{
 
         //Sort scores in descending order after every addition
         Collections.sort(localScores,new sortScores());
-
-        //Write score to text file
-        localscoreslist.writeScores(username,score);
         logger.info("Added {}:{} to local scores", username, score);
 
     }
@@ -337,6 +423,9 @@ public class ScoresScene extends BaseScene{
                 getUsername();
             });
         }else{
+            saveScore(ANONYMOUS);
+            archiveReplay(ANONYMOUS);
+            removeArchivedReplay();
             localscoreslist.reveal();
             remotescoreslist.reveal();}
         logger.info("local score has been beaten: {}, remote score: {}", beatenLocal, beatenRemote );
@@ -353,7 +442,9 @@ public class ScoresScene extends BaseScene{
             //Set username to text entered
             username=enterName.getText();
             logger.info("username set to "+ username);
-            //If local score was beaten, add score to local score list
+            saveScore(username);
+            archiveReplay(username);
+            //If local score was beaten, show the score in the local score list
             if(beatenLocal){
                 addtoLocal(username,userScore);
             }
@@ -362,6 +453,7 @@ public class ScoresScene extends BaseScene{
                 addtoRemote(username,userScore);
                 writeOnlineScore(username,userScore);
             }
+            removeArchivedReplay();
 
             //Remove getUsername() pane
             root.getChildren().remove(pane);
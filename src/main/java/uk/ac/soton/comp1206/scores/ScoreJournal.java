@@ -0,0 +1,432 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The files a ScoreStore keeps its scores in: a snapshot and an append-only journal of the scores added since.
+ *
+ * Every journal entry carries a CRC32 of its record, so an entry torn by a crash is found on loading and cut off. Once
+ * the journal holds enough entries it is compacted: every score goes into a new snapshot, with one CRC32 over the lot,
+ * which replaces the old one by an atomic rename, and then a new empty journal replaces the old one the same way. Each
+ * snapshot and journal carries a generation number. A snapshot includes every journal of an earlier generation, so a
+ * crash between the two renames leaves a journal which is skipped rather than loaded twice.
+ *
+ * Both files are loaded by one sequential pass over a read-only mapping.
+ *
+ * The snapshot starts with a header:
+ * <pre>
+ *   int  magic "SCS1"
+ *   int  version
+ *   long generation
+ *   int  number of records
+ *   int  CRC32 of the records
+ * </pre>
+ * The journal starts with a header:
+ * <pre>
+ *   int  magic "SCJ1"
+ *   int  version
+ *   long generation
+ * </pre>
+ * and each journal entry is the CRC32 of its record, then the record. A record is:
+ * <pre>
+ *   long  time recorded, in milliseconds since the epoch, 0 if not known
+ *   int   score
+ *   short length of the name
+ *   name, in UTF-8
+ * </pre>
+ * Numbers are big-endian.
+ */
+public class ScoreJournal implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ScoreJournal.class);
+
+    /**
+     * First bytes of a snapshot, "SCS1"
+     */
+    public static final int SNAPSHOT_MAGIC = 0x53435331;
+
+    /**
+     * First bytes of a journal, "SCJ1"
+     */
+    public static final int JOURNAL_MAGIC = 0x53434A31;
+
+    /**
+     * Version of the format
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Longest name kept, in bytes of UTF-8
+     */
+    public static final int MAX_NAME_BYTES = 64;
+
+    private static final String SNAPSHOT = "snapshot.dat";
+    private static final String JOURNAL = "journal.log";
+    private static final String TEMPORARY = ".tmp";
+
+    private static final int SNAPSHOT_HEADER_BYTES = 24;
+    private static final int JOURNAL_HEADER_BYTES = 16;
+
+    /**
+     * Bytes of a record before the name
+     */
+    private static final int RECORD_BYTES = 14;
+    private static final int CRC_BYTES = 4;
+
+    /**
+     * Size of the buffer a snapshot is written through
+     */
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private final Path directory;
+
+    /**
+     * The journal, positioned at its end
+     */
+    private FileChannel journal;
+
+    /**
+     * Generation of the journal
+     */
+    private long generation;
+
+    /**
+     * Number of entries in the journal
+     */
+    private int entries;
+
+    /**
+     * Open the files in a directory, creating them if there are none, and load every score into a table
+     * @param directory the directory
+     * @param table table to load the scores into
+     * @throws IOException if the files cannot be opened or the snapshot is damaged
+     */
+    public ScoreJournal(Path directory, ScoreTable table) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        Path snapshot = directory.resolve(SNAPSHOT);
+        long snapshotGeneration = Files.exists(snapshot) ? loadSnapshot(snapshot, table) : 0;
+
+        Path path = directory.resolve(JOURNAL);
+        if (!Files.exists(path)) {
+            startJournal(snapshotGeneration);
+            return;
+        }
+        journal = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer mapped = journal.map(FileChannel.MapMode.READ_ONLY, 0, journal.size());
+        if (mapped.capacity() < JOURNAL_HEADER_BYTES) {
+            //Torn while it was being started, so it holds no scores
+            journal.close();
+            startJournal(snapshotGeneration);
+            return;
+        }
+        if (mapped.getInt(0) != JOURNAL_MAGIC || mapped.getInt(4) != VERSION) {
+            journal.close();
+            throw new IOException("Not a version " + VERSION + " score journal: " + path.toAbsolutePath());
+        }
+        generation = mapped.getLong(8);
+        if (generation < snapshotGeneration) {
+            //Compacted into the snapshot before a crash stopped it being replaced
+            logger.warn("Skipping score journal {} which is already in the snapshot", path.toAbsolutePath());
+            journal.close();
+            startJournal(snapshotGeneration);
+            return;
+        }
+        if (generation > snapshotGeneration) {
+            logger.error("Score snapshot of generation {} is missing, scores before it are lost", generation);
+        }
+
+        long end = loadJournal(mapped, table);
+        if (end < journal.size()) {
+            logger.warn("Dropping {} bytes torn from the end of score journal {}", journal.size() - end,
+                    path.toAbsolutePath());
+            journal.truncate(end);
+        }
+        journal.position(end);
+    }
+
+    /**
+     * Load the scores in a snapshot
+     * @param path the snapshot
+     * @param table table to load them into
+     * @return generation of the snapshot
+     * @throws IOException if it cannot be read or is damaged
+     */
+    private static long loadSnapshot(Path path, ScoreTable table) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.capacity() < SNAPSHOT_HEADER_BYTES || mapped.getInt(0) != SNAPSHOT_MAGIC
+                    || mapped.getInt(4) != VERSION) {
+                throw new IOException("Not a version " + VERSION + " score snapshot: " + path.toAbsolutePath());
+            }
+            long generation = mapped.getLong(8);
+            int count = mapped.getInt(16);
+
+            //Check the whole snapshot before loading any of it
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().position(SNAPSHOT_HEADER_BYTES));
+            if ((int) crc.getValue() != mapped.getInt(20)) {
+                throw new IOException("Score snapshot is damaged: " + path.toAbsolutePath());
+            }
+
+            ByteBuffer records = mapped.duplicate().position(SNAPSHOT_HEADER_BYTES);
+            for (int record = 0; record < count; record++) {
+                if (!readRecord(records, table)) {
+                    throw new IOException("Score snapshot stops after " + record + " of " + count + " scores: "
+                            + path.toAbsolutePath());
+                }
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Load the entries of a journal, up to the first one which is torn or damaged
+     * @param mapped the journal
+     * @param table table to load them into
+     * @return position after the last whole entry
+     */
+    private long loadJournal(MappedByteBuffer mapped, ScoreTable table) {
+        int position = JOURNAL_HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        while (mapped.capacity() - position >= CRC_BYTES + RECORD_BYTES) {
+            int record = position + CRC_BYTES;
+            int nameBytes = mapped.getShort(record + RECORD_BYTES - 2) & 0xFFFF;
+            int end = record + RECORD_BYTES + nameBytes;
+            if (nameBytes > MAX_NAME_BYTES || end > mapped.capacity()) break;
+
+            crc.reset();
+            crc.update(mapped.duplicate().position(record).limit(end));
+            if ((int) crc.getValue() != mapped.getInt(position)) break;
+
+            readRecord(mapped.duplicate().position(record), table);
+            entries++;
+            position = end;
+        }
+        return position;
+    }
+
+    /**
+     * Read a record into a table
+     * @param buffer buffer positioned at the record, left after it
+     * @param table the table
+     * @return false if the buffer ends before the record does
+     */
+    private static boolean readRecord(ByteBuffer buffer, ScoreTable table) {
+        if (buffer.remaining() < RECORD_BYTES) return false;
+        long time = buffer.getLong();
+        int score = buffer.getInt();
+        int nameBytes = buffer.getShort() & 0xFFFF;
+        if (nameBytes > MAX_NAME_BYTES || buffer.remaining() < nameBytes) return false;
+        byte[] name = new byte[nameBytes];
+        buffer.get(name);
+        table.add(new String(name, StandardCharsets.UTF_8), score, time);
+        return true;
+    }
+
+    /**
+     * Write a record
+     * @param buffer buffer with room for it
+     * @param name name of the player, in UTF-8
+     * @param score the score
+     * @param time when it was recorded
+     */
+    private static void writeRecord(ByteBuffer buffer, byte[] name, int score, long time) {
+        buffer.putLong(time);
+        buffer.putInt(score);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+    }
+
+    /**
+     * Get the UTF-8 bytes of a name, cut short at a character boundary if it is too long
+     * @param name the name
+     * @return bytes
+     */
+    public static byte[] nameBytes(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME_BYTES) return bytes;
+        int length = MAX_NAME_BYTES;
+        //Step back over continuation bytes so no character is split
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) length--;
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Encode a journal entry
+     * @param name name of the player, in UTF-8, at most MAX_NAME_BYTES long
+     * @param score the score
+     * @param time when it was recorded
+     * @return buffer holding the entry, ready to be written
+     */
+    public static ByteBuffer encode(byte[] name, int score, long time) {
+        ByteBuffer entry = ByteBuffer.allocate(CRC_BYTES + RECORD_BYTES + name.length);
+        entry.position(CRC_BYTES);
+        writeRecord(entry, name, score, time);
+        CRC32 crc = new CRC32();
+        crc.update(entry.array(), CRC_BYTES, RECORD_BYTES + name.length);
+        entry.putInt(0, (int) crc.getValue());
+        return entry.flip();
+    }
+
+    /**
+     * Append entries to the journal with a single write. Nothing is left of them if the write fails.
+     * @param batch entries made by encode
+     * @throws IOException if they cannot be written
+     */
+    public void append(ByteBuffer[] batch) throws IOException {
+        long start = journal.position();
+        try {
+            long left = 0;
+            for (ByteBuffer entry : batch) {
+                left += entry.remaining();
+            }
+            while (left > 0) {
+                left -= journal.write(batch);
+            }
+        } catch (IOException e) {
+            //Cut off any part written, so later entries are not hidden behind a torn one
+            try {
+                journal.truncate(start);
+                journal.position(start);
+            } catch (IOException ignored) {
+                //The journal is already failing, the torn entry is cut off when it is next loaded
+            }
+            throw e;
+        }
+        entries += batch.length;
+    }
+
+    /**
+     * Make everything appended so far durable
+     * @throws IOException if it cannot be written to disk
+     */
+    public void force() throws IOException {
+        journal.force(false);
+    }
+
+    /**
+     * Get the number of entries in the journal
+     * @return entries
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Compact the scores into a new snapshot and start a new empty journal
+     * @param table every score, which must include every entry of the journal and nothing more
+     * @throws IOException if the new files cannot be written
+     */
+    public void compact(ScoreTable table) throws IOException {
+        long next = generation + 1;
+        Path temporary = directory.resolve(SNAPSHOT + TEMPORARY);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            //Write the records after the header, which is written last once their CRC32 is known
+            channel.position(SNAPSHOT_HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_BYTES);
+            for (int record = 0; record < table.size(); record++) {
+                if (buffer.remaining() < RECORD_BYTES + MAX_NAME_BYTES) {
+                    writeOut(channel, buffer, crc);
+                }
+                writeRecord(buffer, nameBytes(table.getName(record)), table.getScore(record), table.getTime(record));
+            }
+            writeOut(channel, buffer, crc);
+
+            ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER_BYTES);
+            header.putInt(SNAPSHOT_MAGIC).putInt(VERSION).putLong(next).putInt(table.size())
+                    .putInt((int) crc.getValue()).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+
+        //The old journal is in the snapshot now
+        journal.close();
+        startJournal(next);
+        logger.info("Compacted {} scores into generation {}", table.size(), next);
+    }
+
+    /**
+     * Write out the records in a buffer, adding them to a CRC32
+     * @param channel channel to write to
+     * @param buffer the buffer, which is left empty
+     * @param crc the CRC32
+     * @throws IOException if they cannot be written
+     */
+    private static void writeOut(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Replace the journal with an empty one, by an atomic rename
+     * @param generation generation of the new journal
+     * @throws IOException if it cannot be written
+     */
+    private void startJournal(long generation) throws IOException {
+        Path temporary = directory.resolve(JOURNAL + TEMPORARY);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER_BYTES);
+            header.putInt(JOURNAL_MAGIC).putInt(VERSION).putLong(generation).flip();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        }
+        Path path = directory.resolve(JOURNAL);
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+
+        journal = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        journal.position(journal.size());
+        this.generation = generation;
+        entries = 0;
+    }
+
+    /**
+     * Make the renames in the directory durable
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            //Not every platform can sync a directory
+            logger.debug("Unable to sync {}: {}", directory.toAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Close the journal
+     * @throws IOException if it cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
@@ -0,0 +1,338 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javafx.util.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Every local score ever recorded on this machine, kept in a ScoreJournal.
+ *
+ * Adding a score puts it in memory straight away, so the caller sees it at once, and hands its journal entry to a
+ * single background thread. The thread writes every entry waiting in one append and makes them durable with one
+ * fsync, so scores added while it waits on the disk are written together in the next batch. Once the journal holds
+ * COMPACT_ENTRIES entries the thread compacts it into a new snapshot.
+ *
+ * The first time the store is opened it takes over the scores in the old scores.txt file.
+ */
+public class ScoreStore implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ScoreStore.class);
+
+    /**
+     * Directory the scores are kept in
+     */
+    public static final String DIRECTORY = "scores";
+
+    /**
+     * File the top ten scores were kept in before there was a store
+     */
+    public static final String LEGACY_FILE = "scores.txt";
+
+    /**
+     * Number of journal entries which are compacted into a new snapshot
+     */
+    public static final int COMPACT_ENTRIES = 4096;
+
+    /**
+     * The single thread writing the scores
+     */
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "score-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Opens the store of this machine's scores the first time it is asked for
+     */
+    private static class Holder {
+        private static final ScoreStore INSTANCE = openShared();
+    }
+
+    /**
+     * Set once the shared store has been asked for
+     */
+    private static volatile boolean opened;
+
+    private final ScoreJournal journal;
+
+    /**
+     * Every score written or waiting to be written, in the order they were added, only used under the lock of this
+     * store
+     */
+    private final ScoreTable table = new ScoreTable();
+
+    /**
+     * Journal entries waiting for the writer, and the callers waiting for them to be written
+     */
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private List<CompletableFuture<Void>> waiting = new ArrayList<>();
+
+    /**
+     * Set while the writer has a batch to pick up
+     */
+    private boolean scheduled;
+    private boolean closed;
+
+    /**
+     * Number of scores in the journal or snapshot, only used by the writer
+     */
+    private int written;
+
+    /**
+     * Open a store, creating it if the directory has none
+     * @param directory the store's directory
+     * @throws IOException if it cannot be opened or its snapshot is damaged
+     */
+    public ScoreStore(Path directory) throws IOException {
+        journal = new ScoreJournal(directory, table);
+        written = table.size();
+        logger.info("Opened score store {} with {} scores", directory.toAbsolutePath(), written);
+    }
+
+    /**
+     * Get the store of this machine's scores, opening it on first use
+     * @return store, or null if it cannot be opened
+     */
+    public static ScoreStore get() {
+        opened = true;
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Open the store of this machine's scores, taking over the old scores file if the store is new
+     * @return store, or null if it cannot be opened
+     */
+    private static ScoreStore openShared() {
+        ScoreStore store;
+        try {
+            store = new ScoreStore(Paths.get(DIRECTORY));
+        } catch (IOException e) {
+            logger.error("Unable to open score store {}: {}", Paths.get(DIRECTORY).toAbsolutePath(), e.getMessage());
+            return null;
+        }
+        Path legacy = Paths.get(LEGACY_FILE);
+        if (store.size() == 0 && Files.exists(legacy)) {
+            try {
+                logger.info("Took over {} scores from {}", store.migrate(legacy), legacy.toAbsolutePath());
+            } catch (IOException e) {
+                logger.error("Unable to read old scores {}: {}", legacy.toAbsolutePath(), e.getMessage());
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Add the scores in a file of name:score lines
+     * @param path the file
+     * @return number of scores added
+     * @throws IOException if it cannot be read
+     */
+    public int migrate(Path path) throws IOException {
+        int added = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int split = line.lastIndexOf(':');
+                try {
+                    add(line.substring(0, split), Integer.parseInt(line.substring(split + 1).trim()), 0);
+                    added++;
+                } catch (RuntimeException e) {
+                    logger.warn("Skipping score line {}", line);
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Add a score
+     * @param name name of the player
+     * @param score the score
+     * @return completed once the score is durable, or with the error if it could not be written
+     */
+    public CompletableFuture<Void> add(String name, int score) {
+        return add(name, score, System.currentTimeMillis());
+    }
+
+    /**
+     * Add a score
+     * @param name name of the player
+     * @param score the score
+     * @param time when it was recorded, in milliseconds since the epoch, 0 if not known
+     * @return completed once the score is durable, or with the error if it could not be written
+     */
+    private synchronized CompletableFuture<Void> add(String name, int score, long time) {
+        if (closed) {
+            return CompletableFuture.failedFuture(new IOException("Score store is closed"));
+        }
+        byte[] bytes = ScoreJournal.nameBytes(name);
+        table.add(new String(bytes, StandardCharsets.UTF_8), score, time);
+        pending.add(ScoreJournal.encode(bytes, score, time));
+        return await();
+    }
+
+    /**
+     * Wait for every score added so far to be written
+     * @return completed once they are durable
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        return await();
+    }
+
+    /**
+     * Wait for the next batch, making sure the writer will pick it up. Only called under the lock of this store
+     * @return completed once the batch is durable
+     */
+    private CompletableFuture<Void> await() {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        waiting.add(written);
+        if (!scheduled) {
+            scheduled = true;
+            WRITER.execute(this::writeBatch);
+        }
+        return written;
+    }
+
+    /**
+     * Write every entry waiting with one append and one fsync, on the writer thread
+     */
+    private void writeBatch() {
+        List<ByteBuffer> batch;
+        List<CompletableFuture<Void>> callers;
+        synchronized (this) {
+            batch = pending;
+            callers = waiting;
+            pending = new ArrayList<>();
+            waiting = new ArrayList<>();
+            scheduled = false;
+        }
+
+        try {
+            if (!batch.isEmpty()) {
+                journal.append(batch.toArray(new ByteBuffer[0]));
+                journal.force();
+                written += batch.size();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to write {} scores: {}", batch.size(), e.getMessage());
+            //Drop the lost scores, so the table only holds scores written or still waiting, in journal order
+            synchronized (this) {
+                table.remove(written, batch.size());
+            }
+            callers.forEach(caller -> caller.completeExceptionally(e));
+            return;
+        }
+        callers.forEach(caller -> caller.complete(null));
+
+        if (journal.getEntries() >= COMPACT_ENTRIES) {
+            compact();
+        }
+    }
+
+    /**
+     * Compact the journal into a new snapshot, on the writer thread
+     */
+    private void compact() {
+        ScoreTable scores;
+        synchronized (this) {
+            scores = table.copy(written);
+        }
+        try {
+            journal.compact(scores);
+        } catch (IOException e) {
+            logger.error("Unable to compact scores: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Get the best scores
+     * @param count number of scores
+     * @return names and scores, highest first
+     */
+    public synchronized List<Pair<String, Integer>> top(int count) {
+        List<Pair<String, Integer>> best = new ArrayList<>();
+        for (int score : table.top(count)) {
+            best.add(new Pair<>(table.getName(score), table.getScore(score)));
+        }
+        return best;
+    }
+
+    /**
+     * Get the highest score
+     * @return high score, 0 if there are no scores
+     */
+    public synchronized int getHighScore() {
+        return table.getHighScore();
+    }
+
+    /**
+     * Get the number of scores
+     * @return size
+     */
+    public synchronized int size() {
+        return table.size();
+    }
+
+    /**
+     * Write out every score waiting and close the store
+     * @throws IOException if it cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        CompletableFuture<Void> flushed;
+        synchronized (this) {
+            if (closed) return;
+            closed = true;
+            flushed = await();
+        }
+        flushed.exceptionally(error -> null).join();
+        //Wait for any compaction the last batch started, as there is only one writer
+        CompletableFuture.runAsync(() -> { }, WRITER).join();
+        journal.close();
+    }
+
+    /**
+     * Write out every score waiting and close the store of this machine's scores, if it was opened
+     */
+    public static void shutdown() {
+        if (!opened || Holder.INSTANCE == null) return;
+        try {
+            Holder.INSTANCE.close();
+        } catch (IOException e) {
+            logger.error("Unable to close score store: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Print the best scores in a store
+     * @param args directory of the store, and the number of scores to print
+     * @throws IOException if the store cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = Paths.get(args.length > 0 ? args[0] : DIRECTORY);
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        try (ScoreStore store = new ScoreStore(directory)) {
+            long start = System.nanoTime();
+            List<Pair<String, Integer>> best = store.top(count);
+            logger.info("{} scores, best {} found in {} ms", store.size(), best.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            for (Pair<String, Integer> score : best) {
+                logger.info("{}: {}", score.getKey(), score.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package uk.ac.soton.comp1206.scores;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Every score in a ScoreStore, in the order they were recorded, held in parallel arrays.
+ *
+ * Scores are added at the end, so a copy of the first scores stays correct unless they are removed. Players' names
+ * repeat from game to game, so each distinct name is only held once. Not thread safe.
+ */
+public class ScoreTable {
+
+    private String[] names = new String[64];
+    private int[] scores = new int[64];
+    private long[] times = new long[64];
+    private int size;
+
+    /**
+     * The one copy of each name held
+     */
+    private final Map<String, String> distinct = new HashMap<>();
+
+    /**
+     * Highest score held, 0 if there are none
+     */
+    private int highScore;
+
+    /**
+     * Add a score
+     * @param name name of the player
+     * @param score the score
+     * @param time when it was recorded, in milliseconds since the epoch, 0 if not known
+     */
+    public void add(String name, int score, long time) {
+        if (size == scores.length) {
+            names = Arrays.copyOf(names, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+            times = Arrays.copyOf(times, size * 2);
+        }
+        names[size] = distinct.computeIfAbsent(name, key -> key);
+        scores[size] = score;
+        times[size] = time;
+        size++;
+        highScore = Math.max(highScore, score);
+    }
+
+    /**
+     * Remove a run of scores, moving the later scores down
+     * @param from index of the first score removed
+     * @param count number of scores removed
+     */
+    public void remove(int from, int count) {
+        System.arraycopy(names, from + count, names, from, size - from - count);
+        System.arraycopy(scores, from + count, scores, from, size - from - count);
+        System.arraycopy(times, from + count, times, from, size - from - count);
+        size -= count;
+        Arrays.fill(names, size, size + count, null);
+        highScore = 0;
+        for (int score = 0; score < size; score++) {
+            highScore = Math.max(highScore, scores[score]);
+        }
+    }
+
+    /**
+     * Copy the first scores
+     * @param count number of scores to copy
+     * @return copy
+     */
+    public ScoreTable copy(int count) {
+        ScoreTable copy = new ScoreTable();
+        copy.names = Arrays.copyOf(names, Math.max(1, count));
+        copy.scores = Arrays.copyOf(scores, Math.max(1, count));
+        copy.times = Arrays.copyOf(times, Math.max(1, count));
+        copy.size = count;
+        for (int score = 0; score < count; score++) {
+            copy.highScore = Math.max(copy.highScore, scores[score]);
+        }
+        return copy;
+    }
+
+    /**
+     * Find the best scores
+     * @param count number of scores
+     * @return indexes of the best scores, highest first, earliest first among equal scores
+     */
+    public int[] top(int count) {
+        //Keep the best scores seen so far, the lowest and then latest at the head
+        PriorityQueue<Integer> best = new PriorityQueue<>((a, b) -> scores[a] != scores[b]
+                ? Integer.compare(scores[a], scores[b]) : Integer.compare(b, a));
+        for (int score = 0; score < size; score++) {
+            if (best.size() < count) {
+                best.add(score);
+            } else if (count > 0 && scores[score] > scores[best.peek()]) {
+                best.poll();
+                best.add(score);
+            }
+        }
+        int[] found = new int[best.size()];
+        for (int i = found.length - 1; i >= 0; i--) {
+            found[i] = best.poll();
+        }
+        return found;
+    }
+
+    /**
+     * Get the number of scores
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the name of the player of a score
+     * @param index the score
+     * @return name
+     */
+    public String getName(int index) {
+        return names[index];
+    }
+
+    /**
+     * Get a score
+     * @param index the score
+     * @return score
+     */
+    public int getScore(int index) {
+        return scores[index];
+    }
+
+    /**
+     * Get when a score was recorded
+     * @param index the score
+     * @return milliseconds since the epoch, 0 if not known
+     */
+    public long getTime(int index) {
+        return times[index];
+    }
+
+    /**
+     * Get the highest score
+     * @return high score, 0 if there are no scores
+     */
+    public int getHighScore() {
+        return highScore;
+    }
+}
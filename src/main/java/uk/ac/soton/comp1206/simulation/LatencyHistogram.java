@@ -0,0 +1,117 @@
+package uk.ac.soton.comp1206.simulation;
+
+/**
+ * Counts durations in log-linear buckets, so percentiles of millions of samples can be kept in a fixed amount of
+ * memory. Each power of two is split into 16 buckets, so percentiles are within about 6% of the true value.
+ *
+ * Not thread safe. Each thread records into its own histogram, and the histograms are merged at the end.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Bits of each value kept below its highest set bit
+     */
+    private static final int SUB_BITS = 4;
+
+    /**
+     * Number of buckets per power of two
+     */
+    private static final int SUB = 1 << SUB_BITS;
+
+    /**
+     * Number of samples in each bucket
+     */
+    private final long[] counts = new long[(Long.SIZE - SUB_BITS + 1) * SUB];
+
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Record a duration
+     * @param nanos duration in nanoseconds, negative values are counted as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucket(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add every sample of another histogram to this one
+     * @param other histogram to add
+     */
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Get the bucket a value is counted in
+     * @param value the value
+     * @return bucket index
+     */
+    private static int bucket(long value) {
+        if (value < SUB) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB - 1);
+        return (exponent - SUB_BITS + 1) * SUB + sub;
+    }
+
+    /**
+     * Get the smallest value counted in a bucket
+     * @param bucket bucket index
+     * @return value
+     */
+    private static long lowest(int bucket) {
+        if (bucket < SUB) return bucket;
+        int exponent = bucket / SUB + SUB_BITS - 1;
+        return (long) (SUB + bucket % SUB) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * Get a percentile of the recorded durations
+     * @param percentile percentile from 0 to 100
+     * @return duration in nanoseconds, 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(lowest(i), max);
+        }
+        return max;
+    }
+
+    /**
+     * Get the number of durations recorded
+     * @return count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the mean duration
+     * @return mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Get the longest duration
+     * @return duration in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+}
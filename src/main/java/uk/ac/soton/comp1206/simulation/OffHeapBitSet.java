@@ -0,0 +1,106 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A fixed size set of bits stored outside the heap in a direct buffer, which many threads can set at once.
+ *
+ * Bits are grouped into 64 bit words. Setting a bit is an atomic OR on its word, so threads setting different bits of
+ * the same word never lose each other's updates, and set reports whether this thread was the one to set it. A set of
+ * 2^25 bits takes 4MB and adds nothing to the garbage collector's work.
+ */
+public class OffHeapBitSet {
+
+    /**
+     * Atomic access to the words of a direct buffer in native byte order
+     */
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer buffer;
+    private final long size;
+    private final int words;
+
+    /**
+     * Create a set with every bit clear
+     * @param size number of bits, a multiple of 64
+     */
+    public OffHeapBitSet(long size) {
+        if (size <= 0 || size % Long.SIZE != 0 || size / Long.SIZE > Integer.MAX_VALUE / Long.BYTES) {
+            throw new IllegalArgumentException("Unsupported bit set size: " + size);
+        }
+        this.size = size;
+        this.words = (int) (size / Long.SIZE);
+        //Atomic updates need every word aligned to 8 bytes in memory
+        this.buffer = ByteBuffer.allocateDirect(words * Long.BYTES + Long.BYTES).alignedSlice(Long.BYTES)
+                .order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Set a bit
+     * @param index the bit
+     * @return true if the bit was clear before, false if it was already set
+     */
+    public boolean set(long index) {
+        long bit = 1L << index;
+        long before = (long) WORDS.getAndBitwiseOr(buffer, (int) (index >>> 6) * Long.BYTES, bit);
+        return (before & bit) == 0;
+    }
+
+    /**
+     * Check a bit
+     * @param index the bit
+     * @return true if set
+     */
+    public boolean get(long index) {
+        return (getWord((int) (index >>> 6)) >>> index & 1) != 0;
+    }
+
+    /**
+     * Get a word of 64 bits
+     * @param word word number, bit 0 of word n is bit 64 * n of the set
+     * @return the word
+     */
+    public long getWord(int word) {
+        return (long) WORDS.getOpaque(buffer, word * Long.BYTES);
+    }
+
+    /**
+     * Clear every bit. Must not run at the same time as any other method.
+     */
+    public void clear() {
+        for (int word = 0; word < words; word++) {
+            buffer.putLong(word * Long.BYTES, 0);
+        }
+    }
+
+    /**
+     * Count the set bits
+     * @return number of bits set
+     */
+    public long cardinality() {
+        long count = 0;
+        for (int word = 0; word < words; word++) {
+            count += Long.bitCount(getWord(word));
+        }
+        return count;
+    }
+
+    /**
+     * Get the number of bits
+     * @return size
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Get the number of words
+     * @return size / 64
+     */
+    public int getWords() {
+        return words;
+    }
+}
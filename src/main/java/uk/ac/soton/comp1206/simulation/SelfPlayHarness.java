@@ -0,0 +1,213 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.Bot;
+import uk.ac.soton.comp1206.ai.ExpectimaxSolver;
+import uk.ac.soton.comp1206.ai.GreedyBot;
+import uk.ac.soton.comp1206.ai.Move;
+import uk.ac.soton.comp1206.ai.RandomBot;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.PieceSequence;
+import uk.ac.soton.comp1206.game.TickResult;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+
+/**
+ * Plays many headless games with a bot at once on a work-stealing pool and reports how they went.
+ *
+ * Games follow the same rules as the Game controller: a move swaps and places a piece like a player clicking the
+ * board, and ends the game loop early. The timer is replaced by a move-count clock: every decision is one game loop,
+ * and a decision that places nothing lets the time run out, losing a life. Like the Game, a game ends when the time
+ * runs out with no lives left or when nothing can save it any more, and is also stopped after a maximum number of
+ * moves.
+ *
+ * Every game gets its own seed split from the seed of the run, so a run can be repeated exactly.
+ */
+public class SelfPlayHarness {
+
+    private static final Logger logger = LogManager.getLogger(SelfPlayHarness.class);
+
+    /**
+     * Default limit of moves per game
+     */
+    public static final int DEFAULT_MAX_MOVES = 10000;
+
+    /**
+     * Number of games each task plays before it stops splitting
+     */
+    private static final int GAMES_PER_TASK = 8;
+
+    private final String mode;
+    private final LongFunction<Bot> bots;
+    private final int maxMoves;
+
+    /**
+     * Create a harness
+     * @param mode game mode of every game
+     * @param bots creates the bot for each game from the game's seed
+     * @param maxMoves most moves played in one game
+     */
+    public SelfPlayHarness(String mode, LongFunction<Bot> bots, int maxMoves) {
+        this.mode = mode;
+        this.bots = bots;
+        this.maxMoves = maxMoves;
+    }
+
+    /**
+     * Play a number of games on the common pool
+     * @param games number of games
+     * @param seed seed of the run
+     * @return report
+     */
+    public SelfPlayReport run(int games, long seed) {
+        return run(games, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Play a number of games on a pool
+     * @param games number of games
+     * @param seed seed of the run
+     * @param pool pool to play the games on
+     * @return report
+     */
+    public SelfPlayReport run(int games, long seed, ForkJoinPool pool) {
+        long[] seeds = seeds(games, seed);
+        int[] scores = new int[games];
+
+        long start = System.nanoTime();
+        Batch totals = pool.invoke(new PlayTask(seeds, scores, 0, games));
+        long elapsed = System.nanoTime() - start;
+
+        return new SelfPlayReport(totals.bot, mode, scores, totals.moves, elapsed, totals.latency);
+    }
+
+    /**
+     * Work out the seed of every game of a run
+     * @param games number of games
+     * @param seed seed of the run
+     * @return seed of each game
+     */
+    public static long[] seeds(int games, long seed) {
+        PieceSequence root = new UniformPieceSequence(seed);
+        long[] seeds = new long[games];
+        for (int game = 0; game < games; game++) {
+            seeds[game] = root.split().getSeed();
+        }
+        return seeds;
+    }
+
+    /**
+     * Play one game to the end
+     * @param engine the game
+     * @param bot the player
+     * @param maxMoves most moves to play
+     * @param latency records the time taken by each decision, may be null
+     * @return number of moves played
+     */
+    public static int play(GameEngine engine, Bot bot, int maxMoves, LatencyHistogram latency) {
+        int moves = 0;
+        while (!engine.isOver() && !engine.isLost() && moves < maxMoves) {
+            long start = System.nanoTime();
+            Move move = bot.chooseMove(engine);
+            if (latency != null) {
+                latency.record(System.nanoTime() - start);
+            }
+            moves++;
+
+            //A move that cannot be played is the same as placing nothing before the time runs out
+            if (move != null && move.apply(engine).isPlaced()) continue;
+            if (engine.tick() == TickResult.GAME_OVER) break;
+        }
+        return moves;
+    }
+
+    /**
+     * Bot, moves and decision times of a batch of games
+     */
+    private static class Batch {
+        //Name of the bot of the first game, null if there were no games
+        private String bot;
+        private long moves;
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    /**
+     * Plays a range of games, splitting it in half until it is small
+     */
+    private class PlayTask extends RecursiveTask<Batch> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] seeds;
+        private final int[] scores;
+        private final int from;
+        private final int to;
+
+        PlayTask(long[] seeds, int[] scores, int from, int to) {
+            this.seeds = seeds;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Batch compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                PlayTask second = new PlayTask(seeds, scores, middle, to);
+                second.fork();
+                Batch first = new PlayTask(seeds, scores, from, middle).compute();
+                Batch other = second.join();
+                if (first.bot == null) first.bot = other.bot;
+                first.moves += other.moves;
+                first.latency.merge(other.latency);
+                return first;
+            }
+
+            Batch batch = new Batch();
+            for (int game = from; game < to; game++) {
+                GameEngine engine = new GameEngine(5, 5, mode, new UniformPieceSequence(seeds[game]));
+                Bot bot = bots.apply(seeds[game]);
+                if (batch.bot == null) batch.bot = bot.getName();
+                batch.moves += play(engine, bot, maxMoves, batch.latency);
+                scores[game] = engine.getScore();
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Create the bot with the given name
+     * @param name "greedy", "random" or "expectimax"
+     * @return creates a bot from a seed
+     */
+    public static LongFunction<Bot> botNamed(String name) {
+        switch (name) {
+            case "greedy":
+                return seed -> new GreedyBot();
+            case "random":
+                return RandomBot::new;
+            case "expectimax":
+                return seed -> new ExpectimaxSolver();
+            default:
+                throw new IllegalArgumentException("Unknown bot: " + name);
+        }
+    }
+
+    /**
+     * Run the harness from the command line
+     * @param args number of games, bot name, game mode and seed, all optional
+     */
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        String bot = args.length > 1 ? args[1] : "greedy";
+        String mode = args.length > 2 ? args[2] : GameEngine.CHALLENGE_MODE;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : PieceSequence.newSeed();
+
+        logger.info("Playing {} games of {} with the {} bot, seed {}", games, mode, bot, seed);
+        SelfPlayReport report = new SelfPlayHarness(mode, botNamed(bot), DEFAULT_MAX_MOVES).run(games, seed);
+        logger.info(report);
+    }
+}
@@ -0,0 +1,101 @@
+package uk.ac.soton.comp1206.simulation;
+
+/**
+ * The results of a run of the SelfPlayHarness: how fast the games were played, the distribution of final scores and
+ * how long the bot took to decide each move.
+ */
+public class SelfPlayReport {
+
+    private final String bot;
+    private final String mode;
+    private final int[] scores;
+    private final long moves;
+    private final long elapsedNanos;
+    private final LatencyHistogram latency;
+    private final Stats scoreStats;
+
+    /**
+     * Create a report
+     * @param bot name of the bot
+     * @param mode game mode
+     * @param scores final score of every game
+     * @param moves number of moves played in all games
+     * @param elapsedNanos wall clock time of the run
+     * @param latency time taken for each decision
+     */
+    public SelfPlayReport(String bot, String mode, int[] scores, long moves, long elapsedNanos, LatencyHistogram latency) {
+        this.bot = bot;
+        this.mode = mode;
+        this.scores = scores;
+        this.moves = moves;
+        this.elapsedNanos = elapsedNanos;
+        this.latency = latency;
+        this.scoreStats = Stats.of(scores);
+    }
+
+    /**
+     * Get the number of games played
+     * @return games
+     */
+    public int getGames() {
+        return scores.length;
+    }
+
+    /**
+     * Get the number of moves played in all games
+     * @return moves
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Get the games played per second of wall clock time
+     * @return games per second
+     */
+    public double getGamesPerSecond() {
+        return scores.length / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Get the moves played per second of wall clock time
+     * @return moves per second
+     */
+    public double getMovesPerSecond() {
+        return moves / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Get the final score of every game, in game order
+     * @return scores
+     */
+    public int[] getScores() {
+        return scores.clone();
+    }
+
+    /**
+     * Get the distribution of final scores
+     * @return score statistics
+     */
+    public Stats getScoreStats() {
+        return scoreStats;
+    }
+
+    /**
+     * Get the time taken for each decision
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Return a string representation of this report
+     * @return string representation
+     */
+    @Override public String toString() {
+        return String.format("%s in %s: %d games, %d moves, %.1f games/s, %.0f moves/s, score %s, decision p50=%.1fus p99=%.1fus",
+                bot, mode, getGames(), moves, getGamesPerSecond(), getMovesPerSecond(), scoreStats,
+                latency.percentile(50) / 1e3, latency.percentile(99) / 1e3);
+    }
+}
@@ -0,0 +1,265 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.DeadBoardTablebase;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.LineClearDetector;
+import uk.ac.soton.comp1206.game.PlacementTable;
+import uk.ac.soton.comp1206.game.StateRecord;
+
+/**
+ * Analyses every occupancy of the 5x5 board and writes the results to a StateRecord table file.
+ *
+ * First the boards reachable from an empty board are found with a breadth-first search: each level expands every
+ * board of the frontier by every legal placement of every piece, clearing full lines the same way as the game. The
+ * visited boards and both frontiers are off-heap bitsets of 2^25 bits, so the search allocates nothing per board and
+ * the frontier is split between threads by word. Then a record is worked out for every one of the 2^25 boards,
+ * reachable or not, and written straight into a memory-mapped table file by many threads at once. The table is read
+ * back by the DeadBoardTablebase.
+ */
+public class StateSpaceAnalyser {
+
+    private static final Logger logger = LogManager.getLogger(StateSpaceAnalyser.class);
+
+    /**
+     * Number of frontier words each search task expands before it stops splitting
+     */
+    private static final int WORDS_PER_TASK = 1 << 8;
+
+    /**
+     * Number of records each task works out before it stops splitting
+     */
+    private static final int STATES_PER_TASK = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final PlacementTable table = PlacementTable.forSize(StateRecord.COLS, StateRecord.ROWS);
+    private final LineClearDetector detector = LineClearDetector.forSize(StateRecord.COLS, StateRecord.ROWS);
+
+    /**
+     * Rotation table entries of every distinct shape of every piece, for the search
+     */
+    private final int[] shapes;
+
+
+    /**
+     * Create an analyser
+     * @param pool pool to spread the work over
+     */
+    public StateSpaceAnalyser(ForkJoinPool pool) {
+        this.pool = pool;
+
+        Set<Integer> seen = new HashSet<>();
+        List<Integer> all = new ArrayList<>();
+        for (int entry = 0; entry < PlacementTable.ENTRIES; entry++) {
+            if (seen.add(GamePiece.fromIndex(entry).getMask())) all.add(entry);
+        }
+        shapes = all.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Find every board reachable from an empty board
+     * @return bit n set if the board with occupancy n is reachable
+     */
+    public OffHeapBitSet findReachable() {
+        OffHeapBitSet visited = new OffHeapBitSet(StateRecord.STATES);
+        OffHeapBitSet frontier = new OffHeapBitSet(StateRecord.STATES);
+        OffHeapBitSet next = new OffHeapBitSet(StateRecord.STATES);
+        visited.set(0);
+        frontier.set(0);
+
+        for (int level = 1; ; level++) {
+            long start = System.nanoTime();
+            pool.invoke(new ExpandTask(frontier, next, visited, 0, frontier.getWords()));
+            long found = next.cardinality();
+            logger.info("Level {}: {} new boards in {} ms", level, found, (System.nanoTime() - start) / 1_000_000);
+            if (found == 0) break;
+
+            OffHeapBitSet swap = frontier;
+            frontier = next;
+            next = swap;
+            next.clear();
+        }
+        return visited;
+    }
+
+    /**
+     * Expands the boards in a range of frontier words, splitting it in half until it is small
+     */
+    private class ExpandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final OffHeapBitSet frontier;
+        private final OffHeapBitSet next;
+        private final OffHeapBitSet visited;
+        private final int from;
+        private final int to;
+
+        ExpandTask(OffHeapBitSet frontier, OffHeapBitSet next, OffHeapBitSet visited, int from, int to) {
+            this.frontier = frontier;
+            this.next = next;
+            this.visited = visited;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > WORDS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ExpandTask(frontier, next, visited, from, middle),
+                        new ExpandTask(frontier, next, visited, middle, to));
+                return;
+            }
+            for (int word = from; word < to; word++) {
+                for (long bits = frontier.getWord(word); bits != 0; bits &= bits - 1) {
+                    long occupancy = (long) word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    expand(occupancy);
+                }
+            }
+        }
+
+        /**
+         * Mark every board one placement away
+         * @param occupancy the board
+         */
+        private void expand(long occupancy) {
+            for (int entry : shapes) {
+                for (long legal = table.legalAnchors(entry, occupancy); legal != 0; legal &= legal - 1) {
+                    long placed = occupancy | table.getFootprint(entry, Long.numberOfTrailingZeros(legal));
+                    long after = placed & ~detector.detect(placed);
+                    //Only the thread that first visits a board adds it to the next frontier
+                    if (visited.set(after)) {
+                        next.set(after);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Work out the record of a board
+     * @param occupancy the board
+     * @param reachable whether it is reachable
+     * @return record
+     */
+    public int record(long occupancy, boolean reachable) {
+        return DeadBoardTablebase.compute(occupancy, reachable);
+    }
+
+    /**
+     * Work out the record of every board and write the table file
+     * @param path the file, replaced if it exists
+     * @param reachable the reachable boards
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTable(Path path, OffHeapBitSet reachable) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, StateRecord.FILE_BYTES);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.putInt(StateRecord.MAGIC_OFFSET, StateRecord.MAGIC);
+            mapped.putInt(StateRecord.VERSION_OFFSET, StateRecord.VERSION);
+            mapped.putInt(StateRecord.COLS_OFFSET, StateRecord.COLS);
+            mapped.putInt(StateRecord.ROWS_OFFSET, StateRecord.ROWS);
+            mapped.putLong(StateRecord.REACHABLE_OFFSET, reachable.cardinality());
+
+            IntBuffer records = mapped.position(StateRecord.HEADER_BYTES).slice().order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+            pool.invoke(new RecordTask(records, reachable, 0, StateRecord.STATES));
+            mapped.force();
+            summarise(records);
+        }
+    }
+
+    /**
+     * Works out the records of a range of boards, splitting it in half until it is small
+     */
+    private class RecordTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IntBuffer records;
+        private final OffHeapBitSet reachable;
+        private final int from;
+        private final int to;
+
+        RecordTask(IntBuffer records, OffHeapBitSet reachable, int from, int to) {
+            this.records = records;
+            this.reachable = reachable;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > STATES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RecordTask(records, reachable, from, middle), new RecordTask(records, reachable, middle, to));
+                return;
+            }
+            //Absolute puts never move the shared position, so tasks can write their own ranges at once
+            for (int occupancy = from; occupancy < to; occupancy++) {
+                records.put(occupancy, record(occupancy, reachable.get(occupancy)));
+            }
+        }
+    }
+
+    /**
+     * Log how many reachable boards are dead, for every piece or for some
+     * @param records the records
+     */
+    private void summarise(IntBuffer records) {
+        long reachable = 0, deadForAll = 0, deadForSome = 0, moves = 0;
+        int[] lineCounts = new int[8];
+        for (int occupancy = 0; occupancy < StateRecord.STATES; occupancy++) {
+            int record = records.get(occupancy);
+            if (!StateRecord.isReachable(record)) continue;
+            reachable++;
+            int playable = StateRecord.getPlayable(record);
+            if (playable == 0) deadForAll++;
+            if (playable != (1 << GamePiece.PIECES) - 1) deadForSome++;
+            moves += StateRecord.getMoves(record);
+            lineCounts[StateRecord.getMaxLines(record)]++;
+        }
+        logger.info("{} reachable boards: {} dead for every piece, {} dead for some piece, {} moves on average",
+                reachable, deadForAll, deadForSome, String.format("%.1f", (double) moves / Math.max(1, reachable)));
+        for (int lines = 0; lines < lineCounts.length; lines++) {
+            if (lineCounts[lines] > 0) {
+                logger.info("{} boards where the best placement clears {} lines", lineCounts[lines], lines);
+            }
+        }
+    }
+
+    /**
+     * Analyse the board and write the table file
+     * @param args path of the table file, "tablebase.bin" if not given
+     * @throws IOException if the file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Paths.get(args.length > 0 ? args[0] : "tablebase.bin");
+        StateSpaceAnalyser analyser = new StateSpaceAnalyser(ForkJoinPool.commonPool());
+
+        long start = System.nanoTime();
+        OffHeapBitSet reachable = analyser.findReachable();
+        logger.info("Found {} reachable boards in {} ms", reachable.cardinality(), (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        analyser.writeTable(path, reachable);
+        logger.info("Wrote {} records to {} in {} ms", StateRecord.STATES, path.toAbsolutePath(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,131 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a set of values: count, mean, standard deviation, extremes, percentiles and a 95% confidence
+ * interval of the mean.
+ */
+public class Stats {
+
+    /**
+     * The values, sorted
+     */
+    private final double[] sorted;
+
+    private final double mean;
+    private final double stdDev;
+
+    /**
+     * Summarise a set of values
+     * @param values the values, not changed
+     */
+    public Stats(double[] values) {
+        sorted = values.clone();
+        Arrays.sort(sorted);
+
+        double sum = 0;
+        for (double value : sorted) sum += value;
+        mean = sorted.length == 0 ? 0 : sum / sorted.length;
+
+        double squares = 0;
+        for (double value : sorted) squares += (value - mean) * (value - mean);
+        stdDev = sorted.length < 2 ? 0 : Math.sqrt(squares / (sorted.length - 1));
+    }
+
+    /**
+     * Summarise a set of whole numbers
+     * @param values the values
+     * @return summary
+     */
+    public static Stats of(int[] values) {
+        double[] doubles = new double[values.length];
+        for (int i = 0; i < values.length; i++) doubles[i] = values[i];
+        return new Stats(doubles);
+    }
+
+    /**
+     * Get the number of values
+     * @return count
+     */
+    public int getCount() {
+        return sorted.length;
+    }
+
+    /**
+     * Get the mean of the values
+     * @return mean, 0 if there are none
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * Get the sample standard deviation of the values
+     * @return standard deviation
+     */
+    public double getStdDev() {
+        return stdDev;
+    }
+
+    /**
+     * Get the smallest value
+     * @return minimum, 0 if there are none
+     */
+    public double getMin() {
+        return sorted.length == 0 ? 0 : sorted[0];
+    }
+
+    /**
+     * Get the largest value
+     * @return maximum, 0 if there are none
+     */
+    public double getMax() {
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    }
+
+    /**
+     * Get a percentile of the values, the nearest rank
+     * @param percentile percentile from 0 to 100
+     * @return value, 0 if there are none
+     */
+    public double percentile(double percentile) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    /**
+     * Get half the width of the 95% confidence interval of the mean, using the normal approximation
+     * @return mean plus or minus this value
+     */
+    public double confidence95() {
+        return sorted.length < 2 ? 0 : 1.96 * stdDev / Math.sqrt(sorted.length);
+    }
+
+    /**
+     * Get the fraction of values at least a threshold
+     * @param threshold the threshold
+     * @return fraction from 0 to 1
+     */
+    public double fractionAtLeast(double threshold) {
+        if (sorted.length == 0) return 0;
+        int index = Arrays.binarySearch(sorted, threshold);
+        if (index < 0) {
+            index = -index - 1;
+        } else {
+            //Step back over equal values
+            while (index > 0 && sorted[index - 1] == threshold) index--;
+        }
+        return (double) (sorted.length - index) / sorted.length;
+    }
+
+    /**
+     * Return a string representation of these statistics
+     * @return string representation
+     */
+    @Override public String toString() {
+        return String.format("n=%d mean=%.1f +-%.1f sd=%.1f min=%.0f p50=%.0f p90=%.0f p99=%.0f max=%.0f",
+                getCount(), mean, confidence95(), stdDev, getMin(), percentile(50), percentile(90), percentile(99), getMax());
+    }
+}
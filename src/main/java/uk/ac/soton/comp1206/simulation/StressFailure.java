@@ -0,0 +1,101 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * A game run by the StressSimulator which broke one of the invariants of the game, with everything needed to run it
+ * again: the mode, the seed dealing its pieces and the actions played.
+ */
+public class StressFailure {
+
+    private final String mode;
+    private final long seed;
+    private final int[] actions;
+    private final int step;
+    private final String invariant;
+    private final String message;
+
+    /**
+     * Create a failure
+     * @param mode game mode
+     * @param seed seed of the game's pieces
+     * @param actions actions played, as encoded by the StressSimulator
+     * @param step index of the action after which the invariant was broken
+     * @param invariant name of the invariant which was broken
+     * @param message what was wrong
+     */
+    public StressFailure(String mode, long seed, int[] actions, int step, String invariant, String message) {
+        this.mode = mode;
+        this.seed = seed;
+        this.actions = actions.clone();
+        this.step = step;
+        this.invariant = invariant;
+        this.message = message;
+    }
+
+    /**
+     * Get the game mode
+     * @return mode
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the seed of the game's pieces
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the actions played
+     * @return copy of the actions
+     */
+    public int[] getActions() {
+        return actions.clone();
+    }
+
+    /**
+     * Get the index of the action after which the invariant was broken
+     * @return step
+     */
+    public int getStep() {
+        return step;
+    }
+
+    /**
+     * Get the name of the invariant which was broken
+     * @return invariant
+     */
+    public String getInvariant() {
+        return invariant;
+    }
+
+    /**
+     * Get what was wrong
+     * @return message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Get the command line arguments which run this failure again with StressSimulator.main
+     * @return arguments
+     */
+    public String getReproduction() {
+        return "repro \"" + mode + "\" " + seed + " "
+                + Arrays.stream(actions).mapToObj(Integer::toString).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public String toString() {
+        return mode + " game with seed " + seed + " broke \"" + invariant + "\" at step " + step + " of "
+                + actions.length + ": " + message + System.lineSeparator() + "  actions: "
+                + Arrays.stream(actions).mapToObj(StressSimulator::describe).collect(Collectors.joining("; "))
+                + System.lineSeparator() + "  run again with: " + getReproduction();
+    }
+}
@@ -0,0 +1,420 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.game.Game;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.GamePiece;
+import uk.ac.soton.comp1206.game.Grid;
+import uk.ac.soton.comp1206.game.LineClearDetector;
+import uk.ac.soton.comp1206.game.PieceSequence;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+import uk.ac.soton.comp1206.game.VirtualTickScheduler;
+
+/**
+ * Plays huge numbers of random actions against the Game controller and checks the rules hold after every one.
+ *
+ * Each game is a seeded list of random actions: clicks on the board, rotations, key presses, swaps, regenerations and
+ * the game loop timer running out. They go through the same Game methods as the UI, with the timer on a virtual
+ * clock, so no window is needed and games run as fast as the CPU allows. After every action the simulator checks
+ * that the score never went down, lives never went negative, no full line was left on the board, placed blocks took
+ * the value of their piece, and the properties shown by the UI agree with the engine.
+ *
+ * Games are spread over a work-stealing pool. When a game breaks an invariant it is shrunk to the shortest list of
+ * actions that still breaks it, which together with the seed reproduces the failure exactly.
+ *
+ * The Game logs every action, so long soaks should be run with -Dlog4j.configurationFile=log4j2-stress.xml.
+ */
+public class StressSimulator {
+
+    private static final Logger logger = LogManager.getLogger(StressSimulator.class);
+
+    /**
+     * Kinds of action, kept in the low bits of an action
+     */
+    public static final int PLACE = 0;
+    public static final int ROTATE = 1;
+    public static final int KEY = 2;
+    public static final int SWAP = 3;
+    public static final int REGENERATE = 4;
+    public static final int EXPIRE = 5;
+
+    /**
+     * Default number of actions in each game
+     */
+    public static final int DEFAULT_STEPS = 1000;
+
+    private static final int KIND_BITS = 4;
+    private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+
+    /**
+     * Keys handled by Game.keyboardSupport
+     */
+    private static final KeyCode[] KEYS = {KeyCode.Q, KeyCode.Z, KeyCode.OPEN_BRACKET, KeyCode.E, KeyCode.C,
+            KeyCode.CLOSE_BRACKET, KeyCode.SPACE, KeyCode.R};
+
+    /**
+     * Number of games each task plays before it stops splitting
+     */
+    private static final int GAMES_PER_TASK = 8;
+
+    private final String mode;
+    private final int cols;
+    private final int rows;
+    private final LineClearDetector detector;
+
+    /**
+     * Number of actions played so far, over every game
+     */
+    private final LongAdder played = new LongAdder();
+
+    /**
+     * Create a simulator for 5x5 games
+     * @param mode game mode of every game
+     */
+    public StressSimulator(String mode) {
+        this(mode, 5, 5);
+    }
+
+    /**
+     * Create a simulator
+     * @param mode game mode of every game
+     * @param cols number of columns
+     * @param rows number of rows
+     */
+    public StressSimulator(String mode, int cols, int rows) {
+        this.mode = mode;
+        this.cols = cols;
+        this.rows = rows;
+        this.detector = LineClearDetector.forSize(cols, rows);
+    }
+
+    /**
+     * Play a number of random games on a pool
+     * @param games number of games
+     * @param steps number of actions in each game
+     * @param seed seed of the run
+     * @param pool pool to play the games on
+     * @return the failure of the first game to break an invariant, already shrunk, or null if none did
+     */
+    public StressFailure run(int games, int steps, long seed, ForkJoinPool pool) {
+        long[] seeds = SelfPlayHarness.seeds(games, seed);
+        StressFailure failure = pool.invoke(new StressTask(seeds, steps, 0, games));
+        return failure == null ? null : shrink(failure);
+    }
+
+    /**
+     * Plays a range of games, splitting it in half until it is small
+     */
+    private class StressTask extends RecursiveTask<StressFailure> {
+        private static final long serialVersionUID = 1L;
+
+        private final long[] seeds;
+        private final int steps;
+        private final int from;
+        private final int to;
+
+        StressTask(long[] seeds, int steps, int from, int to) {
+            this.seeds = seeds;
+            this.steps = steps;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected StressFailure compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                StressTask second = new StressTask(seeds, steps, middle, to);
+                second.fork();
+                StressFailure first = new StressTask(seeds, steps, from, middle).compute();
+                StressFailure other = second.join();
+                return first != null ? first : other;
+            }
+            for (int game = from; game < to; game++) {
+                StressFailure failure = check(seeds[game], actions(seeds[game], steps));
+                if (failure != null) return failure;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Make the random actions of a game
+     * @param seed seed of the game
+     * @param steps number of actions
+     * @return actions
+     */
+    public int[] actions(long seed, int steps) {
+        Random random = new Random(seed);
+        int[] actions = new int[steps];
+        for (int step = 0; step < steps; step++) {
+            int roll = random.nextInt(100);
+            //Mostly clicks on the board, with the timer running out rarely enough for games to last
+            if (roll < 55) {
+                actions[step] = encode(PLACE, random.nextInt(cols) | random.nextInt(rows) << 8);
+            } else if (roll < 70) {
+                actions[step] = encode(ROTATE, 0);
+            } else if (roll < 85) {
+                actions[step] = encode(KEY, random.nextInt(KEYS.length));
+            } else if (roll < 93) {
+                actions[step] = encode(SWAP, 0);
+            } else if (roll < 97) {
+                actions[step] = encode(REGENERATE, 0);
+            } else {
+                actions[step] = encode(EXPIRE, 0);
+            }
+        }
+        return actions;
+    }
+
+    /**
+     * Play a list of actions in a new game, checking the invariants after each one. The game stops early if it ends.
+     * @param seed seed of the game's pieces
+     * @param actions actions to play
+     * @return the first invariant broken, or null if none were
+     */
+    public StressFailure check(long seed, int[] actions) {
+        VirtualTickScheduler clock = new VirtualTickScheduler();
+        Game game = new Game(cols, rows, mode, new UniformPieceSequence(seed), clock, Runnable::run);
+        GameEngine engine = game.getEngine();
+        Grid grid = game.getGrid();
+
+        //Every block filled while a piece is placed must take the value of that piece
+        GamePiece[] placing = new GamePiece[1];
+        String[] wrongValue = new String[1];
+        grid.setOnCellChanged((x, y, value) -> {
+            if (value != 0 && wrongValue[0] == null && (placing[0] == null || value != placing[0].getValue())) {
+                wrongValue[0] = "block " + x + "," + y + " set to " + value + " while placing " + placing[0];
+            }
+        });
+        game.setNextPieceListener((current, following) -> { });
+        game.setGameLoopListener((time, ended) -> { });
+
+        int score = 0;
+        int step = 0;
+        try {
+            game.start();
+            for (; step < actions.length && !game.getState(); step++) {
+                played.increment();
+                int argument = actions[step] >>> KIND_BITS;
+                switch (actions[step] & KIND_MASK) {
+                    case PLACE:
+                        placing[0] = game.getCurrentPiece();
+                        game.playPiece(argument & 0xff, argument >>> 8);
+                        placing[0] = null;
+                        break;
+                    case ROTATE:
+                        game.rotateCurrentPiece(null);
+                        break;
+                    case KEY:
+                        game.keyboardSupport(new KeyEvent(KeyEvent.KEY_PRESSED, "", "", KEYS[argument],
+                                false, false, false, false));
+                        break;
+                    case SWAP:
+                        game.swapCurrentPiece();
+                        break;
+                    case REGENERATE:
+                        game.getNewPiece();
+                        break;
+                    case EXPIRE:
+                        clock.advanceToNext();
+                        break;
+                    default:
+                        throw new IllegalArgumentException("No such action: " + actions[step]);
+                }
+
+                if (wrongValue[0] != null) {
+                    return failure(seed, actions, step, "piece value", wrongValue[0]);
+                }
+                StressFailure failure = checkInvariants(game, engine, score, seed, actions, step);
+                if (failure != null) return failure;
+                score = engine.getScore();
+            }
+        } catch (RuntimeException e) {
+            logger.debug("Game with seed {} threw at step {}", seed, step, e);
+            return failure(seed, actions, Math.min(step, actions.length - 1), "no exception", e.toString());
+        }
+        return null;
+    }
+
+    /**
+     * Check the invariants of a game after an action
+     * @param game the game
+     * @param engine the game's engine
+     * @param score score before the action
+     * @param seed seed of the game's pieces
+     * @param actions actions being played
+     * @param step index of the action just played
+     * @return the first invariant broken, or null if none were
+     */
+    private StressFailure checkInvariants(Game game, GameEngine engine, int score, long seed, int[] actions, int step) {
+        if (engine.getScore() < score) {
+            return failure(seed, actions, step, "score monotonic", "score fell from " + score + " to " + engine.getScore());
+        }
+        if (engine.getLives() < 0 || game.getLivesProperty() < 0) {
+            return failure(seed, actions, step, "lives not negative", engine.getLives() + " lives");
+        }
+        long full = detector.detect(engine.getOccupancy());
+        if (full != 0) {
+            return failure(seed, actions, step, "no full lines", "full lines left at blocks " + Long.toBinaryString(full));
+        }
+        Grid grid = engine.getGrid();
+        for (int x = 0; x < cols; x++) {
+            for (int y = 0; y < rows; y++) {
+                int value = grid.get(x, y);
+                if (value < 0 || value > GamePiece.PIECES) {
+                    return failure(seed, actions, step, "piece value", "block " + x + "," + y + " has value " + value);
+                }
+            }
+        }
+        for (GamePiece piece : new GamePiece[]{engine.getCurrentPiece(), engine.getFollowingPiece()}) {
+            if (piece.getValue() != piece.getNumber() + 1 || piece != GamePiece.fromIndex(piece.getIndex())) {
+                return failure(seed, actions, step, "piece value", "piece " + piece + " has value " + piece.getValue());
+            }
+        }
+        if (game.getScoreProperty() != engine.getScore() || game.getLivesProperty() != engine.getLives()
+                || game.getLevelProperty() != engine.getLevel() || game.getMultiplierProperty() != engine.getMultiplier()) {
+            return failure(seed, actions, step, "properties match engine", "properties show score "
+                    + game.getScoreProperty() + ", lives " + game.getLivesProperty() + " but the engine has "
+                    + engine.getScore() + ", " + engine.getLives());
+        }
+        return null;
+    }
+
+    /**
+     * Create a failure of this simulator's mode
+     * @param seed seed of the game's pieces
+     * @param actions actions played
+     * @param step index of the action after which the invariant was broken
+     * @param invariant name of the invariant
+     * @param message what was wrong
+     * @return failure
+     */
+    private StressFailure failure(long seed, int[] actions, int step, String invariant, String message) {
+        return new StressFailure(mode, seed, actions, step, invariant, message);
+    }
+
+    /**
+     * Shrink a failure to the shortest list of actions found which still breaks the same invariant. Actions after the
+     * failing step are dropped, then ever smaller chunks of actions are removed for as long as the game still fails.
+     * @param failure the failure
+     * @return the shrunk failure
+     */
+    public StressFailure shrink(StressFailure failure) {
+        long seed = failure.getSeed();
+        StressFailure smallest = failure;
+        int[] actions = Arrays.copyOf(failure.getActions(), failure.getStep() + 1);
+
+        for (int chunk = Math.max(1, actions.length / 2); chunk >= 1; ) {
+            boolean removed = false;
+            for (int from = 0; from < actions.length && actions.length > 1; ) {
+                int[] candidate = new int[actions.length - Math.min(chunk, actions.length - from)];
+                System.arraycopy(actions, 0, candidate, 0, from);
+                System.arraycopy(actions, from + actions.length - candidate.length, candidate, from,
+                        candidate.length - from);
+
+                StressFailure attempt = check(seed, candidate);
+                if (attempt != null && attempt.getInvariant().equals(failure.getInvariant())) {
+                    smallest = attempt;
+                    actions = Arrays.copyOf(candidate, attempt.getStep() + 1);
+                    removed = true;
+                } else {
+                    from += chunk;
+                }
+            }
+            if (!removed) chunk /= 2;
+        }
+        logger.info("Shrunk failure from {} to {} actions", failure.getStep() + 1, actions.length);
+        return failure(seed, actions, smallest.getStep(), smallest.getInvariant(), smallest.getMessage());
+    }
+
+    /**
+     * Get the number of actions played so far, over every game
+     * @return actions played
+     */
+    public long getPlayed() {
+        return played.sum();
+    }
+
+    /**
+     * Encode an action
+     * @param kind kind of action
+     * @param argument block clicked as x | y &lt;&lt; 8 for PLACE, index of the key for KEY, otherwise 0
+     * @return action
+     */
+    public static int encode(int kind, int argument) {
+        return kind | argument << KIND_BITS;
+    }
+
+    /**
+     * Describe an action
+     * @param action the action
+     * @return description
+     */
+    public static String describe(int action) {
+        int argument = action >>> KIND_BITS;
+        switch (action & KIND_MASK) {
+            case PLACE:
+                return "place " + (argument & 0xff) + "," + (argument >>> 8);
+            case ROTATE:
+                return "rotate";
+            case KEY:
+                return argument < KEYS.length ? "key " + KEYS[argument] : "key " + argument;
+            case SWAP:
+                return "swap";
+            case REGENERATE:
+                return "regenerate";
+            case EXPIRE:
+                return "expire";
+            default:
+                return "unknown " + action;
+        }
+    }
+
+    /**
+     * Soak the game rules from the command line, or run a failure again
+     * @param args number of games per batch, actions per game, game mode, seed and minutes to keep running, all
+     *             optional. Or "repro", the mode, the seed and the comma separated actions printed with a failure.
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("repro")) {
+            StressSimulator simulator = new StressSimulator(args[1]);
+            int[] actions = Arrays.stream(args[3].split(",")).mapToInt(Integer::parseInt).toArray();
+            StressFailure failure = simulator.check(Long.parseLong(args[2]), actions);
+            logger.info(failure == null ? "No invariant broken" : failure);
+            return;
+        }
+
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_STEPS;
+        String mode = args.length > 2 ? args[2] : GameEngine.CHALLENGE_MODE;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : PieceSequence.newSeed();
+        long minutes = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        StressSimulator simulator = new StressSimulator(mode);
+        long start = System.nanoTime();
+        long deadline = start + minutes * 60_000_000_000L;
+        //Every batch gets its own seed, so a failure in any batch can be reproduced from its seed alone
+        UniformPieceSequence batches = new UniformPieceSequence(seed);
+        for (int batch = 1; ; batch++) {
+            long batchSeed = batches.split().getSeed();
+            StressFailure failure = simulator.run(games, steps, batchSeed, ForkJoinPool.commonPool());
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            logger.info("Batch {} with seed {}: {} actions played, {} per second", batch, batchSeed,
+                    simulator.getPlayed(), simulator.getPlayed() * 1_000_000_000L / elapsed);
+            if (failure != null) {
+                logger.error("Invariant broken: {}", failure);
+                System.exit(1);
+            }
+            if (System.nanoTime() >= deadline) break;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.LongFunction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.Bot;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+
+/**
+ * Plays several bots over the same seeded games and compares them.
+ *
+ * Game i of every bot is dealt the same pieces, so differences in score come from the bots rather than the luck of
+ * the draw, and the first bot acts as the baseline for a game by game comparison. This makes it cheap to check a
+ * change to the rules or scoring: run the same tournament before and after and compare the reports.
+ *
+ * Games follow the same rules as the SelfPlayHarness. The games of every bot are spread over one work-stealing pool.
+ */
+public class Tournament {
+
+    private static final Logger logger = LogManager.getLogger(Tournament.class);
+
+    /**
+     * Bots played when none are named
+     */
+    public static final String[] DEFAULT_BOTS = {"greedy", "expectimax", "random"};
+
+    /**
+     * Number of games each task plays before it stops splitting
+     */
+    private static final int GAMES_PER_TASK = 8;
+
+    private final String mode;
+    private final String[] bots;
+    private final int maxMoves;
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a tournament
+     * @param mode game mode of every game
+     * @param bots name of each bot, as understood by SelfPlayHarness.botNamed. The first is the baseline.
+     * @param maxMoves most moves played in one game
+     * @param pool pool to play the games on
+     */
+    public Tournament(String mode, String[] bots, int maxMoves, ForkJoinPool pool) {
+        if (bots.length == 0) {
+            throw new IllegalArgumentException("A tournament needs at least one bot");
+        }
+        this.mode = mode;
+        this.bots = bots.clone();
+        this.maxMoves = maxMoves;
+        this.pool = pool;
+    }
+
+    /**
+     * Play every bot over the same games
+     * @param games number of games per bot
+     * @param seed seed of the tournament
+     * @return report
+     */
+    public TournamentReport run(int games, long seed) {
+        long[] seeds = SelfPlayHarness.seeds(games, seed);
+        int[][] scores = new int[bots.length][games];
+        int[][] moves = new int[bots.length][games];
+        boolean[][] ended = new boolean[bots.length][games];
+        LatencyHistogram[] latency = new LatencyHistogram[bots.length];
+
+        //Fork every bot's games at once, so slow and fast bots share the pool
+        PlayTask[] tasks = new PlayTask[bots.length];
+        for (int bot = 0; bot < bots.length; bot++) {
+            tasks[bot] = new PlayTask(SelfPlayHarness.botNamed(bots[bot]), seeds, scores[bot], moves[bot], ended[bot],
+                    0, games);
+        }
+        long start = System.nanoTime();
+        pool.invoke(new RecursiveTask<Void>() {
+            @Override
+            protected Void compute() {
+                invokeAll(tasks);
+                return null;
+            }
+        });
+        for (int bot = 0; bot < bots.length; bot++) {
+            latency[bot] = tasks[bot].join();
+        }
+        logger.info("Played {} games of {} bots in {} ms", games, bots.length, (System.nanoTime() - start) / 1_000_000);
+
+        return new TournamentReport(mode, seed, maxMoves, bots.clone(), scores, moves, ended, latency);
+    }
+
+    /**
+     * Plays a range of one bot's games, splitting it in half until it is small
+     */
+    private class PlayTask extends RecursiveTask<LatencyHistogram> {
+        private static final long serialVersionUID = 1L;
+
+        private final LongFunction<Bot> factory;
+        private final long[] seeds;
+        private final int[] scores;
+        private final int[] moves;
+        private final boolean[] ended;
+        private final int from;
+        private final int to;
+
+        PlayTask(LongFunction<Bot> factory, long[] seeds, int[] scores, int[] moves, boolean[] ended, int from, int to) {
+            this.factory = factory;
+            this.seeds = seeds;
+            this.scores = scores;
+            this.moves = moves;
+            this.ended = ended;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected LatencyHistogram compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                PlayTask second = new PlayTask(factory, seeds, scores, moves, ended, middle, to);
+                second.fork();
+                LatencyHistogram first = new PlayTask(factory, seeds, scores, moves, ended, from, middle).compute();
+                first.merge(second.join());
+                return first;
+            }
+
+            LatencyHistogram latency = new LatencyHistogram();
+            for (int game = from; game < to; game++) {
+                GameEngine engine = new GameEngine(5, 5, mode, new UniformPieceSequence(seeds[game]));
+                moves[game] = SelfPlayHarness.play(engine, factory.apply(seeds[game]), maxMoves, latency);
+                scores[game] = engine.getScore();
+                ended[game] = engine.isOver() || engine.isLost();
+            }
+            return latency;
+        }
+    }
+
+    /**
+     * Run a tournament from the command line and write its report
+     * @param args number of games, output directory, comma separated bot names, game mode and seed, all optional
+     * @throws IOException if the report cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        Path output = Paths.get(args.length > 1 ? args[1] : "tournament");
+        String[] bots = args.length > 2 ? args[2].split(",") : DEFAULT_BOTS;
+        String mode = args.length > 3 ? args[3] : GameEngine.CHALLENGE_MODE;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        Tournament tournament = new Tournament(mode, bots, SelfPlayHarness.DEFAULT_MAX_MOVES, ForkJoinPool.commonPool());
+        TournamentReport report = tournament.run(games, seed);
+        logger.info(report);
+
+        report.writeCsv(output);
+        report.writeJson(output.resolve("tournament.json"));
+        logger.info("Report written to {}", output.toAbsolutePath());
+    }
+}
@@ -0,0 +1,342 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The results of a Tournament: for every bot, the final score, moves played and outcome of each game, and the time
+ * taken by each decision. Game i of every bot was played with the same pieces, so scores can be compared game by game.
+ *
+ * The report can be written as CSV files for spreadsheets and plotting, or as a single JSON document for tooling.
+ */
+public class TournamentReport {
+
+    /**
+     * Number of bins in the score histograms
+     */
+    public static final int HISTOGRAM_BINS = 20;
+
+    /**
+     * Number of points on the survival curves
+     */
+    public static final int SURVIVAL_POINTS = 50;
+
+    /**
+     * Percentiles of decision time reported
+     */
+    private static final double[] LATENCY_PERCENTILES = {50, 90, 99, 99.9};
+
+    private final String mode;
+    private final long seed;
+    private final int maxMoves;
+    private final String[] bots;
+    private final int[][] scores;
+    private final int[][] moves;
+    private final boolean[][] ended;
+    private final LatencyHistogram[] latency;
+    private final Stats[] scoreStats;
+
+    /**
+     * Create a report
+     * @param mode game mode
+     * @param seed seed of the tournament
+     * @param maxMoves most moves played in one game
+     * @param bots name of each bot
+     * @param scores final score of each game, by bot
+     * @param moves moves played in each game, by bot
+     * @param ended whether each game ended before the move limit, by bot
+     * @param latency time taken for each decision, by bot
+     */
+    public TournamentReport(String mode, long seed, int maxMoves, String[] bots, int[][] scores, int[][] moves,
+                            boolean[][] ended, LatencyHistogram[] latency) {
+        this.mode = mode;
+        this.seed = seed;
+        this.maxMoves = maxMoves;
+        this.bots = bots;
+        this.scores = scores;
+        this.moves = moves;
+        this.ended = ended;
+        this.latency = latency;
+        this.scoreStats = new Stats[bots.length];
+        for (int bot = 0; bot < bots.length; bot++) {
+            scoreStats[bot] = Stats.of(scores[bot]);
+        }
+    }
+
+    /**
+     * Get the number of bots
+     * @return bots
+     */
+    public int getBotCount() {
+        return bots.length;
+    }
+
+    /**
+     * Get the name of a bot
+     * @param bot bot index
+     * @return name
+     */
+    public String getBot(int bot) {
+        return bots[bot];
+    }
+
+    /**
+     * Get the number of games each bot played
+     * @return games
+     */
+    public int getGames() {
+        return scores.length == 0 ? 0 : scores[0].length;
+    }
+
+    /**
+     * Get the summary of a bot's final scores
+     * @param bot bot index
+     * @return score statistics
+     */
+    public Stats getScoreStats(int bot) {
+        return scoreStats[bot];
+    }
+
+    /**
+     * Get the time taken by a bot for each decision
+     * @param bot bot index
+     * @return latency histogram
+     */
+    public LatencyHistogram getLatency(int bot) {
+        return latency[bot];
+    }
+
+    /**
+     * Get the fraction of a bot's games still going after a number of moves
+     * @param bot bot index
+     * @param after number of moves
+     * @return fraction from 0 to 1
+     */
+    public double survival(int bot, int after) {
+        int alive = 0;
+        for (int game = 0; game < moves[bot].length; game++) {
+            if (!ended[bot][game] || moves[bot][game] > after) {
+                alive++;
+            }
+        }
+        return moves[bot].length == 0 ? 0 : (double) alive / moves[bot].length;
+    }
+
+    /**
+     * Get the game by game difference between a bot's score and another's. As both played the same pieces, the
+     * confidence interval of this difference is much narrower than comparing the two means.
+     * @param bot bot index
+     * @param baseline bot index to compare against
+     * @return statistics of the score of the bot minus the score of the baseline
+     */
+    public Stats pairedDifference(int bot, int baseline) {
+        double[] differences = new double[scores[bot].length];
+        for (int game = 0; game < differences.length; game++) {
+            differences[game] = scores[bot][game] - scores[baseline][game];
+        }
+        return new Stats(differences);
+    }
+
+    /**
+     * Get the width of a score histogram bin, the same for every bot so the histograms line up
+     * @return bin width, a multiple of 10
+     */
+    public int getBinWidth() {
+        double max = 0;
+        for (Stats stats : scoreStats) {
+            max = Math.max(max, stats.getMax());
+        }
+        int width = (int) Math.ceil((max + 1) / HISTOGRAM_BINS / 10) * 10;
+        return Math.max(10, width);
+    }
+
+    /**
+     * Count a bot's games in each score bin
+     * @param bot bot index
+     * @return number of games in each of HISTOGRAM_BINS bins
+     */
+    public int[] histogram(int bot) {
+        int width = getBinWidth();
+        int[] counts = new int[HISTOGRAM_BINS];
+        for (int score : scores[bot]) {
+            counts[Math.min(HISTOGRAM_BINS - 1, score / width)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Get the move counts of the points on the survival curves, spread up to the longest game of any bot
+     * @return moves at each point
+     */
+    private int[] survivalSteps() {
+        int longest = 0;
+        for (int[] played : moves) {
+            for (int count : played) {
+                longest = Math.max(longest, count);
+            }
+        }
+        int[] steps = new int[SURVIVAL_POINTS + 1];
+        for (int point = 0; point <= SURVIVAL_POINTS; point++) {
+            steps[point] = (int) ((long) longest * point / SURVIVAL_POINTS);
+        }
+        return steps;
+    }
+
+    /**
+     * Write the report as CSV files into a directory: summary.csv, histogram.csv, survival.csv and latency.csv
+     * @param directory the directory, created if needed
+     * @throws IOException if a file cannot be written
+     */
+    public void writeCsv(Path directory) throws IOException {
+        Files.createDirectories(directory);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("summary.csv"), StandardCharsets.UTF_8)) {
+            writer.write("bot,games,mean,ci95,stddev,min,p50,p90,max,vs_" + bots[0] + ",vs_" + bots[0] + "_ci95,"
+                    + "decision_mean_us\n");
+            for (int bot = 0; bot < bots.length; bot++) {
+                Stats stats = scoreStats[bot];
+                Stats paired = pairedDifference(bot, 0);
+                writer.write(format("%s,%d,%.2f,%.2f,%.2f,%.0f,%.0f,%.0f,%.0f,%.2f,%.2f,%.3f\n", bots[bot],
+                        stats.getCount(), stats.getMean(), stats.confidence95(), stats.getStdDev(), stats.getMin(),
+                        stats.percentile(50), stats.percentile(90), stats.getMax(), paired.getMean(),
+                        paired.confidence95(), latency[bot].getMean() / 1e3));
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("histogram.csv"), StandardCharsets.UTF_8)) {
+            int width = getBinWidth();
+            writer.write("bot,from,to,games\n");
+            for (int bot = 0; bot < bots.length; bot++) {
+                int[] counts = histogram(bot);
+                for (int bin = 0; bin < counts.length; bin++) {
+                    writer.write(format("%s,%d,%d,%d\n", bots[bot], bin * width, (bin + 1) * width, counts[bin]));
+                }
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("survival.csv"), StandardCharsets.UTF_8)) {
+            writer.write("bot,moves,surviving\n");
+            for (int bot = 0; bot < bots.length; bot++) {
+                for (int step : survivalSteps()) {
+                    writer.write(format("%s,%d,%.4f\n", bots[bot], step, survival(bot, step)));
+                }
+            }
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("latency.csv"), StandardCharsets.UTF_8)) {
+            writer.write("bot,percentile,micros\n");
+            for (int bot = 0; bot < bots.length; bot++) {
+                for (double percentile : LATENCY_PERCENTILES) {
+                    writer.write(format("%s,%s,%.3f\n", bots[bot], label(percentile),
+                            latency[bot].percentile(percentile) / 1e3));
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the whole report as one JSON document
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeJson(Path path) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append(format("{\n  \"mode\": \"%s\",\n  \"seed\": %d,\n  \"games\": %d,\n  \"maxMoves\": %d,\n",
+                escape(mode), seed, getGames(), maxMoves));
+        json.append(format("  \"binWidth\": %d,\n  \"bots\": [\n", getBinWidth()));
+        for (int bot = 0; bot < bots.length; bot++) {
+            Stats stats = scoreStats[bot];
+            Stats paired = pairedDifference(bot, 0);
+            json.append(format("    {\n      \"name\": \"%s\",\n", escape(bots[bot])));
+            json.append(format("      \"score\": {\"mean\": %.3f, \"ci95\": %.3f, \"stddev\": %.3f, \"min\": %.0f, "
+                            + "\"p50\": %.0f, \"p90\": %.0f, \"max\": %.0f},\n", stats.getMean(), stats.confidence95(),
+                    stats.getStdDev(), stats.getMin(), stats.percentile(50), stats.percentile(90), stats.getMax()));
+            json.append(format("      \"versusBaseline\": {\"baseline\": \"%s\", \"mean\": %.3f, \"ci95\": %.3f},\n",
+                    escape(bots[0]), paired.getMean(), paired.confidence95()));
+
+            json.append("      \"histogram\": [");
+            int[] counts = histogram(bot);
+            for (int bin = 0; bin < counts.length; bin++) {
+                json.append(bin == 0 ? "" : ", ").append(counts[bin]);
+            }
+            json.append("],\n      \"survival\": [");
+            int[] steps = survivalSteps();
+            for (int point = 0; point < steps.length; point++) {
+                json.append(point == 0 ? "" : ", ").append(format("[%d, %.4f]", steps[point], survival(bot, steps[point])));
+            }
+            json.append("],\n      \"latencyMicros\": {");
+            for (int i = 0; i < LATENCY_PERCENTILES.length; i++) {
+                json.append(i == 0 ? "" : ", ").append(format("\"p%s\": %.3f", label(LATENCY_PERCENTILES[i]),
+                        latency[bot].percentile(LATENCY_PERCENTILES[i]) / 1e3));
+            }
+            json.append(format("},\n      \"scores\": %s\n    }%s\n", join(scores[bot]), bot < bots.length - 1 ? "," : ""));
+        }
+        json.append("  ]\n}\n");
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(path, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Format numbers the same way whatever the default locale, so files always use a decimal point
+     * @param format format string
+     * @param args arguments
+     * @return formatted string
+     */
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    /**
+     * Write a percentile without a trailing ".0"
+     * @param percentile the percentile
+     * @return label
+     */
+    private static String label(double percentile) {
+        return percentile == Math.rint(percentile) ? Integer.toString((int) percentile) : Double.toString(percentile);
+    }
+
+    /**
+     * Write whole numbers as a JSON array
+     * @param values the values
+     * @return array
+     */
+    private static String join(int[] values) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < values.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append(values[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    /**
+     * Escape a string for a JSON document
+     * @param text the string
+     * @return escaped string
+     */
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Return a string representation of this report, one line per bot
+     * @return string representation
+     */
+    @Override public String toString() {
+        StringBuilder builder = new StringBuilder(format("Tournament in %s, %d games each, seed %d", mode, getGames(), seed));
+        for (int bot = 0; bot < bots.length; bot++) {
+            Stats paired = pairedDifference(bot, 0);
+            builder.append(format("\n  %-12s score %s, vs %s %+.1f +-%.1f, decision p50=%.1fus p99=%.1fus", bots[bot],
+                    scoreStats[bot], bots[0], paired.getMean(), paired.confidence95(),
+                    latency[bot].percentile(50) / 1e3, latency[bot].percentile(99) / 1e3));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,241 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import uk.ac.soton.comp1206.ai.BoardEvaluator;
+
+/**
+ * The state of a WeightTuner run between generations: the surviving weight vectors with their fitness, the mutation
+ * step size and the best weights seen so far. Everything else is derived from the seed and the generation number, so
+ * a run resumed from a checkpoint carries on exactly as if it had never stopped.
+ *
+ * Checkpoints are plain text, one "key=value" per line, so they can be read and edited by hand.
+ */
+public class TunerCheckpoint {
+
+    private final long seed;
+    private final int generation;
+    private final double sigma;
+    private final double[][] parents;
+    private final double[] fitness;
+    private final double[] best;
+    private final double bestFitness;
+
+    /**
+     * Create a checkpoint
+     * @param seed seed of the run
+     * @param generation number of generations finished
+     * @param sigma mutation step size for the next generation
+     * @param parents weights of each surviving vector, best first
+     * @param fitness fitness of each surviving vector
+     * @param best best weights seen so far
+     * @param bestFitness fitness of the best weights on the games of the latest generation
+     */
+    public TunerCheckpoint(long seed, int generation, double sigma, double[][] parents, double[] fitness, double[] best,
+                           double bestFitness) {
+        this.seed = seed;
+        this.generation = generation;
+        this.sigma = sigma;
+        this.parents = parents;
+        this.fitness = fitness;
+        this.best = best;
+        this.bestFitness = bestFitness;
+    }
+
+    /**
+     * Write this checkpoint to a file. It is written next to the file first and then moved over it, so a crash never
+     * leaves a half-written checkpoint behind.
+     * @param path the file
+     * @throws IOException if the file cannot be written
+     */
+    public void write(Path path) throws IOException {
+        Path absolute = path.toAbsolutePath();
+        Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            writer.write("seed=" + seed + "\n");
+            writer.write("generation=" + generation + "\n");
+            writer.write("sigma=" + sigma + "\n");
+            writer.write("features=" + String.join(",", BoardEvaluator.NAMES) + "\n");
+            writer.write("best=" + bestFitness + ":" + join(best) + "\n");
+            for (int i = 0; i < parents.length; i++) {
+                writer.write("parent=" + fitness[i] + ":" + join(parents[i]) + "\n");
+            }
+        }
+        Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Read a checkpoint from a file
+     * @param path the file
+     * @return checkpoint
+     * @throws IOException if the file cannot be read or is not a checkpoint
+     */
+    public static TunerCheckpoint read(Path path) throws IOException {
+        long seed = 0;
+        int generation = -1;
+        double sigma = 0;
+        double[] best = null;
+        double bestFitness = 0;
+        List<double[]> parents = new ArrayList<>();
+        List<Double> fitness = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int equals = line.indexOf('=');
+                if (equals < 0) continue;
+                String key = line.substring(0, equals);
+                String value = line.substring(equals + 1);
+                try {
+                    switch (key) {
+                        case "seed":
+                            seed = Long.parseLong(value);
+                            break;
+                        case "generation":
+                            generation = Integer.parseInt(value);
+                            break;
+                        case "sigma":
+                            sigma = Double.parseDouble(value);
+                            break;
+                        case "best":
+                            bestFitness = Double.parseDouble(value.substring(0, value.indexOf(':')));
+                            best = split(value.substring(value.indexOf(':') + 1));
+                            break;
+                        case "parent":
+                            fitness.add(Double.parseDouble(value.substring(0, value.indexOf(':'))));
+                            parents.add(split(value.substring(value.indexOf(':') + 1)));
+                            break;
+                        default:
+                            //Informational keys such as the feature names
+                    }
+                } catch (RuntimeException e) {
+                    throw new IOException("Bad checkpoint line: " + line, e);
+                }
+            }
+        }
+        if (generation < 0 || best == null || parents.isEmpty()) {
+            throw new IOException("Incomplete checkpoint: " + path);
+        }
+
+        double[] fitnessArray = new double[fitness.size()];
+        for (int i = 0; i < fitnessArray.length; i++) {
+            fitnessArray[i] = fitness.get(i);
+        }
+        return new TunerCheckpoint(seed, generation, sigma, parents.toArray(new double[0][]), fitnessArray, best,
+                bestFitness);
+    }
+
+    /**
+     * Join weights into a comma separated list
+     * @param weights the weights
+     * @return list
+     */
+    private static String join(double[] weights) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < weights.length; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(weights[i]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Split a comma separated list of weights, checking there is one per feature
+     * @param list the list
+     * @return weights
+     */
+    private static double[] split(String list) {
+        String[] parts = list.split(",");
+        if (parts.length != BoardEvaluator.FEATURES) {
+            throw new IllegalArgumentException("Expected " + BoardEvaluator.FEATURES + " weights: " + list);
+        }
+        double[] weights = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Double.parseDouble(parts[i].trim());
+        }
+        return weights;
+    }
+
+    /**
+     * Get the seed of the run
+     * @return seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of generations finished
+     * @return generation
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get the mutation step size for the next generation
+     * @return step size, relative to the size of each weight
+     */
+    public double getSigma() {
+        return sigma;
+    }
+
+    /**
+     * Get the number of surviving vectors
+     * @return number of parents
+     */
+    public int getParentCount() {
+        return parents.length;
+    }
+
+    /**
+     * Get the weights of a surviving vector
+     * @param i parent, 0 is the fittest
+     * @return copy of the weights
+     */
+    public double[] getParent(int i) {
+        return parents[i].clone();
+    }
+
+    /**
+     * Get the fitness of a surviving vector
+     * @param i parent, 0 is the fittest
+     * @return mean score over the games of its generation
+     */
+    public double getFitness(int i) {
+        return fitness[i];
+    }
+
+    /**
+     * Get the best weights seen so far
+     * @return copy of the weights
+     */
+    public double[] getBest() {
+        return best.clone();
+    }
+
+    /**
+     * Get the fitness of the best weights on the games of the latest generation
+     * @return mean score
+     */
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    /**
+     * Return a string representation of this checkpoint
+     * @return string representation
+     */
+    @Override public String toString() {
+        return String.format("Generation %d: sigma %.3f, best %.1f %s", generation, sigma, bestFitness,
+                Arrays.toString(best));
+    }
+}
@@ -0,0 +1,301 @@
+package uk.ac.soton.comp1206.simulation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.ac.soton.comp1206.ai.BoardEvaluator;
+import uk.ac.soton.comp1206.ai.GreedyBot;
+import uk.ac.soton.comp1206.game.GameEngine;
+import uk.ac.soton.comp1206.game.UniformPieceSequence;
+
+/**
+ * Evolves the weights of a BoardEvaluator by playing headless games with a GreedyBot.
+ *
+ * Each generation mutates the surviving weight vectors into a population of children and plays every child and
+ * every parent over the same set of seeded games, so they are compared on the same pieces. The fittest vectors by
+ * mean score survive into the next generation. Parents are played again on the new games rather than keeping their
+ * old fitness, so a vector that got lucky once does not survive for ever. For the same reason the best vector of
+ * the run is played again on each generation's games before the fittest new vector is compared with it. The
+ * mutation step size follows the one-fifth rule: it grows while more than a fifth of the children beat their parent
+ * and shrinks otherwise.
+ *
+ * The greedy bot only compares scores, so multiplying every weight by the same amount plays the same game. The
+ * points weight is therefore never mutated, which pins down the scale.
+ *
+ * The games of a generation are spread over a work-stealing pool. Each generation's randomness comes from the seed
+ * of the run and the generation number, so a run resumed from a checkpoint is the same as one that never stopped.
+ */
+public class WeightTuner {
+
+    private static final Logger logger = LogManager.getLogger(WeightTuner.class);
+
+    /**
+     * Default number of children per generation
+     */
+    public static final int DEFAULT_POPULATION = 24;
+
+    /**
+     * Default number of vectors surviving each generation
+     */
+    public static final int DEFAULT_PARENTS = 6;
+
+    /**
+     * Default number of games each vector plays per generation
+     */
+    public static final int DEFAULT_GAMES = 64;
+
+    /**
+     * Default limit of moves per game, lower than in self-play to keep generations short
+     */
+    public static final int DEFAULT_MAX_MOVES = 1000;
+
+    /**
+     * Default starting mutation step size, relative to the size of each weight
+     */
+    public static final double DEFAULT_SIGMA = 0.3;
+
+    /**
+     * Smallest step size, so the search never stops moving completely
+     */
+    private static final double MIN_SIGMA = 0.01;
+
+    /**
+     * Number of games each task plays before it stops splitting
+     */
+    private static final int GAMES_PER_TASK = 4;
+
+    private final String mode;
+    private final int population;
+    private final int parents;
+    private final int games;
+    private final int maxMoves;
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a tuner with the default settings on the common pool
+     * @param mode game mode of every game
+     */
+    public WeightTuner(String mode) {
+        this(mode, DEFAULT_POPULATION, DEFAULT_PARENTS, DEFAULT_GAMES, DEFAULT_MAX_MOVES, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a tuner
+     * @param mode game mode of every game
+     * @param population number of children per generation
+     * @param parents number of vectors surviving each generation
+     * @param games number of games each vector plays per generation
+     * @param maxMoves most moves played in one game
+     * @param pool pool to play the games on
+     */
+    public WeightTuner(String mode, int population, int parents, int games, int maxMoves, ForkJoinPool pool) {
+        if (population < 1 || parents < 1 || games < 1) {
+            throw new IllegalArgumentException("Population, parents and games must be positive");
+        }
+        this.mode = mode;
+        this.population = population;
+        this.parents = parents;
+        this.games = games;
+        this.maxMoves = maxMoves;
+        this.pool = pool;
+    }
+
+    /**
+     * Create the state of a new run
+     * @param initial weights to start from
+     * @param sigma starting mutation step size
+     * @param seed seed of the run
+     * @return state before the first generation
+     */
+    public TunerCheckpoint start(double[] initial, double sigma, long seed) {
+        return new TunerCheckpoint(seed, 0, sigma, new double[][]{initial.clone()}, new double[]{Double.NEGATIVE_INFINITY},
+                initial.clone(), Double.NEGATIVE_INFINITY);
+    }
+
+    /**
+     * Run generations until a number of them have finished, writing a checkpoint after each one
+     * @param state state to carry on from
+     * @param generations total number of generations of the run
+     * @param checkpoint file to write checkpoints to, may be null
+     * @return state after the last generation
+     * @throws IOException if a checkpoint cannot be written
+     */
+    public TunerCheckpoint run(TunerCheckpoint state, int generations, Path checkpoint) throws IOException {
+        while (state.getGeneration() < generations) {
+            state = step(state);
+            logger.info(state);
+            if (checkpoint != null) {
+                state.write(checkpoint);
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Run one generation
+     * @param state state before the generation
+     * @return state after it
+     */
+    public TunerCheckpoint step(TunerCheckpoint state) {
+        int generation = state.getGeneration() + 1;
+        Random random = new Random(state.getSeed() ^ generation * 0x9e3779b97f4a7c15L);
+        long[] seeds = SelfPlayHarness.seeds(games, random.nextLong());
+
+        //Parents first, then each child mutated from the parents in turn, then the best vector so far
+        int parentCount = state.getParentCount();
+        int incumbent = parentCount + population;
+        double[][] candidates = new double[incumbent + 1][];
+        for (int i = 0; i < parentCount; i++) {
+            candidates[i] = state.getParent(i);
+        }
+        for (int child = 0; child < population; child++) {
+            double[] weights = state.getParent(child % parentCount);
+            for (int feature = 0; feature < weights.length; feature++) {
+                if (feature == BoardEvaluator.POINTS) continue;
+                weights[feature] += state.getSigma() * Math.max(1, Math.abs(weights[feature])) * random.nextGaussian();
+            }
+            candidates[parentCount + child] = weights;
+        }
+        candidates[incumbent] = state.getBest();
+
+        long start = System.nanoTime();
+        double[] fitness = evaluate(candidates, seeds);
+        long elapsed = System.nanoTime() - start;
+
+        //Count the children beating the parent they were mutated from
+        int successes = 0;
+        for (int child = 0; child < population; child++) {
+            if (fitness[parentCount + child] > fitness[child % parentCount]) {
+                successes++;
+            }
+        }
+        double sigma = successes * 5 > population ? state.getSigma() * 1.22 : state.getSigma() * 0.82;
+        sigma = Math.max(MIN_SIGMA, sigma);
+
+        //The best vector so far only takes part in the comparison below, not in the selection
+        Integer[] order = new Integer[incumbent];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> fitness[i]).reversed());
+
+        int survivors = Math.min(parents, incumbent);
+        double[][] nextParents = new double[survivors][];
+        double[] nextFitness = new double[survivors];
+        for (int i = 0; i < survivors; i++) {
+            nextParents[i] = candidates[order[i]];
+            nextFitness[i] = fitness[order[i]];
+        }
+
+        //Compare on this generation's games, so the best vector cannot keep a lucky score from an earlier one
+        double[] best = state.getBest();
+        double bestFitness = fitness[incumbent];
+        if (nextFitness[0] > bestFitness) {
+            best = nextParents[0].clone();
+            bestFitness = nextFitness[0];
+        }
+
+        logger.info("Generation {}: {} vectors x {} games in {} ms, {} of {} children improved", generation,
+                candidates.length, games, elapsed / 1_000_000, successes, population);
+        return new TunerCheckpoint(state.getSeed(), generation, sigma, nextParents, nextFitness, best, bestFitness);
+    }
+
+    /**
+     * Work out the fitness of weight vectors, playing every vector over the same games
+     * @param candidates weights of each vector
+     * @param seeds seed of each game
+     * @return mean final score of each vector
+     */
+    public double[] evaluate(double[][] candidates, long[] seeds) {
+        BoardEvaluator[] evaluators = new BoardEvaluator[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            evaluators[i] = new BoardEvaluator(candidates[i]);
+        }
+        int[] scores = new int[candidates.length * seeds.length];
+        pool.invoke(new GameTask(evaluators, seeds, scores, 0, scores.length));
+
+        double[] fitness = new double[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            long total = 0;
+            for (int game = 0; game < seeds.length; game++) {
+                total += scores[i * seeds.length + game];
+            }
+            fitness[i] = (double) total / seeds.length;
+        }
+        return fitness;
+    }
+
+    /**
+     * Plays a range of games of every vector, splitting it in half until it is small. Game i is game i % seeds of
+     * vector i / seeds.
+     */
+    private class GameTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BoardEvaluator[] evaluators;
+        private final long[] seeds;
+        private final int[] scores;
+        private final int from;
+        private final int to;
+
+        GameTask(BoardEvaluator[] evaluators, long[] seeds, int[] scores, int from, int to) {
+            this.evaluators = evaluators;
+            this.seeds = seeds;
+            this.scores = scores;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new GameTask(evaluators, seeds, scores, from, middle),
+                        new GameTask(evaluators, seeds, scores, middle, to));
+                return;
+            }
+            for (int game = from; game < to; game++) {
+                long seed = seeds[game % seeds.length];
+                GameEngine engine = new GameEngine(5, 5, mode, new UniformPieceSequence(seed));
+                SelfPlayHarness.play(engine, new GreedyBot(evaluators[game / seeds.length]), maxMoves, null);
+                scores[game] = engine.getScore();
+            }
+        }
+    }
+
+    /**
+     * Tune weights from the command line, resuming from the checkpoint file if it exists
+     * @param args number of generations, checkpoint file, games per vector, game mode and seed, all optional
+     * @throws IOException if the checkpoint cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        int generations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        Path checkpoint = Paths.get(args.length > 1 ? args[1] : "tuner.txt");
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_GAMES;
+        String mode = args.length > 3 ? args[3] : GameEngine.CHALLENGE_MODE;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 0;
+
+        WeightTuner tuner = new WeightTuner(mode, DEFAULT_POPULATION, DEFAULT_PARENTS, games, DEFAULT_MAX_MOVES,
+                ForkJoinPool.commonPool());
+        TunerCheckpoint state;
+        if (Files.exists(checkpoint)) {
+            state = TunerCheckpoint.read(checkpoint);
+            logger.info("Resuming from {}: {}", checkpoint, state);
+        } else {
+            state = tuner.start(BoardEvaluator.DEFAULT.getWeights(), DEFAULT_SIGMA, seed);
+            logger.info("Starting a new run with seed {} from {}", seed, BoardEvaluator.DEFAULT);
+        }
+
+        state = tuner.run(state, generations, checkpoint);
+        logger.info("Best weights after {} generations: {} scoring {}", state.getGeneration(),
+                Arrays.toString(state.getBest()), String.format("%.1f", state.getBestFitness()));
+    }
+}
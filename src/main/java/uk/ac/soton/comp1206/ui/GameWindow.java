@@ -12,6 +12,7 @@ import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.App;
 import uk.ac.soton.comp1206.game.Game;
 import uk.ac.soton.comp1206.network.Communicator;
+import uk.ac.soton.comp1206.replay.ReplayRecorder;
 import uk.ac.soton.comp1206.scene.*;
 
 import java.util.List;
@@ -35,6 +36,7 @@ public class GameWindow {
     private BaseScene currentScene;
     private Scene scene;
     private Game game;
+    private ReplayRecorder replay;
     private String mode;
     final Communicator communicator;
 
@@ -181,6 +183,11 @@ public class GameWindow {
      */
     public void startMultiplayerScene(){loadScene(new MultiplayerScene(this));}
 
+    /**
+     * Start Replay scene
+     */
+    public void startReplayScene(){loadScene(new ReplayScene(this));}
+
     /**
      * Start Score scene
      */
@@ -198,6 +205,20 @@ public class GameWindow {
         return game;
     }
 
+    /**
+     * Pass the replay of the game to be checked by scores scene before its score is sent
+     * @param replay recorder of the game's replay, or null if it was not recorded
+     */
+    public void passReplay(ReplayRecorder replay){this.replay=replay;}
+
+    /**
+     * Get the replay of the game
+     * @return recorder of the game's replay, or null if it was not recorded
+     */
+    public ReplayRecorder getReplay(){
+        return replay;
+    }
+
     /**
      * Set the mode of the game
      * @param mode Special or Normal Mode
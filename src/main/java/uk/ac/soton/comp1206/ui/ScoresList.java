@@ -18,8 +18,8 @@ import javafx.util.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import uk.ac.soton.comp1206.scene.ScoresScene;
+import uk.ac.soton.comp1206.scores.ScoreStore;
 
-import java.io.*;
 import java.util.*;
 
 /**
@@ -32,14 +32,8 @@ public class ScoresList extends VBox {
     private ListProperty<Pair<String,Integer>> scoresProperty = new SimpleListProperty<>();
     //Holds remote scores
     private ListProperty<Pair<String,Integer>> remotescoresProperty = new SimpleListProperty<>();
-    //Reads from scores text file
-    private BufferedReader bufferedReader;
-    //Writes to scores text file
-    private BufferedWriter bufferedWriter;
-    //Scores read from text file
-    private List<Pair<String,Integer>> defaultScores = new ArrayList<>();
-    //Score to write to text file
-    private List<Pair<String,Integer>> toAddScores = new ArrayList<>();
+    //Keeps every local score
+    private final ScoreStore store = ScoreStore.get();
 
 
 
@@ -181,75 +175,33 @@ public class ScoresList extends VBox {
     }
 
     /**
-     * Load scores in scores text file
+     * Load the best local scores
      * @return list containing scores and names
      */
     public List<Pair<String,Integer>> loadScores(){
         logger.info("Loading default scores");
-        try {
-            bufferedReader = new BufferedReader(new FileReader("scores.txt"));
-            String line= bufferedReader.readLine();
-            while(line!=null){
-                try {
-                    String info[] = line.split(":");
-                    String name = info[0];
-                    Integer score = Integer.parseInt(info[1]);
-                    defaultScores.add(new Pair<>(name, score));
-
-                } catch (Exception e) {
-                    System.out.println(e);
-
-                }
-                line= bufferedReader.readLine();
-
-            }
-            bufferedReader.close();
-
-        } catch (Exception e) {
-            System.out.println(e);
-            writeScores(null,null);
-            loadScores();
+        if(store==null){
+            return new ArrayList<>();
         }
-
-        return defaultScores;
-
+        //Only the top 10 are shown
+        return store.top(10);
     }
 
     /**
-     * Write scores into scores text file
+     * Add a score to the local scores, writing it out in the background
      * @param name name of player
      * @param score score of player
      */
     public void writeScores(String name, Integer score) {
         logger.info("Writing scores");
-
-        if (name != null && score != null) {
-            //Add to list of all players scores as back up
-            toAddScores.add(new Pair<>(name, score));
-
-                try {
-                    bufferedWriter = new BufferedWriter(new FileWriter("scores.txt", false));
-                    int added = 0;
-                    for (Pair<String, Integer> toAdd : scoresProperty) {
-                        //Write the top 10 scores into the scores.txt file
-                        if (added < 10) {
-                            bufferedWriter.write(toAdd.getKey() + ":" + toAdd.getValue().toString() + "\n");
-                            added++;
-                        }
-                    }bufferedWriter.close();
-                }catch (Exception e) {
-                    System.out.println(e);
-                }
-            } else{
-            //If file doesnt exist, create the file
-            try {
-                FileWriter scores = new FileWriter("scores.txt");
-
-            }catch (Exception exception){
-                System.out.println(exception);
-            }
+        if (store == null || name == null || score == null) {
+            return;
         }
-
+        store.add(name, score).whenComplete((written, error) -> {
+            if (error != null) {
+                logger.error("Unable to save score {}:{}: {}", name, score, error.getMessage());
+            }
+        });
     }
 
 